@@ -0,0 +1,138 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.File;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import me.jdknight.ums.ccml.util.DirectoryListing;
+
+/**
+ * An in-memory index of the meta files found in the alternative meta folder.
+ * 
+ * <p>
+ * The alternative meta folder is listed once and cached. Lookups are answered from the cached
+ * listing without any file system access. The listing is only read again when the configured
+ * folder changes or the folder's modification time changes.
+ * </p>
+ */
+public final class AlternativeMetaFolderIndex
+{
+	/**
+	 * Index instance.
+	 **/
+	private static final AlternativeMetaFolderIndex _instance = new AlternativeMetaFolderIndex();
+
+	/**
+	 * Logger.
+	 **/
+	private static final Logger _logger = LoggerFactory.getLogger(AlternativeMetaFolderIndex.class);
+
+	/**
+	 * The indexed folder; null if no folder is indexed.
+	 **/
+	private volatile IndexedFolder _indexedFolder;
+
+	/**
+	 * Private constructor.
+	 **/
+	private AlternativeMetaFolderIndex() {}
+
+	/**
+	 * Return the index instance.
+	 * 
+	 * @return The instance.
+	 */
+	public static AlternativeMetaFolderIndex getInstance()
+	{
+		return _instance;
+	}
+
+	/**
+	 * Ensure the index reflects the provided alternative meta folder.
+	 * 
+	 * <p>
+	 * This should be invoked once before a scan. If the folder (and its modification time)
+	 * has not changed since the last refresh, the existing index is kept.
+	 * </p>
+	 * 
+	 * @param folderPath The path to the alternative meta folder; may be null.
+	 */
+	public synchronized void refresh(String folderPath)
+	{
+		File folder = (folderPath != null ? new File(folderPath) : null);
+		if (folder == null || folder.isDirectory() == false)
+		{
+			_indexedFolder = null;
+			return;
+		}
+
+		long lastModified = folder.lastModified();
+		IndexedFolder indexedFolder = _indexedFolder;
+		if (indexedFolder != null && indexedFolder._folder.equals(folder) == true && indexedFolder._lastModified == lastModified)
+		{
+			return;
+		}
+
+		_logger.debug("[CCML] Indexing alternative meta folder: " + folder); //$NON-NLS-1$
+		_indexedFolder = new IndexedFolder(folder, lastModified, DirectoryListing.list(folder));
+	}
+
+	/**
+	 * Find a meta file in the alternative meta folder.
+	 * 
+	 * @param metaFileName The name of the meta file.
+	 * @return             The meta file; null if the meta file does not exist in the alternative meta folder.
+	 */
+	public File find(String metaFileName)
+	{
+		IndexedFolder indexedFolder = _indexedFolder;
+		if (indexedFolder == null || indexedFolder._listing.containsFile(metaFileName) == false)
+		{
+			return null;
+		}
+
+		return new File(indexedFolder._folder, metaFileName);
+	}
+
+	/**
+	 * A listed alternative meta folder.
+	 */
+	private static final class IndexedFolder
+	{
+		/**
+		 * The folder.
+		 **/
+		private final File _folder;
+
+		/**
+		 * The modification time of the folder when it was listed.
+		 **/
+		private final long _lastModified;
+
+		/**
+		 * The listing of the folder.
+		 **/
+		private final DirectoryListing _listing;
+
+		/**
+		 * Initializes a new instance of IndexedFolder.
+		 * 
+		 * @param folder       The folder.
+		 * @param lastModified The modification time of the folder when it was listed.
+		 * @param listing      The listing of the folder.
+		 */
+		public IndexedFolder(File folder, long lastModified, DirectoryListing listing)
+		{
+			_folder = folder;
+			_lastModified = lastModified;
+			_listing = listing;
+		}
+	}
+}
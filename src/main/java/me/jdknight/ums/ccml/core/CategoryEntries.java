@@ -0,0 +1,303 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.Arrays;
+
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaEntryTable;
+
+/**
+ * The (immutable) media entries of a category.
+ * 
+ * <p>
+ * Besides the media entry identifiers (in ascending order), the order the entries are displayed
+ * in is kept once it has been sorted. Snapshots share the same instance for as long as the
+ * category does not change, so a category is only sorted again after it has changed.
+ * </p>
+ * 
+ * <p>
+ * When a category changes, the new instance remembers the last sorted version of the category.
+ * The display order is then updated from that version: removed entries are dropped, and only
+ * the added entries are sorted and merged in (with a binary search for each). Adding a single
+ * entry to a large category therefore takes O(log n) comparisons instead of a full sort.
+ * </p>
+ */
+public final class CategoryEntries
+{
+	/**
+	 * The media entry identifiers (in ascending order).
+	 **/
+	private final int[] _ids;
+
+	/**
+	 * The media entry identifiers in display order; null if not sorted yet.
+	 **/
+	private volatile int[] _displayOrder;
+
+	/**
+	 * The media entry identifiers (in ascending order) of the last sorted version of this category;
+	 * null if none (guarded by this instance).
+	 **/
+	private int[] _baseIds;
+
+	/**
+	 * The display order of the last sorted version of this category; null if none (guarded by this
+	 * instance).
+	 **/
+	private int[] _baseDisplayOrder;
+
+	/**
+	 * Initializes a new instance of CategoryEntries.
+	 * 
+	 * @param ids The media entry identifiers (in ascending order).
+	 */
+	public CategoryEntries(int[] ids)
+	{
+		_ids = ids;
+	}
+
+	/**
+	 * Initializes a new instance of CategoryEntries for a changed category.
+	 * 
+	 * @param ids      The media entry identifiers (in ascending order).
+	 * @param previous The entries of the previous version of the category.
+	 */
+	public CategoryEntries(int[] ids, CategoryEntries previous)
+	{
+		_ids = ids;
+
+		// Only remember a sorted version (never a chain of versions).
+		synchronized(previous)
+		{
+			int[] previousDisplayOrder = previous._displayOrder;
+			if (previousDisplayOrder != null)
+			{
+				_baseIds = previous._ids;
+				_baseDisplayOrder = previousDisplayOrder;
+			}
+			else
+			{
+				_baseIds = previous._baseIds;
+				_baseDisplayOrder = previous._baseDisplayOrder;
+			}
+		}
+	}
+
+	/**
+	 * Return the media entry identifiers (in ascending order).
+	 * 
+	 * <p>
+	 * The returned array must not be modified.
+	 * </p>
+	 * 
+	 * @return The identifiers.
+	 */
+	public int[] getIds()
+	{
+		return _ids;
+	}
+
+	/**
+	 * Return the media entry identifiers in display order.
+	 * 
+	 * <p>
+	 * The returned array must not be modified.
+	 * </p>
+	 * 
+	 * @return The identifiers; null if the entries have not been sorted yet.
+	 */
+	public int[] getDisplayOrder()
+	{
+		return _displayOrder;
+	}
+
+	/**
+	 * Return the media entry identifiers in display order, sorting the entries if required.
+	 * 
+	 * <p>
+	 * The returned array must not be modified.
+	 * </p>
+	 * 
+	 * @param entryTable The table the media entries are interned in.
+	 * @param comparator The comparator ordering the media entries.
+	 * @return           The identifiers.
+	 */
+	public int[] getDisplayOrder(IReadableMediaEntryTable entryTable, MediaEntryComparator comparator)
+	{
+		int[] displayOrder = _displayOrder;
+		if (displayOrder != null)
+		{
+			return displayOrder;
+		}
+
+		synchronized(this)
+		{
+			if (_displayOrder == null)
+			{
+				if (_baseDisplayOrder != null)
+				{
+					_displayOrder = update(entryTable, comparator);
+				}
+				else
+				{
+					_displayOrder = sort(entryTable, comparator);
+				}
+
+				_baseIds = null;
+				_baseDisplayOrder = null;
+			}
+
+			return _displayOrder;
+		}
+	}
+
+	/**
+	 * Return the number of media entries.
+	 * 
+	 * @return The number of entries.
+	 */
+	public int size()
+	{
+		return _ids.length;
+	}
+
+	/**
+	 * Sort all media entries.
+	 * 
+	 * @param entryTable The table the media entries are interned in.
+	 * @param comparator The comparator ordering the media entries.
+	 * @return           The identifiers in display order.
+	 */
+	private int[] sort(IReadableMediaEntryTable entryTable, MediaEntryComparator comparator)
+	{
+		MediaEntry[] entries = resolve(entryTable, _ids, _ids.length);
+		Arrays.sort(entries, comparator);
+
+		int[] displayOrder = new int[entries.length];
+		for(int index = 0; index < entries.length; index++)
+		{
+			displayOrder[index] = entries[index].getId();
+		}
+
+		return displayOrder;
+	}
+
+	/**
+	 * Update the display order of the last sorted version of this category.
+	 * 
+	 * @param entryTable The table the media entries are interned in.
+	 * @param comparator The comparator ordering the media entries.
+	 * @return           The identifiers in display order.
+	 */
+	private int[] update(IReadableMediaEntryTable entryTable, MediaEntryComparator comparator)
+	{
+		// Find the added and removed entries (both identifier arrays are in ascending order).
+		int[] added = new int[_ids.length];
+		int addedCount = 0;
+		int[] removed = new int[_baseIds.length];
+		int removedCount = 0;
+
+		int index = 0;
+		int baseIndex = 0;
+		while (index < _ids.length || baseIndex < _baseIds.length)
+		{
+			if (baseIndex == _baseIds.length || (index < _ids.length && _ids[index] < _baseIds[baseIndex]))
+			{
+				added[addedCount++] = _ids[index++];
+			}
+			else if (index == _ids.length || _baseIds[baseIndex] < _ids[index])
+			{
+				removed[removedCount++] = _baseIds[baseIndex++];
+			}
+			else
+			{
+				index++;
+				baseIndex++;
+			}
+		}
+
+		// Mostly new entries? A full sort is cheaper.
+		if (addedCount > _ids.length / 2)
+		{
+			return sort(entryTable, comparator);
+		}
+
+		// Drop removed entries from the last display order (it keeps its order).
+		int[] kept = _baseDisplayOrder;
+		if (removedCount > 0)
+		{
+			kept = new int[_baseDisplayOrder.length - removedCount];
+			int keptCount = 0;
+			for(int id : _baseDisplayOrder)
+			{
+				if (Arrays.binarySearch(removed, 0, removedCount, id) < 0)
+				{
+					kept[keptCount++] = id;
+				}
+			}
+		}
+
+		if (addedCount == 0)
+		{
+			return kept;
+		}
+
+		// Sort the added entries and merge them in; each is placed with a binary search over the
+		// remaining kept entries.
+		MediaEntry[] addedEntries = resolve(entryTable, added, addedCount);
+		Arrays.sort(addedEntries, comparator);
+
+		int[] displayOrder = new int[kept.length + addedCount];
+		int displayCount = 0;
+		int keptIndex = 0;
+		for(MediaEntry addedEntry : addedEntries)
+		{
+			int low = keptIndex;
+			int high = kept.length;
+			while (low < high)
+			{
+				int middle = (low + high) >>> 1;
+				if (comparator.compare(entryTable.get(kept[middle]), addedEntry) < 0)
+				{
+					low = middle + 1;
+				}
+				else
+				{
+					high = middle;
+				}
+			}
+
+			System.arraycopy(kept, keptIndex, displayOrder, displayCount, low - keptIndex);
+			displayCount += low - keptIndex;
+			keptIndex = low;
+
+			displayOrder[displayCount++] = addedEntry.getId();
+		}
+		System.arraycopy(kept, keptIndex, displayOrder, displayCount, kept.length - keptIndex);
+
+		return displayOrder;
+	}
+
+	/**
+	 * Resolve media entry identifiers to their media entries.
+	 * 
+	 * @param entryTable The table the media entries are interned in.
+	 * @param ids        The identifiers.
+	 * @param count      The number of identifiers to resolve.
+	 * @return           The media entries.
+	 */
+	private static MediaEntry[] resolve(IReadableMediaEntryTable entryTable, int[] ids, int count)
+	{
+		MediaEntry[] entries = new MediaEntry[count];
+		for(int index = 0; index < count; index++)
+		{
+			entries[index] = entryTable.get(ids[index]);
+		}
+
+		return entries;
+	}
+}
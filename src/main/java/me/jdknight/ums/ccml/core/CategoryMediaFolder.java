@@ -0,0 +1,181 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import me.jdknight.ums.ccml.core.enumerators.EPagingMode;
+import me.jdknight.ums.ccml.core.enumerators.ESortOrder;
+import me.jdknight.ums.ccml.core.interfaces.ICcmlConfiguration;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaEntryTable;
+
+/**
+ * A virtual folder for the media entries of a category.
+ * 
+ * <p>
+ * Only the media entries are kept. The DLNA resources for the entries are created the first 
+ * time a renderer browses into this folder. Entries are only sorted the first time any folder 
+ * of an unchanged category is browsed; later browses reuse the kept display order. Entries are 
+ * sorted by the sort keys kept with each entry, so no names are interpreted while sorting. After 
+ * a category changes, only its added entries are sorted and merged into the kept order. The 
+ * resources are dropped when the folder is evicted from the materialized folder cache.
+ * </p>
+ * 
+ * <p>
+ * A category with more media than the configured page size is split into page folders (by 
+ * initial letter or by fixed-size pages); each page is a range of the display order.
+ * </p>
+ */
+public class CategoryMediaFolder extends MaterializedFolder
+{
+	/**
+	 * The table the media entries are interned in.
+	 **/
+	private final IReadableMediaEntryTable _entryTable;
+
+	/**
+	 * The media entries of this category.
+	 **/
+	private final CategoryEntries _entries;
+
+	/**
+	 * The order the media entries are sorted in.
+	 **/
+	private final ESortOrder _sortOrder;
+
+	/**
+	 * Initializes a new instance of CategoryMediaFolder.
+	 * 
+	 * @param name       The name of the category.
+	 * @param entryTable The table the media entries are interned in.
+	 * @param entries    The media entries of the category.
+	 * @param sortOrder  The order the media entries are sorted in.
+	 */
+	public CategoryMediaFolder(String name, IReadableMediaEntryTable entryTable, CategoryEntries entries, ESortOrder sortOrder)
+	{
+		super(name);
+
+		_entryTable = entryTable;
+		_entries = entries;
+		_sortOrder = sortOrder;
+	}
+
+	/**
+	 * Create the media resources of this category.
+	 */
+	@Override
+	protected void materializeChildren()
+	{
+		// Sort all entries for this category (the order is kept for later browses).
+		int[] displayOrder = _entries.getDisplayOrder(_entryTable, MediaEntryComparator.get(_sortOrder));
+
+		ICcmlConfiguration configuration = CcmlConfiguration.getInstance();
+		int pageSize = configuration.getFolderPageSize();
+		if (pageSize > 0 && displayOrder.length > pageSize && configuration.getFolderPagingMode() == EPagingMode.ALPHABETICAL)
+		{
+			if (addLetterPages(displayOrder, pageSize) == true)
+			{
+				return;
+			}
+		}
+
+		CategoryPageFolder.addRange(this, _entryTable, displayOrder, 0, displayOrder.length, pageSize);
+	}
+
+	/**
+	 * Add a page folder for each initial letter of the provided media entries.
+	 * 
+	 * @param displayOrder The media entry identifiers in display order.
+	 * @param pageSize     The maximum number of media in a page.
+	 * @return             True, if pages were added; false if all entries share an initial letter.
+	 */
+	boolean addLetterPages(int[] displayOrder, int pageSize)
+	{
+		// Find the runs of each initial letter. Sorted entries of a letter are next to each other, 
+		// except for '#' (entries may sort both before and after the letters).
+		Map<String, List<int[]>> runs = new LinkedHashMap<String, List<int[]>>();
+		int runStart = 0;
+		String runLetter = null;
+		for(int index = 0; index <= displayOrder.length; index++)
+		{
+			String letter = (index < displayOrder.length ? getInitialLetter(_entryTable.get(displayOrder[index])) : null);
+			if (runLetter != null && runLetter.equals(letter) == false)
+			{
+				List<int[]> letterRuns = runs.get(runLetter);
+				if (letterRuns == null)
+				{
+					letterRuns = new ArrayList<int[]>(1);
+					runs.put(runLetter, letterRuns);
+				}
+				letterRuns.add(new int[] { runStart, index });
+				runStart = index;
+			}
+			runLetter = letter;
+		}
+
+		if (runs.size() < 2)
+		{
+			return false;
+		}
+
+		for(Entry<String, List<int[]>> letterRuns : runs.entrySet())
+		{
+			List<int[]> ranges = letterRuns.getValue();
+			if (ranges.size() == 1)
+			{
+				int[] range = ranges.get(0);
+				addChild(new CategoryPageFolder(letterRuns.getKey(), _entryTable, displayOrder, range[0], range[1], pageSize));
+				continue;
+			}
+
+			// Separated runs; join their identifiers.
+			int count = 0;
+			for(int[] range : ranges)
+			{
+				count += range[1] - range[0];
+			}
+
+			int[] ids = new int[count];
+			int offset = 0;
+			for(int[] range : ranges)
+			{
+				System.arraycopy(displayOrder, range[0], ids, offset, range[1] - range[0]);
+				offset += range[1] - range[0];
+			}
+
+			addChild(new CategoryPageFolder(letterRuns.getKey(), _entryTable, ids, 0, ids.length, pageSize));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Return the initial letter of a media entry's name.
+	 * 
+	 * @param entry The media entry.
+	 * @return      The (upper case) letter from A to Z, ignoring accents; '#' for anything else.
+	 */
+	private static String getInitialLetter(MediaEntry entry)
+	{
+		String name = entry.getName();
+		if (name.isEmpty() == false)
+		{
+			char letter = Character.toUpperCase(Normalizer.normalize(name.substring(0, 1), Normalizer.Form.NFD).charAt(0));
+			if (letter >= 'A' && letter <= 'Z')
+			{
+				return String.valueOf(letter);
+			}
+		}
+
+		return "#"; //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,120 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaEntryTable;
+import net.pms.dlna.virtual.VirtualFolder;
+
+/**
+ * A virtual folder for a page of an oversized category.
+ * 
+ * <p>
+ * A page references a range of a category's display order; no identifiers or resources are
+ * copied. The resources of the page are only created the first time a renderer browses into it.
+ * A page with too many media is split further into fixed-size pages.
+ * </p>
+ */
+public class CategoryPageFolder extends MaterializedFolder
+{
+	/**
+	 * The table the media entries are interned in.
+	 **/
+	private final IReadableMediaEntryTable _entryTable;
+
+	/**
+	 * The media entry identifiers (in display order) the page is a range of.
+	 **/
+	private final int[] _ids;
+
+	/**
+	 * The index of the first identifier of this page.
+	 **/
+	private final int _start;
+
+	/**
+	 * The index after the last identifier of this page.
+	 **/
+	private final int _end;
+
+	/**
+	 * The maximum number of media in a page.
+	 **/
+	private final int _pageSize;
+
+	/**
+	 * Initializes a new instance of CategoryPageFolder.
+	 * 
+	 * @param name       The name of this page.
+	 * @param entryTable The table the media entries are interned in.
+	 * @param ids        The media entry identifiers (in display order) the page is a range of.
+	 * @param start      The index of the first identifier of this page.
+	 * @param end        The index after the last identifier of this page.
+	 * @param pageSize   The maximum number of media in a page.
+	 */
+	public CategoryPageFolder(String name, IReadableMediaEntryTable entryTable, int[] ids, int start, int end, int pageSize)
+	{
+		super(name);
+
+		_entryTable = entryTable;
+		_ids = ids;
+		_start = start;
+		_end = end;
+		_pageSize = pageSize;
+	}
+
+	/**
+	 * Create the media resources (or pages) of this page.
+	 */
+	@Override
+	protected void materializeChildren()
+	{
+		addRange(this, _entryTable, _ids, _start, _end, _pageSize);
+	}
+
+	/**
+	 * Add a range of media entries to the provided folder.
+	 * 
+	 * <p>
+	 * If the range has more media than fit a page, fixed-size pages (named by their position) are
+	 * added instead of the resources. If there would be more pages than fit a page, each page
+	 * holds pages itself.
+	 * </p>
+	 * 
+	 * @param virtualFolder The virtual folder.
+	 * @param entryTable    The table the media entries are interned in.
+	 * @param ids           The media entry identifiers (in display order).
+	 * @param start         The index of the first identifier of the range.
+	 * @param end           The index after the last identifier of the range.
+	 * @param pageSize      The maximum number of media in a page; zero (0) if unbounded.
+	 */
+	public static void addRange(VirtualFolder virtualFolder, IReadableMediaEntryTable entryTable, int[] ids, int start, int end, int pageSize)
+	{
+		if (pageSize > 0 && end - start > pageSize)
+		{
+			// Too many pages as well? Use pages of pages.
+			long span = pageSize;
+			while ((end - start - 1) / span + 1 > pageSize)
+			{
+				span *= pageSize;
+			}
+
+			for(int pageStart = start; pageStart < end; pageStart += (int) Math.min(span, end - pageStart))
+			{
+				int pageEnd = (int) Math.min(end, pageStart + span);
+				String name = (pageStart - start + 1) + "-" + (pageEnd - start); //$NON-NLS-1$
+				virtualFolder.addChild(new CategoryPageFolder(name, entryTable, ids, pageStart, pageEnd, pageSize));
+			}
+
+			return;
+		}
+
+		for(int index = start; index < end; index++)
+		{
+			virtualFolder.addChild(entryTable.get(ids[index]).createResource());
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+
+/**
+ * A virtual folder for the categories of a category type.
+ * 
+ * <p>
+ * The category folders are only created the first time a renderer browses into this folder (and
+ * again after the folder has been evicted from the materialized folder cache).
+ * </p>
+ */
+public class CategoryTypeFolder extends MaterializedFolder
+{
+	/**
+	 * The category type snapshot.
+	 **/
+	private final ImmutableMediaCategoryType _categoryType;
+
+	/**
+	 * Initializes a new instance of CategoryTypeFolder.
+	 * 
+	 * @param categoryType The category type snapshot.
+	 */
+	public CategoryTypeFolder(ImmutableMediaCategoryType categoryType)
+	{
+		super(categoryType.getCategoryTypeName());
+
+		_categoryType = categoryType;
+	}
+
+	/**
+	 * Create the category folders of this category type.
+	 */
+	@Override
+	protected void materializeChildren()
+	{
+		_categoryType.addCategoryFolders(this);
+	}
+
+	/**
+	 * Stand in for a folder built from a newer library snapshot if it is built from the same 
+	 * category type snapshot.
+	 * 
+	 * @param folder The folder built from the newer library snapshot.
+	 * @return       True, if this folder stands in for the provided folder; false otherwise.
+	 */
+	@Override
+	protected boolean update(MaterializedFolder folder)
+	{
+		return (folder instanceof CategoryTypeFolder && ((CategoryTypeFolder) folder)._categoryType == _categoryType);
+	}
+}
@@ -14,11 +14,16 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import me.jdknight.ums.ccml.core.enumerators.EPagingMode;
+import me.jdknight.ums.ccml.core.enumerators.ESortOrder;
 import me.jdknight.ums.ccml.core.interfaces.ICcmlConfiguration;
 import me.jdknight.ums.ccml.util.ByteOrderMarkHelper;
 import net.pms.PMS;
@@ -53,6 +58,57 @@ public class CcmlConfiguration implements ICcmlConfiguration
 	 **/
 	private final static String CCML_CONFIGURATION_KEY_HIDE_PARSING_BUILDING_NOTIFICATION = "hide_parsing_building_notification"; //$NON-NLS-1$
 	
+	/**
+	 * Configuration key - number of threads used to crawl shared folders.
+	 **/
+	private final static String CCML_CONFIGURATION_KEY_CRAWLER_THREAD_COUNT = "crawler_thread_count"; //$NON-NLS-1$
+	
+	/**
+	 * Configuration key - interval, in seconds, between checks of shared folders for changes.
+	 **/
+	private final static String CCML_CONFIGURATION_KEY_WATCH_INTERVAL = "watch_interval"; //$NON-NLS-1$
+	
+	/**
+	 * Configuration key - maximum number of meta files checked for in place edits in a single check for changes.
+	 **/
+	private final static String CCML_CONFIGURATION_KEY_WATCH_META_FILE_CHECKS = "watch_meta_file_checks"; //$NON-NLS-1$
+	
+	/**
+	 * Configuration key - default order media of categories are sorted in.
+	 **/
+	private final static String CCML_CONFIGURATION_KEY_SORT_ORDER = "sort_order"; //$NON-NLS-1$
+	
+	/**
+	 * Configuration key prefix - order media of a category type's categories are sorted in.
+	 **/
+	private final static String CCML_CONFIGURATION_KEY_SORT_ORDER_PREFIX = "sort_order."; //$NON-NLS-1$
+	
+	/**
+	 * Configuration key - maximum number of children kept by materialized library folders.
+	 **/
+	private final static String CCML_CONFIGURATION_KEY_FOLDER_CACHE_SIZE = "folder_cache_size"; //$NON-NLS-1$
+	
+	/**
+	 * Configuration key - maximum number of media shown in a category folder before it is split into pages.
+	 **/
+	private final static String CCML_CONFIGURATION_KEY_FOLDER_PAGE_SIZE = "folder_page_size"; //$NON-NLS-1$
+	
+	/**
+	 * Configuration key - how oversized category folders are split into pages.
+	 **/
+	private final static String CCML_CONFIGURATION_KEY_FOLDER_PAGING = "folder_paging"; //$NON-NLS-1$
+	
+	/**
+	 * Default maximum number of media shown in a category folder before it is split into pages.
+	 **/
+	private final static int DEFAULT_FOLDER_PAGE_SIZE = 500;
+	
+	/**
+	 * Default interval, in seconds, between checks of shared folders for changes (disabled; each
+	 * check reads the state of every shared directory, which is costly on large or remote shares).
+	 **/
+	private final static int DEFAULT_WATCH_INTERVAL = 0;
+	
 	/**
 	 * Logger.
 	 **/
@@ -73,6 +129,46 @@ public class CcmlConfiguration implements ICcmlConfiguration
 	 **/
 	private boolean _isHideParsingBuildingNotification;
 	
+	/**
+	 * The configured number of crawler threads; zero (0) if automatically determined.
+	 **/
+	private int _crawlerThreadCount;
+	
+	/**
+	 * The interval, in seconds, between checks of shared folders for changes; zero (0) if disabled.
+	 **/
+	private int _watchInterval = DEFAULT_WATCH_INTERVAL;
+	
+	/**
+	 * The maximum number of meta files checked for in place edits in a single check for changes; zero (0) if all are checked.
+	 **/
+	private int _watchMetaFileChecks = LibraryWatcher.DEFAULT_META_FILE_CHECKS_PER_POLL;
+	
+	/**
+	 * The default order media of categories are sorted in.
+	 **/
+	private ESortOrder _sortOrder = ESortOrder.NATURAL;
+	
+	/**
+	 * The orders media of categories are sorted in, by category type name (read by crawler threads).
+	 **/
+	private final Map<String, ESortOrder> _categoryTypeSortOrders = new ConcurrentHashMap<String, ESortOrder>();
+	
+	/**
+	 * The maximum number of children kept by materialized library folders; zero (0) if unbounded.
+	 **/
+	private int _folderCacheSize = MaterializedFolderCache.DEFAULT_CAPACITY;
+	
+	/**
+	 * The maximum number of media shown in a category folder before it is split into pages; zero (0) if never split.
+	 **/
+	private int _folderPageSize = DEFAULT_FOLDER_PAGE_SIZE;
+	
+	/**
+	 * How oversized category folders are split into pages.
+	 **/
+	private EPagingMode _folderPagingMode = EPagingMode.ALPHABETICAL;
+	
 	/**
 	 * Configuration instance.
 	 **/
@@ -248,6 +344,119 @@ public class CcmlConfiguration implements ICcmlConfiguration
 		_alternativeMetaFolder = properties.getProperty(CCML_CONFIGURATION_KEY_ALTERNATIVE_MEDIA_FOLDER);
 		String sRaw = properties.getProperty(CCML_CONFIGURATION_KEY_HIDE_PARSING_BUILDING_NOTIFICATION);
 		_isHideParsingBuildingNotification = Boolean.parseBoolean(sRaw);
+		
+		String rawCrawlerThreadCount = properties.getProperty(CCML_CONFIGURATION_KEY_CRAWLER_THREAD_COUNT);
+		if (rawCrawlerThreadCount != null)
+		{
+			try
+			{
+				_crawlerThreadCount = Math.max(0, Integer.parseInt(rawCrawlerThreadCount.trim()));
+			}
+			catch(NumberFormatException e)
+			{
+				_logger.warn("[CCML] Ignoring crawler thread count as it is not a valid number."); //$NON-NLS-1$
+			}
+		}
+		
+		String rawWatchInterval = properties.getProperty(CCML_CONFIGURATION_KEY_WATCH_INTERVAL);
+		if (rawWatchInterval != null)
+		{
+			try
+			{
+				_watchInterval = Math.max(0, Integer.parseInt(rawWatchInterval.trim()));
+			}
+			catch(NumberFormatException e)
+			{
+				_logger.warn("[CCML] Ignoring watch interval as it is not a valid number."); //$NON-NLS-1$
+			}
+		}
+		
+		String rawWatchMetaFileChecks = properties.getProperty(CCML_CONFIGURATION_KEY_WATCH_META_FILE_CHECKS);
+		if (rawWatchMetaFileChecks != null)
+		{
+			try
+			{
+				_watchMetaFileChecks = Math.max(0, Integer.parseInt(rawWatchMetaFileChecks.trim()));
+			}
+			catch(NumberFormatException e)
+			{
+				_logger.warn("[CCML] Ignoring watch meta file checks as it is not a valid number."); //$NON-NLS-1$
+			}
+		}
+		
+		String rawFolderCacheSize = properties.getProperty(CCML_CONFIGURATION_KEY_FOLDER_CACHE_SIZE);
+		if (rawFolderCacheSize != null)
+		{
+			try
+			{
+				_folderCacheSize = Math.max(0, Integer.parseInt(rawFolderCacheSize.trim()));
+			}
+			catch(NumberFormatException e)
+			{
+				_logger.warn("[CCML] Ignoring folder cache size as it is not a valid number."); //$NON-NLS-1$
+			}
+		}
+		
+		String rawFolderPageSize = properties.getProperty(CCML_CONFIGURATION_KEY_FOLDER_PAGE_SIZE);
+		if (rawFolderPageSize != null)
+		{
+			try
+			{
+				int folderPageSize = Math.max(0, Integer.parseInt(rawFolderPageSize.trim()));
+				_folderPageSize = (folderPageSize == 1 ? 2 : folderPageSize);
+			}
+			catch(NumberFormatException e)
+			{
+				_logger.warn("[CCML] Ignoring folder page size as it is not a valid number."); //$NON-NLS-1$
+			}
+		}
+		
+		String rawFolderPaging = properties.getProperty(CCML_CONFIGURATION_KEY_FOLDER_PAGING);
+		if (rawFolderPaging != null)
+		{
+			EPagingMode pagingMode = EPagingMode.get(rawFolderPaging);
+			if (pagingMode != null)
+			{
+				_folderPagingMode = pagingMode;
+			}
+			else
+			{
+				_logger.warn("[CCML] Ignoring folder paging as it is not a known mode: " + rawFolderPaging); //$NON-NLS-1$
+			}
+		}
+		
+		String rawSortOrder = properties.getProperty(CCML_CONFIGURATION_KEY_SORT_ORDER);
+		if (rawSortOrder != null)
+		{
+			ESortOrder sortOrder = ESortOrder.get(rawSortOrder);
+			if (sortOrder != null)
+			{
+				_sortOrder = sortOrder;
+			}
+			else
+			{
+				_logger.warn("[CCML] Ignoring sort order as it is not a known order: " + rawSortOrder); //$NON-NLS-1$
+			}
+		}
+		
+		for(String key : properties.stringPropertyNames())
+		{
+			if (key.startsWith(CCML_CONFIGURATION_KEY_SORT_ORDER_PREFIX) == false)
+			{
+				continue;
+			}
+			
+			String categoryTypeName = key.substring(CCML_CONFIGURATION_KEY_SORT_ORDER_PREFIX.length());
+			ESortOrder sortOrder = ESortOrder.get(properties.getProperty(key));
+			if (categoryTypeName.isEmpty() == false && sortOrder != null)
+			{
+				_categoryTypeSortOrders.put(categoryTypeName, sortOrder);
+			}
+			else
+			{
+				_logger.warn("[CCML] Ignoring sort order as it is not a known order: " + key); //$NON-NLS-1$
+			}
+		}
 	}
 	
 	/**
@@ -347,6 +556,17 @@ public class CcmlConfiguration implements ICcmlConfiguration
 			properties.setProperty(CCML_CONFIGURATION_KEY_ALTERNATIVE_MEDIA_FOLDER, _alternativeMetaFolder);
 		}
 		properties.setProperty(CCML_CONFIGURATION_KEY_HIDE_PARSING_BUILDING_NOTIFICATION, String.valueOf(_isHideParsingBuildingNotification));
+		properties.setProperty(CCML_CONFIGURATION_KEY_CRAWLER_THREAD_COUNT, String.valueOf(_crawlerThreadCount));
+		properties.setProperty(CCML_CONFIGURATION_KEY_WATCH_INTERVAL, String.valueOf(_watchInterval));
+		properties.setProperty(CCML_CONFIGURATION_KEY_WATCH_META_FILE_CHECKS, String.valueOf(_watchMetaFileChecks));
+		properties.setProperty(CCML_CONFIGURATION_KEY_FOLDER_CACHE_SIZE, String.valueOf(_folderCacheSize));
+		properties.setProperty(CCML_CONFIGURATION_KEY_FOLDER_PAGE_SIZE, String.valueOf(_folderPageSize));
+		properties.setProperty(CCML_CONFIGURATION_KEY_FOLDER_PAGING, _folderPagingMode.getConfigurationName());
+		properties.setProperty(CCML_CONFIGURATION_KEY_SORT_ORDER, _sortOrder.getConfigurationName());
+		for(Entry<String, ESortOrder> categoryTypeSortOrder : _categoryTypeSortOrders.entrySet())
+		{
+			properties.setProperty(CCML_CONFIGURATION_KEY_SORT_ORDER_PREFIX + categoryTypeSortOrder.getKey(), categoryTypeSortOrder.getValue().getConfigurationName());
+		}
 	}
 	
 	/**
@@ -411,6 +631,238 @@ public class CcmlConfiguration implements ICcmlConfiguration
 	{
 		_isHideParsingBuildingNotification = shouldNotify;
 	}
+
+	/**
+	 * Return the number of threads used to crawl shared folders for meta information.
+	 * 
+	 * <p>
+	 * If no thread count has been configured, the number of available processors is used.
+	 * </p>
+	 * 
+	 * @return The number of crawler threads; always at least one (1).
+	 */
+	@Override
+	public int getCrawlerThreadCount()
+	{
+		if (_crawlerThreadCount > 0)
+		{
+			return _crawlerThreadCount;
+		}
+		
+		return Math.max(1, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Set the number of threads used to crawl shared folders for meta information.
+	 * 
+	 * @param threadCount The number of crawler threads; zero (0) to automatically determine the count.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided thread count is negative.
+	 */
+	@Override
+	public void setCrawlerThreadCount(int threadCount) throws IllegalArgumentException
+	{
+		if (threadCount < 0)
+		{
+			throw new IllegalArgumentException("A non-negative thread count must be provided."); //$NON-NLS-1$
+		}
+		
+		_crawlerThreadCount = threadCount;
+	}
+	
+	/**
+	 * Return the interval between checks of shared folders for changes.
+	 * 
+	 * @return The interval, in seconds; zero (0) if shared folders are not checked for changes.
+	 */
+	@Override
+	public int getWatchInterval()
+	{
+		return _watchInterval;
+	}
+	
+	/**
+	 * Set the interval between checks of shared folders for changes.
+	 * 
+	 * @param interval The interval, in seconds; zero (0) to disable checking for changes.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided interval is negative.
+	 */
+	@Override
+	public void setWatchInterval(int interval) throws IllegalArgumentException
+	{
+		if (interval < 0)
+		{
+			throw new IllegalArgumentException("A non-negative watch interval must be provided."); //$NON-NLS-1$
+		}
+		
+		_watchInterval = interval;
+	}
+	
+	/**
+	 * Return the maximum number of meta files checked for in place edits in a single check for changes.
+	 * 
+	 * @return The number of meta files; zero (0) if every meta file is checked.
+	 */
+	@Override
+	public int getWatchMetaFileChecks()
+	{
+		return _watchMetaFileChecks;
+	}
+	
+	/**
+	 * Set the maximum number of meta files checked for in place edits in a single check for changes.
+	 * 
+	 * @param count The number of meta files; zero (0) to check every meta file.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided count is negative.
+	 */
+	@Override
+	public void setWatchMetaFileChecks(int count) throws IllegalArgumentException
+	{
+		if (count < 0)
+		{
+			throw new IllegalArgumentException("A non-negative meta file check count must be provided."); //$NON-NLS-1$
+		}
+		
+		_watchMetaFileChecks = count;
+	}
+	
+	/**
+	 * Return the order the media of a category type's categories are sorted in.
+	 * 
+	 * @param categoryTypeName The name of the category type.
+	 * @return                 The sort order configured for the category type; the default sort order
+	 *                         if none is configured.
+	 */
+	@Override
+	public ESortOrder getSortOrder(String categoryTypeName)
+	{
+		ESortOrder sortOrder = (categoryTypeName != null ? _categoryTypeSortOrders.get(categoryTypeName) : null);
+		if (sortOrder != null)
+		{
+			return sortOrder;
+		}
+		
+		return _sortOrder;
+	}
+	
+	/**
+	 * Set the order the media of a category type's categories are sorted in.
+	 * 
+	 * @param categoryTypeName The name of the category type; null to set the default sort order.
+	 * @param sortOrder        The sort order; null to use the default sort order for the category type.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the default sort order is set to null.
+	 */
+	@Override
+	public void setSortOrder(String categoryTypeName, ESortOrder sortOrder) throws IllegalArgumentException
+	{
+		if (categoryTypeName == null)
+		{
+			if (sortOrder == null)
+			{
+				throw new IllegalArgumentException("A default sort order must be provided."); //$NON-NLS-1$
+			}
+			
+			_sortOrder = sortOrder;
+		}
+		else if (sortOrder == null)
+		{
+			_categoryTypeSortOrders.remove(categoryTypeName);
+		}
+		else
+		{
+			_categoryTypeSortOrders.put(categoryTypeName, sortOrder);
+		}
+	}
+	
+	/**
+	 * Return the maximum number of children kept by materialized library folders.
+	 * 
+	 * @return The folder cache size; zero (0) if unbounded.
+	 */
+	@Override
+	public int getFolderCacheSize()
+	{
+		return _folderCacheSize;
+	}
+	
+	/**
+	 * Set the maximum number of children kept by materialized library folders.
+	 * 
+	 * @param size The folder cache size; zero (0) if unbounded.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided size is negative.
+	 */
+	@Override
+	public void setFolderCacheSize(int size) throws IllegalArgumentException
+	{
+		if (size < 0)
+		{
+			throw new IllegalArgumentException("A non-negative folder cache size must be provided."); //$NON-NLS-1$
+		}
+		
+		_folderCacheSize = size;
+	}
+	
+	/**
+	 * Return the maximum number of media shown in a category folder before it is split into pages.
+	 * 
+	 * @return The page size; zero (0) if category folders are never split.
+	 */
+	@Override
+	public int getFolderPageSize()
+	{
+		return _folderPageSize;
+	}
+	
+	/**
+	 * Set the maximum number of media shown in a category folder before it is split into pages.
+	 * 
+	 * @param pageSize The page size; zero (0) if category folders are never split.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided page size is negative or one (1).
+	 */
+	@Override
+	public void setFolderPageSize(int pageSize) throws IllegalArgumentException
+	{
+		if (pageSize < 0 || pageSize == 1)
+		{
+			throw new IllegalArgumentException("A page size of zero or at least two must be provided."); //$NON-NLS-1$
+		}
+		
+		_folderPageSize = pageSize;
+	}
+	
+	/**
+	 * Return how oversized category folders are split into pages.
+	 * 
+	 * @return The paging mode.
+	 */
+	@Override
+	public EPagingMode getFolderPagingMode()
+	{
+		return _folderPagingMode;
+	}
+	
+	/**
+	 * Set how oversized category folders are split into pages.
+	 * 
+	 * @param pagingMode The paging mode.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided paging mode is null.
+	 */
+	@Override
+	public void setFolderPagingMode(EPagingMode pagingMode) throws IllegalArgumentException
+	{
+		if (pagingMode == null)
+		{
+			throw new IllegalArgumentException("A paging mode must be provided."); //$NON-NLS-1$
+		}
+		
+		_folderPagingMode = pagingMode;
+	}
 	
 	/**
 	 * Migrate old CCML configuration file to new location.
@@ -6,39 +6,25 @@
 
 package me.jdknight.ums.ccml.core;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.JComponent;
 
-import org.apache.commons.lang.WordUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import me.jdknight.ums.ccml.core.enumerators.EMediaType;
 import me.jdknight.ums.ccml.core.interfaces.ICustomCategoryMediaLibrary;
-import me.jdknight.ums.ccml.core.interfaces.IMediaCategoryType;
-import me.jdknight.ums.ccml.core.interfaces.IVirtualFolderMediaResources;
-import me.jdknight.ums.ccml.tmp.RealFileWithVirtualFolderThumbnails;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaLibrary;
+import me.jdknight.ums.ccml.core.interfaces.IMediaLibraryCrawler;
 import me.jdknight.ums.ccml.ui.CcmlPanel;
 import me.jdknight.ums.ccml.ui.ParsingBuildingWarningDialog;
-import me.jdknight.ums.ccml.util.ByteOrderMarkHelper;
 import net.pms.dlna.DLNAResource;
-import net.pms.dlna.virtual.VirtualFolder;
 import net.pms.external.AdditionalFolderAtRoot;
-import net.pms.formats.Format;
 
 /**
  * Root folder external listener for the media server.
@@ -56,24 +42,54 @@ public class CcmlRootFolderListener implements AdditionalFolderAtRoot
 	public final static String FOLDER_FOLDER_NAME = "folder.meta"; //$NON-NLS-1$
 
 	/**
-	 * Special category type name - master.
+	 * Time, in milliseconds, to wait for a running library update on shutdown.
 	 **/
-	final String SPECIAL_CATEGORY_TYPE_NAME_MASTER = "Master"; //$NON-NLS-1$
+	private final static long SHUTDOWN_WAIT_INTERVAL = 5000;
 
 	/**
-	 * Special category type name - filter.
+	 * The library being built and updated (only used by the library thread).
 	 **/
-	final String SPECIAL_CATEGORY_TYPE_NAME_FILTER = "Filter"; //$NON-NLS-1$
-	
+	private volatile ICustomCategoryMediaLibrary _library;
+
 	/**
-	 * The library.
+	 * The published (immutable) library snapshot; readers always see a complete version.
 	 **/
-	private ICustomCategoryMediaLibrary _library;
+	private final AtomicReference<IReadableMediaLibrary> _publishedLibrary = new AtomicReference<IReadableMediaLibrary>(new CustomCategoryMediaLibrary().snapshot());
+
+	/**
+	 * The last published snapshot of a completely loaded (or updated) library (kept as a snapshot on 
+	 * shutdown); null if the library has not finished loading.
+	 **/
+	private volatile IReadableMediaLibrary _completeLibrary;
 
 	/**
 	 * The base we generate at the root.
 	 **/
-	private VirtualFolder _baseFolder;
+	private final LibraryRootFolder _baseFolder = new LibraryRootFolder(ROOT_FOLDER_NAME, _publishedLibrary);
+
+	/**
+	 * The progress of the library being parsed.
+	 **/
+	private final LibraryStatus _status = new LibraryStatus();
+
+	/**
+	 * The watcher of shared directories for changes.
+	 **/
+	private final LibraryWatcher _watcher = new LibraryWatcher();
+
+	/**
+	 * The executor parsing, building and updating the library in the background.
+	 **/
+	private final ScheduledExecutorService _executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+	{
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "CCML-Library"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
 	
 	/** Logger. */
 	private static final Logger _logger = LoggerFactory.getLogger(CcmlRootFolderListener.class);
@@ -87,35 +103,34 @@ public class CcmlRootFolderListener implements AdditionalFolderAtRoot
 		
 		// Load configuration.
 		CcmlConfiguration.getInstance().load();
+		MaterializedFolderCache.getInstance().setCapacity(CcmlConfiguration.getInstance().getFolderCacheSize());
 	}
 	
 	/**
 	 * Initializes a new instance of CcmlRootFolderListener.
+	 * 
+	 * <p>
+	 * The library is parsed and built in the background; the media server does not wait on it.
+	 * </p>
 	 */
 	public CcmlRootFolderListener()
 	{
-		// Pre-information.
-		long startTimestamp = System.currentTimeMillis();
-		_logger.info("[CCML] Parsing library (this may take awhile)..."); //$NON-NLS-1$
-		ParsingBuildingWarningDialog dialog = null;
+		_library = new CustomCategoryMediaLibrary();
 
-		// Notify user if parsing takes awhile.
+		// Notify user while the library is being parsed.
 		if (CcmlConfiguration.getInstance().isHidingParsingBuildingNotification() == false)
 		{
-			dialog = ParsingBuildingWarningDialog.queueParsingWarning();
+			ParsingBuildingWarningDialog.queueParsingWarning(_status);
 		}
 
-		// Parse meta library.
-		_library = parseMetaLibrary();
-
-		// Post-information.
-		long endTimestamp = System.currentTimeMillis();
-		long totalOffset = endTimestamp - startTimestamp;
-		_logger.info("[CCML] Completed parsing library (" + getOffsetDisplay(totalOffset) + ")."); //$NON-NLS-1$ //$NON-NLS-2$
-		if (dialog != null)
+		_executor.execute(new Runnable()
 		{
-			dialog.terminateDialog();
-		}
+			@Override
+			public void run()
+			{
+				loadLibrary();
+			}
+		});
 	}
 
 	/**
@@ -124,7 +139,7 @@ public class CcmlRootFolderListener implements AdditionalFolderAtRoot
 	@Override
 	public JComponent config()
 	{
-		return new CcmlPanel(_library);
+		return new CcmlPanel(_publishedLibrary.get());
 	}
 
 	/**
@@ -142,503 +157,255 @@ public class CcmlRootFolderListener implements AdditionalFolderAtRoot
 	@Override
 	public void shutdown()
 	{
-		// Do nothing.
-	}
-
-	/**
-	 * Create our custom root virtual folder.
-	 * 
-	 * @return The virtual folder DLNA resource.
-	 */
-	@Override
-	public DLNAResource getChild()
-	{
-		// Already generated the base folder?
-		if (_baseFolder != null)
+		// Let any running load or update complete (scheduled updates are cancelled).
+		_executor.shutdown();
+		try
 		{
-			return _baseFolder;
+			if (_executor.awaitTermination(SHUTDOWN_WAIT_INTERVAL, TimeUnit.MILLISECONDS) == false)
+			{
+				// Taking too long; interrupt it. Interrupted work is never published, so the last
+				// complete library is kept instead.
+				_logger.info("[CCML] Interrupting library update on shutdown."); //$NON-NLS-1$
+				_executor.shutdownNow();
+			}
 		}
-
-		// Pre-information.
-		long startTimestamp = System.currentTimeMillis();
-		_logger.info("[CCML] Building virtual library (this may take awhile)..."); //$NON-NLS-1$
-		ParsingBuildingWarningDialog dialog = null;
-
-		// Notify user if parsing takes awhile.
-		if (CcmlConfiguration.getInstance().isHidingParsingBuildingNotification() == false)
+		catch (InterruptedException e)
 		{
-			dialog = ParsingBuildingWarningDialog.queueBuildingWarning();
+			_executor.shutdownNow();
+			Thread.currentThread().interrupt();
 		}
-		
-		_baseFolder = new VirtualFolder(ROOT_FOLDER_NAME, null);
-		buildBaseFolder();
 
-		// Post-information.
-		long endTimestamp = System.currentTimeMillis();
-		long totalOffset = endTimestamp - startTimestamp;
-		_logger.info("[CCML] Completed building virtual library (" + getOffsetDisplay(totalOffset) + ")."); //$NON-NLS-1$ //$NON-NLS-2$
-		if (dialog != null)
+		// Keep a snapshot of the library for the next startup (only once it has finished loading).
+		IReadableMediaLibrary completeLibrary = _completeLibrary;
+		if (completeLibrary != null)
 		{
-			dialog.terminateDialog();
+			LibrarySnapshot.save(completeLibrary);
 		}
-		
-		return _baseFolder;
 	}
-	
+
 	/**
-	 * Parse the meta library for categorizations.
+	 * Return our custom root virtual folder.
+	 * 
+	 * <p>
+	 * The folder is returned immediately; its contents are published as the library is parsed.
+	 * </p>
+	 * 
+	 * @return The virtual folder DLNA resource.
 	 */
-	private ICustomCategoryMediaLibrary parseMetaLibrary()
+	@Override
+	public DLNAResource getChild()
 	{
-		// Compile a list of shared directories to scan.
-		File[] sharedDirectories = LazyCompatibility.getSharedDirectories();
-		if (sharedDirectories == null || sharedDirectories.length == 0)
-		{
-			sharedDirectories = File.listRoots();
-		}
-
-		// Create library.
-		ICustomCategoryMediaLibrary library = new CustomCategoryMediaLibrary();
-		if (sharedDirectories != null && sharedDirectories.length > 0)
-		{
-			for(File sourceDirectory : sharedDirectories)
-			{
-				if (sourceDirectory.isDirectory() == true)
-				{
-					buildMediaLibrary(library, sourceDirectory);
-				}
-			}
-		}
-		
-		return library;
+		return _baseFolder;
 	}
-	
+
 	/**
-	 * Build the contents of the base folder.
+	 * Return the progress of the library being parsed.
+	 * 
+	 * @return The library status.
 	 */
-	private void buildBaseFolder()
+	public LibraryStatus getStatus()
 	{
-		assert(_library != null);
-
-		// Count how many base sections that we are using.
-		// 
-		// If the count is only one (1), prevent building a base section for 
-		// the single media type we are using.
-		int usedSectionsCount = 0;
-		EMediaType[] mediaTypes = EMediaType.values();
-		for(EMediaType mediaType : mediaTypes)
-		{
-			if (mediaType == EMediaType.UNKNOWN)
-			{
-				continue;
-			}
-			
-			if (_library.hasContent(mediaType) == true)
-			{
-				usedSectionsCount++;
-			}
-		}
-
-		// Create section(s).
-		for(EMediaType mediaType : mediaTypes)
-		{
-			if (mediaType == EMediaType.UNKNOWN)
-			{
-				continue;
-			}
-
-			if (_library.hasContent(mediaType) == true)
-			{
-				VirtualFolder section;
-				if (usedSectionsCount > 1)
-				{
-					section = new VirtualFolder(mediaType.getDisplayName(), null);
-					_baseFolder.addChild(section);
-				}
-				else
-				{
-					section = _baseFolder;
-				}
-				
-				_library.buildVirtualFolder(mediaType, section);
-			}
-		}
+		return _status;
 	}
-	
+
 	/**
-	 * Build the media library on the provided library based off the provided base directory. 
+	 * Load the library.
 	 * 
-	 * @param library   The library to add to.
-	 * @param directory The directory to scan.
+	 * <p>
+	 * If a snapshot of the last library is available, it is published right away and the shared 
+	 * directories are parsed again to check for changes; the refreshed library is published once 
+	 * complete. Otherwise, the library is published progressively as each shared directory has 
+	 * been parsed.
+	 * </p>
 	 */
-	private void buildMediaLibrary(ICustomCategoryMediaLibrary library, File directory)
+	private void loadLibrary()
 	{
-		assert(directory.isDirectory() == true);
-
-		File[] directoryChildren = directory.listFiles();
-		if (directoryChildren != null)
+		ICustomCategoryMediaLibrary snapshot = LibrarySnapshot.load();
+		if (snapshot != null)
 		{
-			for(File child : directoryChildren)
-			{
-				if (child.isFile() == true)
-				{
-					// Find if this file is a supported media type.
-					RealFileWithVirtualFolderThumbnails mediaResource = new RealFileWithVirtualFolderThumbnails(child);
-	
-					Format mediaFormat = LazyCompatibility.getAssociatedExtension(child.getPath());
-					EMediaType mediaType = EMediaType.get(mediaFormat);
-					
-					// Ignore unsupported media types.
-					if (mediaType == EMediaType.UNKNOWN)
-					{
-						continue;
-					}
-	
-					// Check if a meta file exists.
-					String metaFilePath = mediaResource.getFile().getPath() + ".meta"; //$NON-NLS-1$
-					File metaFile = new File(metaFilePath);
-					
-					// No meta file? Check the alternative folder (if any is provided).
-					if (metaFile.isFile() == false)
-					{
-						String alternativeFolderPath = CcmlConfiguration.getInstance().getAlternativeMetaFolder();
-						if (alternativeFolderPath != null)
-						{
-							File alternativeFolder = new File(alternativeFolderPath);
-							if (alternativeFolder.isDirectory() == true)
-							{
-								String originalFileName = metaFile.getName();
-								metaFile = new File(alternativeFolder, originalFileName);
-							}
-						}
-						
-					}
-
-					// Still no meta file? Ignore.
-					if (metaFile.isFile() == false)
-					{
-						continue;
-					}
-	
-					_logger.trace("[CCML] Parsing meta file: " + metaFile); //$NON-NLS-1$
-					
-					Map<String, List<String>> mapOfCategories = parseMetaFile(metaFile);
-					if (mapOfCategories == null)
-					{
-						continue;
-					}
-	
-					// Attempt to find this meta file's master reference(s).
-					String[] masterSections = stripSpecialValues(mapOfCategories, metaFile, SPECIAL_CATEGORY_TYPE_NAME_MASTER);
-					
-					// Strip out any filter entries; they are not used on single meta file.
-					stripSpecialValues(mapOfCategories, metaFile, SPECIAL_CATEGORY_TYPE_NAME_FILTER);
-					
-					// Add resources to a respective media category type.
-					Set<Entry<String, List<String>>> categorySet = mapOfCategories.entrySet();
-					if (categorySet.isEmpty() == false)
-					{
-						for(String masterSection : masterSections)
-						{
-							for(Entry<String, List<String>> categoryReference : categorySet)
-							{
-								// Find/create category.
-								String categoryName = categoryReference.getKey();
-								IMediaCategoryType category = library.acquireCategoryType(mediaType, masterSection, categoryName);
-		
-								// Add resource to it.
-								List<String> categoryValues = categoryReference.getValue();
-								for(String categoryValue : categoryValues)
-								{
-									category.addResource(new RealFileWithVirtualFolderThumbnails(mediaResource), categoryValue);
-		
-									_logger.trace("[CCML] Adding resource to category a '" + categoryName + "' with a value of '" + categoryValue + "'" + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-											( masterSection != null ? " (Master: " + masterSection + ")" : "" ) + ": " + metaFile); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-								}
-							}
-						}
-					}
-					else
-					{
-						_logger.warn("[CCML] The following meta file does not have any defined categories: " + metaFile); //$NON-NLS-1$
-					}
-				}
-				else
-				{
-					// Recursive - scan folder for more resources.
-					buildMediaLibrary(library, child);
-				}
-			}
+			_logger.info("[CCML] Loaded library snapshot; checking for changes in the background."); //$NON-NLS-1$
+			publishLibrary(snapshot, true);
+			_status.ready();
 		}
 
-		// We will check if this folder has a meta file for its contents.
-		//
-		// Check if a folder meta file exists.
-		File folderMetaFile = new File(directory, FOLDER_FOLDER_NAME);
-		
-		// No meta file? Ignore.
-		if (folderMetaFile.isFile() == false)
+		// Pre-information.
+		long startTimestamp = System.currentTimeMillis();
+		_logger.info("[CCML] Parsing library (this may take awhile)..."); //$NON-NLS-1$
+
+		// Parse meta library.
+		ICustomCategoryMediaLibrary library = parseMetaLibrary(snapshot == null);
+		if (Thread.currentThread().isInterrupted() == true)
 		{
 			return;
 		}
-		
-		_logger.trace("[CCML] Parsing folder meta file: " + folderMetaFile); //$NON-NLS-1$
-		
-		Map<String, List<String>> mapOfCategories = parseMetaFile(folderMetaFile);
-		if (mapOfCategories == null)
+
+		publishLibrary(library, true);
+		if (snapshot == null)
 		{
-			return;
+			_status.ready();
 		}
 
-		// Attempt to find this meta file's master reference(s).
-		String[] masterSections = stripSpecialValues(mapOfCategories, folderMetaFile, SPECIAL_CATEGORY_TYPE_NAME_MASTER);
-
-		// Find if this meta file is specific to any media types.
-		String[] filterValues = stripSpecialValues(mapOfCategories, folderMetaFile, SPECIAL_CATEGORY_TYPE_NAME_FILTER);
+		// Post-information.
+		long endTimestamp = System.currentTimeMillis();
+		long totalOffset = endTimestamp - startTimestamp;
+		_logger.info("[CCML] Completed parsing library (" + getOffsetDisplay(totalOffset) + ")."); //$NON-NLS-1$ //$NON-NLS-2$
 
-		boolean isFirstFilterAdded = false;
-		EnumSet<EMediaType> mediaTypeFilter = EnumSet.allOf(EMediaType.class);
-		for(String filterValue : filterValues)
+		// Keep the library up to date; the parsed directories are watched for changes.
+		int watchInterval = CcmlConfiguration.getInstance().getWatchInterval();
+		if (watchInterval > 0)
 		{
-			if (filterValue != null)
+			_executor.scheduleWithFixedDelay(new Runnable()
 			{
-				EMediaType[] mediaTypes = EMediaType.values();
-				for(EMediaType mediaType : mediaTypes)
+				@Override
+				public void run()
 				{
-					if (mediaType.getEnglishName().equalsIgnoreCase(filterValue) == true || mediaType.getDisplayName().equalsIgnoreCase(filterValue) == true)
-					{
-						// If we have actual content to filter, start fresh.
-						if (isFirstFilterAdded == false)
-						{
-							mediaTypeFilter = EnumSet.noneOf(EMediaType.class);
-							isFirstFilterAdded = true;
-						}
-						
-						mediaTypeFilter.add(mediaType);
-						break;
-					}
+					updateLibrary();
 				}
-			}
+			}, watchInterval, watchInterval, TimeUnit.SECONDS);
 		}
+	}
 
-		// Compile a list of media resources for this folder.
-		IVirtualFolderMediaResources mediaResourcePoint = getVirtualFolderForDirectoryMedia(directory);
-		DLNAResource resource = mediaResourcePoint.getVirtualFolder();
-
-		// Add resources to a respective media category type.
-		Set<Entry<String, List<String>>> categorySet = mapOfCategories.entrySet();
-		if (categorySet.isEmpty() == false)
+	/**
+	 * Apply any changes found in the shared directories to the library.
+	 * 
+	 * <p>
+	 * Only directories which have changed since they were last crawled are listed again and only 
+	 * meta files which have changed are parsed again. If too many changes are found, the library 
+	 * is parsed again.
+	 * </p>
+	 */
+	private void updateLibrary()
+	{
+		try
 		{
-			for(String masterSection : masterSections)
+			ICustomCategoryMediaLibrary library = _library;
+			IMediaLibraryCrawler crawler = new MediaLibraryCrawler(library, 1, null, _watcher);
+			_watcher.setMetaFileChecksPerPoll(CcmlConfiguration.getInstance().getWatchMetaFileChecks());
+			switch(_watcher.poll(library, crawler))
 			{
-				for(Entry<String, List<String>> categoryReference : categorySet)
-				{
-					EnumSet<EMediaType> mediaTypes = mediaResourcePoint.getMediaType();
-					if (mediaTypes.isEmpty() == false)
+				case UPDATED:
+					if (Thread.currentThread().isInterrupted() == false)
 					{
-						for(EMediaType mediaType : mediaTypes)
-						{
-							// This media type filtered? If so, next.
-							if (mediaTypeFilter.contains(mediaType) == false)
-							{
-								continue;
-							}
-							
-							// Find/create category.
-							String categoryName = categoryReference.getKey();
-							IMediaCategoryType category = library.acquireCategoryType(mediaType, masterSection, categoryName);
-	
-							// Add resource to it.
-							List<String> categoryValues = categoryReference.getValue();
-							for(String categoryValue : categoryValues)
-							{
-								category.addResource(resource, categoryValue);
-	
-								_logger.trace("[CCML] Adding resource to category a '" + categoryName + "' with a value of '" + categoryValue + "'" + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-										( masterSection != null ? " (Master: " + masterSection + ")" : "" ) + ": " + folderMetaFile); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-							}
-						}
+						publishLibrary(library, true);
 					}
-					else
+					break;
+	
+				case OVERFLOW:
+					library = parseMetaLibrary(false);
+					if (Thread.currentThread().isInterrupted() == false)
 					{
-						_logger.warn("[CCML] The following folder meta file does not have any content to reference: " + folderMetaFile); //$NON-NLS-1$
+						publishLibrary(library, true);
 					}
-				}
+					break;
+	
+				default:
+					break;
 			}
 		}
-		else
+		catch (RuntimeException e)
 		{
-			_logger.warn("[CCML] The following folder meta file does not have any defined categories: " + folderMetaFile); //$NON-NLS-1$
+			// Keep watching; a failed update must not cancel future updates.
+			_logger.error("[CCML] Unable to update library.", e); //$NON-NLS-1$
 		}
 	}
 
 	/**
-	 * Return a virtual folder for all media resources in the provided directory.
+	 * Publish a snapshot of a library.
 	 * 
-	 * @param directory The directory to search on.
+	 * <p>
+	 * The snapshot replaces the published snapshot in a single step; the base folder is rebuilt 
+	 * from it the next time it is browsed. Category types which have not changed are shared with 
+	 * the previous snapshot.
+	 * </p>
+	 * 
+	 * @param library    The library.
+	 * @param isComplete True, if the library is complete; false if it is still being parsed.
 	 */
-	private IVirtualFolderMediaResources getVirtualFolderForDirectoryMedia(File directory)
+	private void publishLibrary(ICustomCategoryMediaLibrary library, boolean isComplete)
 	{
-		assert(directory.isDirectory() == true);
-
-		VirtualFolder folderSection = new VirtualFolder(directory.getName(), null);
-		EnumSet<EMediaType> mediaTypes = EnumSet.noneOf(EMediaType.class);
+		_library = library;
 
-		File[] directoryChildren = directory.listFiles();
-		if (directoryChildren != null)
+		IReadableMediaLibrary snapshot = library.snapshot();
+		_publishedLibrary.set(snapshot);
+		if (isComplete == true)
 		{
-			for(File child : directoryChildren)
-			{
-				if (child.isFile() == true)
-				{
-					// Find if this file is a supported media type.
-					EMediaType mediaType = EMediaType.UNKNOWN;
-					RealFileWithVirtualFolderThumbnails mediaResource = new RealFileWithVirtualFolderThumbnails(child);
-	
-					Format mediaFormat = LazyCompatibility.getAssociatedExtension(child.getPath());
-					if (mediaFormat == null)
-					{
-						continue;
-					}
-					
-					switch(mediaFormat.getType())
-					{
-						case Format.VIDEO:
-							mediaType = EMediaType.VIDEO;
-							break;
-	
-						case Format.AUDIO:
-							mediaType = EMediaType.AUDIO;
-							break;
-	
-						case Format.IMAGE:
-							mediaType = EMediaType.IMAGE;
-							break;
-					}
-	
-					// Ignore unsupported media types.
-					if (mediaType == EMediaType.UNKNOWN)
-					{
-						continue;
-					}
-					
-					mediaTypes.add(mediaType);
-					folderSection.addChild(mediaResource);
-				}
-				else
-				{
-					IVirtualFolderMediaResources subFolderSection = getVirtualFolderForDirectoryMedia(child);
-	
-					mediaTypes.addAll(subFolderSection.getMediaType());
-					folderSection.addChild(subFolderSection.getVirtualFolder());
-				}
-			}
+			_completeLibrary = snapshot;
 		}
-		
-		return new VirtualFolderMediaResources(folderSection, mediaTypes);
 	}
 	
 	/**
-	 * Parse a meta value for category type mappings.
+	 * Parse the meta library for categorizations.
+	 * 
+	 * <p>
+	 * Shared directories are parsed one at a time (each with the configured number of crawler 
+	 * threads) so the library can be published after each one.
+	 * </p>
 	 * 
-	 * @param metaFile The meta file to parse.
-	 * @return         The map of category types to category values.
+	 * @param isProgressive True, if the library should be published after each shared directory.
+	 * @return              The library.
 	 */
-	private Map<String,List<String>> parseMetaFile(File metaFile)
+	private ICustomCategoryMediaLibrary parseMetaLibrary(boolean isProgressive)
 	{
-		BufferedReader reader = null;
-		try
+		File[] sharedDirectories = getSharedDirectories();
+
+		// Create library.
+		ICustomCategoryMediaLibrary library = new CustomCategoryMediaLibrary();
+		if (sharedDirectories != null && sharedDirectories.length > 0)
 		{
-			// Load file based on known encoding.
-			String characterEncoding = ByteOrderMarkHelper.getEncoding(metaFile);
-			if (characterEncoding != null)
+			if (isProgressive == true)
 			{
-				reader = new BufferedReader(new InputStreamReader(new FileInputStream(metaFile), characterEncoding));
-				reader.read();
+				_status.start(sharedDirectories.length);
 			}
-			else
+
+			// Meta files which have not changed since the last run are taken from the meta cache.
+			MetaFileCache metaCache = MetaFileCache.load();
+			
+			// Crawled directories are recorded so they can be checked for changes.
+			LibraryWatcher watcher = null;
+			if (CcmlConfiguration.getInstance().getWatchInterval() > 0)
 			{
-				reader = new BufferedReader(new FileReader(metaFile));
+				String alternativeMetaFolder = CcmlConfiguration.getInstance().getAlternativeMetaFolder();
+				_watcher.reset(alternativeMetaFolder != null ? new File(alternativeMetaFolder) : null);
+				watcher = _watcher;
 			}
 			
-			Map<String, List<String>> mapOfCategories = new HashMap<String, List<String>>();
-			
-			// Parse the meta file for category types to category mappings.
-			String rawCategoryDefine;
-			while ((rawCategoryDefine = reader.readLine()) != null)
+			int crawlerThreadCount = CcmlConfiguration.getInstance().getCrawlerThreadCount();
+			IMediaLibraryCrawler crawler = new MediaLibraryCrawler(library, crawlerThreadCount, metaCache, watcher);
+			for(File sharedDirectory : sharedDirectories)
 			{
-				String[] propertyAndValue = rawCategoryDefine.split("=", 2); //$NON-NLS-1$
-				if (propertyAndValue.length != 2)
+				crawler.crawl(new File[] { sharedDirectory });
+				if (Thread.currentThread().isInterrupted() == true)
 				{
-					continue;
+					return library;
 				}
 
-				String categoryName = WordUtils.capitalize(propertyAndValue[0]);
-				String categoryValue = WordUtils.capitalize(propertyAndValue[1]);
-				if (categoryName.isEmpty() == true || categoryValue.isEmpty() == true)
+				if (isProgressive == true)
 				{
-					continue;
+					publishLibrary(library, false);
+					_status.directoryParsed();
 				}
-
-				List<String> categoryValuesList = mapOfCategories.get(categoryName);
-				if (categoryValuesList == null)
-				{
-					categoryValuesList = new ArrayList<String>();
-					mapOfCategories.put(categoryName, categoryValuesList);
-				}
-				
-				categoryValuesList.add(categoryValue);
 			}
 			
-			return mapOfCategories;
-		}
-		catch (FileNotFoundException e)
-		{
-			_logger.error("[CCML] Error opening meta file: " + metaFile); //$NON-NLS-1$
-		}
-		catch (IOException e)
-		{
-			_logger.error("[CCML] Error parsing meta file: " + metaFile); //$NON-NLS-1$
-		}
-		finally
-		{
-			if (reader != null)
-			{
-				try
-				{
-					reader.close();
-				}
-				catch (IOException e)
-				{
-					// Ignore issues with closing a file.
-				}
-			}
+			metaCache.save();
 		}
 		
-		return null;
+		return library;
 	}
 	
 	/**
-	 * Extract and remove the special category type values from a map of categories.
+	 * Compile a list of shared directories to scan.
 	 * 
-	 * @param mapOfCategories         The map of categories to scan and alter if found.
-	 * @param metaFile                The meta file this map of categories was generated from.
-	 * @param specialCategoryTypeName The special category type name.
-	 * @return                        The special category type values; if no special category types are defined 
-	 *                                an array containing a single null value will be returned.
+	 * @return The shared directories.
 	 */
-	private String[] stripSpecialValues(Map<String,List<String>> mapOfCategories, File metaFile, String specialCategoryTypeName)
+	private File[] getSharedDirectories()
 	{
-		String[] specialCategories = new String[] { null };
-		List<String> masterSection = mapOfCategories.get(specialCategoryTypeName);
-		if (masterSection != null)
+		File[] sharedDirectories = LazyCompatibility.getSharedDirectories();
+		if (sharedDirectories == null || sharedDirectories.length == 0)
 		{
-			specialCategories = masterSection.toArray(new String[0]);
-			
-			mapOfCategories.remove(specialCategoryTypeName);
+			sharedDirectories = File.listRoots();
 		}
 		
-		return specialCategories;
+		return sharedDirectories;
 	}
 	
 	/**
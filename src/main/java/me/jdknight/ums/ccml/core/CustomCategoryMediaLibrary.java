@@ -6,9 +6,10 @@
 
 package me.jdknight.ums.ccml.core;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -16,6 +17,8 @@ import java.util.Set;
 import me.jdknight.ums.ccml.core.enumerators.EMediaType;
 import me.jdknight.ums.ccml.core.interfaces.ICustomCategoryMediaLibrary;
 import me.jdknight.ums.ccml.core.interfaces.IMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaLibrary;
 import me.jdknight.ums.ccml.lang.Messages;
 import net.pms.dlna.virtual.VirtualFolder;
 
@@ -27,38 +30,35 @@ import net.pms.dlna.virtual.VirtualFolder;
  * will be tracked when interacting with this library. Once all meta information has been tracked, one 
  * can acquire a compiled list of category types from this library.
  * </p>
+ * 
+ * <p>
+ * This library may be populated from multiple threads at once (for example, by a parallel crawler) 
+ * while virtual folders are being built from it. Resources should not be removed while the library 
+ * is being populated. Each media type is kept in its own partition, which is locked and snapshot 
+ * on its own.
+ * </p>
  */
 public class CustomCategoryMediaLibrary implements ICustomCategoryMediaLibrary
 {
 	/**
-	 * A map of category types for a video media type.
-	 **/
-	private Map<String, Map<String, IMediaCategoryType>> _masterCategoriesVideos;
-	
-	/**
-	 * A map of category types for a audio media type.
-	 **/
-	private Map<String, Map<String, IMediaCategoryType>> _masterCategoriesAudio;
-	
-	/**
-	 * A map of category types for a image media type.
+	 * The interned media entries of this library.
 	 **/
-	private Map<String, Map<String, IMediaCategoryType>> _masterCategoriesImages;
-	
+	private final MediaEntryTable _mediaEntries = new MediaEntryTable();
+
 	/**
-	 * A map of category types for unknown media type.
+	 * The partition of master categories for each media type.
 	 **/
-	private Map<String, Map<String, IMediaCategoryType>> _masterCategoriesUnknown;
+	private final EnumMap<EMediaType, MediaTypePartition> _partitions = new EnumMap<EMediaType, MediaTypePartition>(EMediaType.class);
 	
 	/**
 	 * Initializes a new instance of CustomCategoryMediaLibrary.
 	 */
 	public CustomCategoryMediaLibrary()
 	{
-		_masterCategoriesVideos = new HashMap<String, Map<String, IMediaCategoryType>>();
-		_masterCategoriesAudio = new HashMap<String, Map<String, IMediaCategoryType>>();
-		_masterCategoriesImages = new HashMap<String, Map<String, IMediaCategoryType>>();
-		_masterCategoriesUnknown = new HashMap<String, Map<String, IMediaCategoryType>>();
+		for(EMediaType mediaType : EMediaType.values())
+		{
+			_partitions.put(mediaType, new MediaTypePartition(mediaType, _mediaEntries));
+		}
 	}
 
 	/**
@@ -107,48 +107,42 @@ public class CustomCategoryMediaLibrary implements ICustomCategoryMediaLibrary
 			masterCategoryTypeName = Messages.getString("CCustomCategoryMediaLibrary.UNCATEGORIZED0"); //$NON-NLS-1$;
 		}
 		
-		// Find the respective map for this master category type.
-		Map<String, Map<String, IMediaCategoryType>> masterCategoryMap;
-		switch(mediaType)
-		{
-			case VIDEO:
-				masterCategoryMap = _masterCategoriesVideos;
-				break;
-			
-			case AUDIO:
-				masterCategoryMap = _masterCategoriesAudio;
-				break;
-
-			case IMAGE:
-				masterCategoryMap = _masterCategoriesImages;
-				break;
-				
-			default:
-				masterCategoryMap = _masterCategoriesUnknown;
-				break;
-		}
+		return _partitions.get(mediaType).acquireCategoryType(masterCategoryTypeName, categoryTypeName);
+	}
 
-		// Find the master category.
-		Map<String, IMediaCategoryType> categoryMap = masterCategoryMap.get(masterCategoryTypeName);
-		
-		// If the master category does not exist, create a new one.
-		if (categoryMap == null)
-		{
-			categoryMap = new HashMap<String, IMediaCategoryType>();
-			masterCategoryMap.put(masterCategoryTypeName, categoryMap);
-		}
-		
-		// Find the category.
-		IMediaCategoryType category = categoryMap.get(categoryTypeName);
-		
-		// If the category does not exist, create a new one.
-		if (category == null)
-		{
-			category = new MediaCategoryType(categoryTypeName);
-			categoryMap.put(categoryTypeName, category);
-		}
+	/**
+	 * Acquire the media entry for a media file.
+	 * 
+	 * <p>
+	 * Media entries are interned; acquiring the same file twice will return the same entry.
+	 * </p>
+	 * 
+	 * @param file      The media file.
+	 * @param mediaType The media type of the file.
+	 * @return          The media entry.
+	 */
+	@Override
+	public MediaEntry acquireMediaEntry(File file, EMediaType mediaType)
+	{
+		return _mediaEntries.acquireFile(file, mediaType);
+	}
 
-		return category;
+	/**
+	 * Acquire the media entry for a directory of media (from a folder meta file).
+	 * 
+	 * <p>
+	 * Media entries are interned; acquiring the same directory twice will return the same entry 
+	 * (unless the media types of the directory have changed).
+	 * </p>
+	 * 
+	 * @param directory  The directory.
+	 * @param mediaTypes The media types found in the directory's tree.
+	 * @return           The media entry.
+	 */
+	@Override
+	public MediaEntry acquireDirectoryEntry(File directory, EnumSet<EMediaType> mediaTypes)
+	{
+		return _mediaEntries.acquireDirectory(directory, mediaTypes);
 	}
 
 	/**
@@ -160,15 +154,7 @@ public class CustomCategoryMediaLibrary implements ICustomCategoryMediaLibrary
 	@Override
 	public boolean hasContent(EMediaType mediaType)
 	{
-		switch(mediaType)
-		{
-			case AUDIO:   return ( _masterCategoriesAudio.size()   > 0 );
-			case IMAGE:   return ( _masterCategoriesImages.size()  > 0 );
-			case VIDEO:   return ( _masterCategoriesVideos.size()  > 0 );
-			case UNKNOWN: return ( _masterCategoriesUnknown.size() > 0 );
-		}
-		
-		return false;
+		return (_partitions.get(mediaType).isEmpty() == false);
 	}
 	
 	/**
@@ -181,15 +167,13 @@ public class CustomCategoryMediaLibrary implements ICustomCategoryMediaLibrary
 	public List<String> getMasterCategories(EMediaType mediaType)
 	{
 		// Find the respective map for this category type.
-		Map<String,Map<String,IMediaCategoryType>> masterCategoryMap = getMasterCategoryMapByType(mediaType);
+		Map<String,Map<String,IReadableMediaCategoryType>> masterCategoryMap = getMasterCategoryMapByType(mediaType);
 
-		// Get a sorted list of master category types.
+		// Get a sorted list of master category types (the map is kept ordered by name).
 		Set<String> masterCategoryTypes =  masterCategoryMap.keySet();
 		assert(masterCategoryTypes.size() != 0);
-		List<String> sortedMasterCategoryTypes = new ArrayList<String>(masterCategoryTypes);
-		Collections.sort(sortedMasterCategoryTypes);
 		
-		return sortedMasterCategoryTypes;
+		return new ArrayList<String>(masterCategoryTypes);
 	}
 	
 	/**
@@ -204,51 +188,26 @@ public class CustomCategoryMediaLibrary implements ICustomCategoryMediaLibrary
 	public List<String> getMediaCategoriesForMasterCategoryType(EMediaType mediaType, String masterCategoryType)
 	{
 		// Find the category types for this master category type.
-		Map<String, IMediaCategoryType> categoryTypeMap = getMediaCategoryMapByType(mediaType, masterCategoryType);
+		Map<String, IReadableMediaCategoryType> categoryTypeMap = getMediaCategoryMapByType(mediaType, masterCategoryType);
 		if (categoryTypeMap == null)
 		{
 			return null;
 		}
 
-		// Get a sorted list of category types.
-		Set<String> categoryTypes = categoryTypeMap.keySet();
-		List<String> sortedCategoryTypes = new ArrayList<String>(categoryTypes);
-		Collections.sort(sortedCategoryTypes);
-		
-		return sortedCategoryTypes;
+		// Get a sorted list of category types (the map is kept ordered by name).
+		return new ArrayList<String>(categoryTypeMap.keySet());
 	}
 	
 	/**
 	 * Return the master category map for a given type.
 	 * 
 	 * @param mediaType The media type.
-	 * @return          A map for master categories.
+	 * @return          A map for master categories (ordered by name).
 	 */
 	@Override
-	public Map<String, Map<String, IMediaCategoryType>> getMasterCategoryMapByType(EMediaType mediaType)
+	public Map<String, Map<String, IReadableMediaCategoryType>> getMasterCategoryMapByType(EMediaType mediaType)
 	{
-		// Find the respective map for this category type.
-		Map<String, Map<String, IMediaCategoryType>> masterCategoryMap;
-		switch(mediaType)
-		{
-			case VIDEO:
-				masterCategoryMap = _masterCategoriesVideos;
-				break;
-			
-			case AUDIO:
-				masterCategoryMap = _masterCategoriesAudio;
-				break;
-
-			case IMAGE:
-				masterCategoryMap = _masterCategoriesImages;
-				break;
-
-			default:
-				masterCategoryMap = _masterCategoriesUnknown;
-				break;
-		}
-		
-		return masterCategoryMap;
+		return _partitions.get(mediaType).getMasterCategoryMap();
 	}
 
 	/**
@@ -258,11 +217,11 @@ public class CustomCategoryMediaLibrary implements ICustomCategoryMediaLibrary
 	 * @param masterCategoryType The master category type.
 	 * @return                   A map for media categories; null if a category map does not exist for this type.
 	 */
-	private Map<String, IMediaCategoryType> getMediaCategoryMapByType(EMediaType mediaType, String masterCategoryType)
+	private Map<String, IReadableMediaCategoryType> getMediaCategoryMapByType(EMediaType mediaType, String masterCategoryType)
 	{
 		// Find the category types for this master category type.
-		Map<String, Map<String, IMediaCategoryType>> masterCategoryMap = getMasterCategoryMapByType(mediaType);
-		Map<String, IMediaCategoryType> categoryTypeMap = masterCategoryMap.get(masterCategoryType);
+		Map<String, Map<String, IReadableMediaCategoryType>> masterCategoryMap = getMasterCategoryMapByType(mediaType);
+		Map<String, IReadableMediaCategoryType> categoryTypeMap = masterCategoryMap.get(masterCategoryType);
 		return categoryTypeMap;
 	}
 	
@@ -280,42 +239,81 @@ public class CustomCategoryMediaLibrary implements ICustomCategoryMediaLibrary
 	@Override
 	public void buildVirtualFolder(EMediaType mediaType, VirtualFolder mediaTypeVirtualFolder)
 	{
-		// Get a sorted list of master category types.
-		List<String> sortedMasterCategoryTypes = getMasterCategories(mediaType);
-		for(String masterCategoryType : sortedMasterCategoryTypes)
+		// Build from a snapshot so the folders reflect a single (consistent) view of this library.
+		snapshot().buildVirtualFolder(mediaType, mediaTypeVirtualFolder);
+	}
+	
+	/**
+	 * Remove all resources referencing the provided file or directory from this library.
+	 * 
+	 * <p>
+	 * Category types and master categories left without any resources are removed.
+	 * </p>
+	 * 
+	 * @param path The file or directory.
+	 */
+	@Override
+	public void removeResources(File path)
+	{
+		removeResources(path, false);
+	}
+
+	/**
+	 * Remove all resources referencing the provided directory or anything within it from this library.
+	 * 
+	 * <p>
+	 * Category types and master categories left without any resources are removed.
+	 * </p>
+	 * 
+	 * @param directory The directory.
+	 */
+	@Override
+	public void removeResourcesWithin(File directory)
+	{
+		removeResources(directory, true);
+	}
+
+	/**
+	 * Remove all resources referencing the provided path.
+	 * 
+	 * @param path          The file or directory.
+	 * @param isIncludeTree True, if resources within the provided directory should also be removed.
+	 */
+	private void removeResources(File path, boolean isIncludeTree)
+	{
+		// Look the path up once; the same identifiers are then removed from every partition.
+		int[] ids;
+		if (isIncludeTree == true)
 		{
-			VirtualFolder baseVirtualFolder;
-			
-			// Do we have more than one (1) master category? If so, create the master category virtual
-			// folders as a base for this sections category types. If not, just reference the 
-			// respective media type virtual folder.
-			if (sortedMasterCategoryTypes.size() > 1)
-			{
-				// Create a master category type folder.
-				VirtualFolder masterCategoryTypeVirtualFolder = new VirtualFolder(masterCategoryType, null);
-				mediaTypeVirtualFolder.addChild(masterCategoryTypeVirtualFolder);
-				
-				baseVirtualFolder = masterCategoryTypeVirtualFolder;
-			}
-			else
+			ids = _mediaEntries.findWithin(path);
+		}
+		else
+		{
+			MediaEntry entry = _mediaEntries.find(path);
+			if (entry == null)
 			{
-				baseVirtualFolder = mediaTypeVirtualFolder;
+				return;
 			}
-			
-			// Find the category types for this master category type.
-			Map<String, IMediaCategoryType> categoryTypeMap = getMediaCategoryMapByType(mediaType, masterCategoryType);
-			assert(categoryTypeMap != null);
-			
-			List<String> sortedCategoryTypes = getMediaCategoriesForMasterCategoryType(mediaType, masterCategoryType);
-			for(String categoryType : sortedCategoryTypes)
+
+			ids = new int[] { entry.getId() };
+
+			// A media file only belongs to the partition of its media type; leave the others untouched.
+			if (entry.isDirectory() == false)
 			{
-				IMediaCategoryType mediaCategoryType = categoryTypeMap.get(categoryType);
-				
-				// Create a category type folder.
-				VirtualFolder categoryTypeVirtualFolder = mediaCategoryType.generateVirtualFolder();
-				baseVirtualFolder.addChild(categoryTypeVirtualFolder);
+				_partitions.get(entry.getMediaType()).removeEntries(ids, null);
+				return;
 			}
 		}
+
+		if (ids.length == 0)
+		{
+			return;
+		}
+
+		for(MediaTypePartition partition : _partitions.values())
+		{
+			partition.removeEntries(ids, null);
+		}
 	}
 	
 	/**
@@ -324,9 +322,36 @@ public class CustomCategoryMediaLibrary implements ICustomCategoryMediaLibrary
 	@Override
 	public void resetCategories()
 	{
-		_masterCategoriesVideos.clear();
-		_masterCategoriesAudio.clear();
-		_masterCategoriesImages.clear();
-		_masterCategoriesUnknown.clear();
+		for(MediaTypePartition partition : _partitions.values())
+		{
+			partition.reset();
+		}
+	}
+
+	/**
+	 * Return an immutable snapshot of this library.
+	 * 
+	 * <p>
+	 * The snapshot reflects a consistent view of this library. Category types which have not 
+	 * changed since a previous snapshot are shared with it.
+	 * </p>
+	 * 
+	 * @return The snapshot.
+	 */
+	@Override
+	public IReadableMediaLibrary snapshot()
+	{
+		EnumMap<EMediaType, Map<String, Map<String, IReadableMediaCategoryType>>> masterCategories = new EnumMap<EMediaType, Map<String, Map<String, IReadableMediaCategoryType>>>(EMediaType.class);
+		for(MediaTypePartition partition : _partitions.values())
+		{
+			// Each partition is snapshot on its own; unchanged partitions return their last snapshot.
+			Map<String, Map<String, IReadableMediaCategoryType>> masterCategoryMap = partition.snapshot();
+			if (masterCategoryMap.isEmpty() == false)
+			{
+				masterCategories.put(partition.getMediaType(), masterCategoryMap);
+			}
+		}
+
+		return new ImmutableMediaLibrary(masterCategories);
 	}
 }
@@ -0,0 +1,120 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.tmp.RealFileWithVirtualFolderThumbnails;
+import me.jdknight.ums.ccml.util.DirectoryListing;
+import net.pms.dlna.DLNAResource;
+import net.pms.formats.Format;
+
+/**
+ * A virtual folder for the media resources of a directory.
+ * 
+ * <p>
+ * Only the directory and the media types found in its tree are kept. The directory is listed
+ * the first time a renderer browses into this folder. The folder is tracked by the materialized
+ * folder cache like the category folders; once evicted, the directory is listed again on the
+ * next browse.
+ * </p>
+ */
+public class DirectoryMediaFolder extends MaterializedFolder
+{
+	/**
+	 * The directory.
+	 **/
+	private final File _directory;
+
+	/**
+	 * The set of media types found in this directory's tree.
+	 **/
+	private final EnumSet<EMediaType> _mediaTypes;
+
+	/**
+	 * Initializes a new instance of DirectoryMediaFolder.
+	 * 
+	 * @param directory  The directory.
+	 * @param mediaTypes The set of media types found in this directory's tree.
+	 */
+	public DirectoryMediaFolder(File directory, EnumSet<EMediaType> mediaTypes)
+	{
+		super(directory.getName());
+
+		_directory = directory;
+		_mediaTypes = mediaTypes;
+	}
+
+	/**
+	 * Return the directory.
+	 * 
+	 * @return The directory.
+	 */
+	public File getDirectory()
+	{
+		return _directory;
+	}
+
+	/**
+	 * Return the set of media types found in this directory's tree.
+	 * 
+	 * @return The set of media types.
+	 */
+	public EnumSet<EMediaType> getMediaTypes()
+	{
+		return _mediaTypes;
+	}
+
+	/**
+	 * Add the media resources of this directory.
+	 */
+	@Override
+	protected void materializeChildren()
+	{
+		for(DLNAResource child : createChildren())
+		{
+			addChild(child);
+		}
+	}
+
+	/**
+	 * Create the media resources of this directory.
+	 * 
+	 * <p>
+	 * The created resources are not added to this folder.
+	 * </p>
+	 * 
+	 * @return The media resources.
+	 */
+	public List<DLNAResource> createChildren()
+	{
+		DirectoryListing listing = DirectoryListing.list(_directory);
+		List<DLNAResource> children = new ArrayList<DLNAResource>();
+
+		for(File child : listing.getFiles())
+		{
+			// Only include supported media types.
+			Format mediaFormat = LazyCompatibility.getAssociatedExtension(child.getPath());
+			EMediaType mediaType = EMediaType.get(mediaFormat);
+			if (_mediaTypes.contains(mediaType) == true)
+			{
+				children.add(new RealFileWithVirtualFolderThumbnails(child));
+			}
+		}
+
+		for(File child : listing.getDirectories())
+		{
+			children.add(new DirectoryMediaFolder(child, _mediaTypes));
+		}
+
+		return children;
+	}
+}
@@ -0,0 +1,77 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+/**
+ * A virtual folder for the values of a facet (a category type) within a filter.
+ * 
+ * <p>
+ * Only values with media matching the filter are listed, along with their number of matches.
+ * The counts are computed (without building the intersections) when this folder is browsed.
+ * </p>
+ */
+public class FacetFolder extends MaterializedFolder
+{
+	/**
+	 * The index of the media type's categories.
+	 **/
+	private final FacetIndex _index;
+
+	/**
+	 * The index of the facet.
+	 **/
+	private final int _facet;
+
+	/**
+	 * The identifiers (in ascending order) matching the filter; null if unfiltered.
+	 **/
+	private final int[] _matches;
+
+	/**
+	 * Whether or not each facet has been selected by the filter.
+	 **/
+	private final boolean[] _selectedFacets;
+
+	/**
+	 * Initializes a new instance of FacetFolder.
+	 * 
+	 * @param name           The name of the facet.
+	 * @param index          The index of the media type's categories.
+	 * @param facet          The index of the facet.
+	 * @param matches        The identifiers (in ascending order) matching the filter; null if unfiltered.
+	 * @param selectedFacets Whether or not each facet has been selected by the filter.
+	 */
+	public FacetFolder(String name, FacetIndex index, int facet, int[] matches, boolean[] selectedFacets)
+	{
+		super(name);
+
+		_index = index;
+		_facet = facet;
+		_matches = matches;
+		_selectedFacets = selectedFacets;
+	}
+
+	/**
+	 * Create a filter folder for each value with matching media.
+	 */
+	@Override
+	protected void materializeChildren()
+	{
+		boolean[] selectedFacets = _selectedFacets.clone();
+		selectedFacets[_facet] = true;
+
+		for(int value = 0; value < _index.getValueCount(_facet); value++)
+		{
+			int matchCount = _index.getMatchCount(_facet, value, _matches);
+			if (matchCount > 0)
+			{
+				String name = _index.getValue(_facet, value) + " (" + matchCount + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+				addChild(new FilterFolder(name, _index, _matches, _facet, value, selectedFacets));
+			}
+		}
+	}
+}
@@ -0,0 +1,373 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import me.jdknight.ums.ccml.core.enumerators.ESortOrder;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaEntryTable;
+import me.jdknight.ums.ccml.util.IntSets;
+
+/**
+ * An (immutable) inverted index of the categories of a media type, used to filter media by
+ * several categories at once.
+ * 
+ * <p>
+ * Each facet is a category type (category types of the same name in different master categories
+ * are merged). Each value of a facet is a category, indexed to the identifiers of its media
+ * entries in ascending order. The media matching a combination of values is the intersection
+ * of their identifier sets; intersections and counts are computed when browsed.
+ * </p>
+ * 
+ * <p>
+ * The categories of each value are kept as well, so matching media are listed in the display
+ * order the categories keep (filtered to the matches) instead of being sorted again.
+ * </p>
+ */
+public final class FacetIndex
+{
+	/**
+	 * The snapshot of the table the media entries are interned in.
+	 **/
+	private final ImmutableMediaEntryTable _entries;
+
+	/**
+	 * The names of the facets (in ascending order).
+	 **/
+	private final String[] _facetNames;
+
+	/**
+	 * The values of each facet (in ascending order).
+	 **/
+	private final String[][] _values;
+
+	/**
+	 * The media entry identifiers (in ascending order) of each value of each facet.
+	 **/
+	private final int[][][] _ids;
+
+	/**
+	 * The media entries of the categories (one for each master category) of each value of each facet.
+	 **/
+	private final CategoryEntries[][][] _categories;
+
+	/**
+	 * The order the media entries of each facet are sorted in.
+	 **/
+	private final ESortOrder[] _sortOrders;
+
+	/**
+	 * Initializes a new instance of FacetIndex.
+	 * 
+	 * @param entries    The snapshot of the table the media entries are interned in.
+	 * @param facetNames The names of the facets (in ascending order).
+	 * @param values     The values of each facet (in ascending order).
+	 * @param ids        The media entry identifiers (in ascending order) of each value of each facet.
+	 * @param categories The media entries of the categories of each value of each facet.
+	 * @param sortOrders The order the media entries of each facet are sorted in.
+	 */
+	private FacetIndex(ImmutableMediaEntryTable entries, String[] facetNames, String[][] values, int[][][] ids, CategoryEntries[][][] categories, ESortOrder[] sortOrders)
+	{
+		_entries = entries;
+		_facetNames = facetNames;
+		_values = values;
+		_ids = ids;
+		_categories = categories;
+		_sortOrders = sortOrders;
+	}
+
+	/**
+	 * Build the index of the provided master categories.
+	 * 
+	 * @param masterCategoryMap The master categories (of category type snapshots) of a media type.
+	 * @return                  The index; null if there are no categories.
+	 */
+	public static FacetIndex build(Map<String, Map<String, IReadableMediaCategoryType>> masterCategoryMap)
+	{
+		ImmutableMediaEntryTable entries = null;
+		SortedMap<String, SortedMap<String, int[]>> facets = new TreeMap<String, SortedMap<String, int[]>>();
+		Map<String, Map<String, List<CategoryEntries>>> facetCategories = new TreeMap<String, Map<String, List<CategoryEntries>>>();
+		Map<String, ESortOrder> sortOrders = new TreeMap<String, ESortOrder>();
+		for(Map<String, IReadableMediaCategoryType> categoryTypeMap : masterCategoryMap.values())
+		{
+			for(IReadableMediaCategoryType mediaCategoryType : categoryTypeMap.values())
+			{
+				if ((mediaCategoryType instanceof ImmutableMediaCategoryType) == false)
+				{
+					continue;
+				}
+
+				ImmutableMediaCategoryType categoryType = (ImmutableMediaCategoryType) mediaCategoryType;
+
+				// Unchanged category types keep older snapshots of the table; the latest one can 
+				// read the entries of every category type.
+				if (entries == null || categoryType.getEntryTable().isNewerThan(entries) == true)
+				{
+					entries = categoryType.getEntryTable();
+				}
+
+				SortedMap<String, int[]> facet = facets.get(categoryType.getCategoryTypeName());
+				Map<String, List<CategoryEntries>> categories = facetCategories.get(categoryType.getCategoryTypeName());
+				if (facet == null)
+				{
+					facet = new TreeMap<String, int[]>();
+					facets.put(categoryType.getCategoryTypeName(), facet);
+					categories = new TreeMap<String, List<CategoryEntries>>();
+					facetCategories.put(categoryType.getCategoryTypeName(), categories);
+					sortOrders.put(categoryType.getCategoryTypeName(), categoryType.getSortOrder());
+				}
+
+				for(int index = 0; index < categoryType.getCategoryCount(); index++)
+				{
+					// The same category in another master category? Merge the identifiers.
+					String categoryName = categoryType.getCategoryName(index);
+					int[] ids = categoryType.getCategoryEntries(index).getIds();
+					int[] existingIds = facet.get(categoryName);
+					facet.put(categoryName, (existingIds != null ? IntSets.union(existingIds, ids) : ids));
+
+					List<CategoryEntries> valueCategories = categories.get(categoryName);
+					if (valueCategories == null)
+					{
+						valueCategories = new ArrayList<CategoryEntries>(1);
+						categories.put(categoryName, valueCategories);
+					}
+					valueCategories.add(categoryType.getCategoryEntries(index));
+				}
+			}
+		}
+
+		if (entries == null)
+		{
+			return null;
+		}
+
+		String[] facetNames = new String[facets.size()];
+		String[][] values = new String[facets.size()][];
+		int[][][] ids = new int[facets.size()][][];
+		CategoryEntries[][][] categories = new CategoryEntries[facets.size()][][];
+		ESortOrder[] facetSortOrders = new ESortOrder[facets.size()];
+		int facetIndex = 0;
+		for(Entry<String, SortedMap<String, int[]>> facet : facets.entrySet())
+		{
+			facetNames[facetIndex] = facet.getKey();
+			values[facetIndex] = facet.getValue().keySet().toArray(new String[facet.getValue().size()]);
+			ids[facetIndex] = facet.getValue().values().toArray(new int[facet.getValue().size()][]);
+			facetSortOrders[facetIndex] = sortOrders.get(facet.getKey());
+
+			// Values are kept in the same (ascending) order as the identifiers.
+			Map<String, List<CategoryEntries>> valueCategories = facetCategories.get(facet.getKey());
+			categories[facetIndex] = new CategoryEntries[valueCategories.size()][];
+			int valueIndex = 0;
+			for(List<CategoryEntries> valueCategory : valueCategories.values())
+			{
+				categories[facetIndex][valueIndex++] = valueCategory.toArray(new CategoryEntries[valueCategory.size()]);
+			}
+
+			facetIndex++;
+		}
+
+		return new FacetIndex(entries, facetNames, values, ids, categories, facetSortOrders);
+	}
+
+	/**
+	 * Return the snapshot of the table the media entries are interned in.
+	 * 
+	 * @return The media entry table snapshot.
+	 */
+	public IReadableMediaEntryTable getEntries()
+	{
+		return _entries;
+	}
+
+	/**
+	 * Return the number of facets.
+	 * 
+	 * @return The number of facets.
+	 */
+	public int getFacetCount()
+	{
+		return _facetNames.length;
+	}
+
+	/**
+	 * Return the name of a facet.
+	 * 
+	 * @param facet The index of the facet.
+	 * @return      The name.
+	 */
+	public String getFacetName(int facet)
+	{
+		return _facetNames[facet];
+	}
+
+	/**
+	 * Return the number of values of a facet.
+	 * 
+	 * @param facet The index of the facet.
+	 * @return      The number of values.
+	 */
+	public int getValueCount(int facet)
+	{
+		return _values[facet].length;
+	}
+
+	/**
+	 * Return a value of a facet.
+	 * 
+	 * @param facet The index of the facet.
+	 * @param value The index of the value.
+	 * @return      The value.
+	 */
+	public String getValue(int facet, int value)
+	{
+		return _values[facet][value];
+	}
+
+	/**
+	 * Return the media entry identifiers of a value of a facet.
+	 * 
+	 * <p>
+	 * The returned array must not be modified.
+	 * </p>
+	 * 
+	 * @param facet The index of the facet.
+	 * @param value The index of the value.
+	 * @return      The identifiers (in ascending order).
+	 */
+	public int[] getIds(int facet, int value)
+	{
+		return _ids[facet][value];
+	}
+
+	/**
+	 * Return the number of media entries of a value of a facet which also match a filter.
+	 * 
+	 * @param facet   The index of the facet.
+	 * @param value   The index of the value.
+	 * @param matches The identifiers (in ascending order) matching the filter; null if unfiltered.
+	 * @return        The number of matching media entries.
+	 */
+	public int getMatchCount(int facet, int value, int[] matches)
+	{
+		int[] ids = _ids[facet][value];
+		return (matches != null ? IntSets.intersectionSize(matches, ids) : ids.length);
+	}
+
+	/**
+	 * Return the media entries of a value of a facet which also match a filter.
+	 * 
+	 * @param facet   The index of the facet.
+	 * @param value   The index of the value.
+	 * @param matches The identifiers (in ascending order) matching the filter; null if unfiltered.
+	 * @return        The matching identifiers (in ascending order).
+	 */
+	public int[] getMatches(int facet, int value, int[] matches)
+	{
+		int[] ids = _ids[facet][value];
+		return (matches != null ? IntSets.intersect(matches, ids) : ids);
+	}
+
+	/**
+	 * Return the media entries of a value of a facet which match a filter, in display order.
+	 * 
+	 * <p>
+	 * The display order kept by the value's categories is reused (and filtered to the matches); 
+	 * categories of several master categories are merged.
+	 * </p>
+	 * 
+	 * @param facet   The index of the facet.
+	 * @param value   The index of the value.
+	 * @param matches The identifiers (in ascending order) matching the filter.
+	 * @return        The matching identifiers in display order.
+	 */
+	public int[] getDisplayOrder(int facet, int value, int[] matches)
+	{
+		MediaEntryComparator comparator = MediaEntryComparator.get(_sortOrders[facet]);
+
+		int[] displayOrder = null;
+		for(CategoryEntries categoryEntries : _categories[facet][value])
+		{
+			int[] categoryOrder = filter(categoryEntries.getDisplayOrder(_entries, comparator), matches);
+			displayOrder = (displayOrder != null ? merge(displayOrder, categoryOrder, comparator) : categoryOrder);
+		}
+
+		return displayOrder;
+	}
+
+	/**
+	 * Keep the identifiers of a display order which are within the provided set.
+	 * 
+	 * @param displayOrder The identifiers in display order.
+	 * @param ids          The identifiers to keep (in ascending order).
+	 * @return             The kept identifiers in display order.
+	 */
+	private static int[] filter(int[] displayOrder, int[] ids)
+	{
+		int[] filtered = new int[Math.min(displayOrder.length, ids.length)];
+		int filteredCount = 0;
+		for(int id : displayOrder)
+		{
+			if (Arrays.binarySearch(ids, id) >= 0)
+			{
+				filtered[filteredCount++] = id;
+			}
+		}
+
+		if (filteredCount == displayOrder.length)
+		{
+			return displayOrder;
+		}
+
+		return (filteredCount == filtered.length ? filtered : Arrays.copyOf(filtered, filteredCount));
+	}
+
+	/**
+	 * Merge two display orders (an identifier in both is kept once).
+	 * 
+	 * @param first      The first identifiers in display order.
+	 * @param second     The second identifiers in display order.
+	 * @param comparator The comparator ordering the media entries.
+	 * @return           The merged identifiers in display order.
+	 */
+	private int[] merge(int[] first, int[] second, MediaEntryComparator comparator)
+	{
+		int[] merged = new int[first.length + second.length];
+		int mergedCount = 0;
+		int firstIndex = 0;
+		int secondIndex = 0;
+		while (firstIndex < first.length && secondIndex < second.length)
+		{
+			if (first[firstIndex] == second[secondIndex])
+			{
+				merged[mergedCount++] = first[firstIndex++];
+				secondIndex++;
+			}
+			else if (comparator.compare(_entries.get(first[firstIndex]), _entries.get(second[secondIndex])) <= 0)
+			{
+				merged[mergedCount++] = first[firstIndex++];
+			}
+			else
+			{
+				merged[mergedCount++] = second[secondIndex++];
+			}
+		}
+
+		System.arraycopy(first, firstIndex, merged, mergedCount, first.length - firstIndex);
+		mergedCount += first.length - firstIndex;
+		System.arraycopy(second, secondIndex, merged, mergedCount, second.length - secondIndex);
+		mergedCount += second.length - secondIndex;
+
+		return (mergedCount == merged.length ? merged : Arrays.copyOf(merged, mergedCount));
+	}
+}
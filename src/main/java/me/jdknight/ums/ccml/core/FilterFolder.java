@@ -0,0 +1,166 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.Map;
+
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaCategoryType;
+
+/**
+ * A virtual folder for the media matching a combination of categories.
+ * 
+ * <p>
+ * The root filter folder of a media type has no categories selected. Each selected category
+ * (a value of a facet) narrows the media to the intersection of the categories' identifier sets.
+ * A filter folder lists a facet folder for each facet not selected yet which still has matching
+ * values, followed by the matching media. Matches are only computed when browsed.
+ * </p>
+ * 
+ * <p>
+ * The root filter folder builds the index of the media type's categories when it is first
+ * browsed; its descendants share that index.
+ * </p>
+ */
+public class FilterFolder extends MaterializedFolder
+{
+	/**
+	 * The master categories of the media type; null if not the root filter folder.
+	 **/
+	private final Map<String, Map<String, IReadableMediaCategoryType>> _masterCategoryMap;
+
+	/**
+	 * The index of the media type's categories; null until built by the root filter folder
+	 * (guarded by this instance).
+	 **/
+	private FacetIndex _index;
+
+	/**
+	 * The identifiers (in ascending order) matching the parent filter; null if unfiltered.
+	 **/
+	private final int[] _parentMatches;
+
+	/**
+	 * The index of the facet selected by this folder; -1 for the root filter folder.
+	 **/
+	private final int _facet;
+
+	/**
+	 * The index of the value selected by this folder.
+	 **/
+	private final int _value;
+
+	/**
+	 * Whether or not each facet has been selected (by this folder or its parents); null until
+	 * the index is built by the root filter folder (guarded by this instance).
+	 **/
+	private boolean[] _selectedFacets;
+
+	/**
+	 * Initializes a new instance of FilterFolder for the root filter of a media type.
+	 * 
+	 * @param name              The name of this folder.
+	 * @param masterCategoryMap The master categories (of category type snapshots) of the media type.
+	 */
+	public FilterFolder(String name, Map<String, Map<String, IReadableMediaCategoryType>> masterCategoryMap)
+	{
+		super(name);
+
+		_masterCategoryMap = masterCategoryMap;
+		_facet = -1;
+		_value = -1;
+		_parentMatches = null;
+	}
+
+	/**
+	 * Initializes a new instance of FilterFolder.
+	 * 
+	 * @param name           The name of this folder.
+	 * @param index          The index of the media type's categories.
+	 * @param parentMatches  The identifiers (in ascending order) matching the parent filter; null if unfiltered.
+	 * @param facet          The index of the facet selected by this folder; -1 for the root filter folder.
+	 * @param value          The index of the value selected by this folder.
+	 * @param selectedFacets Whether or not each facet has been selected (by this folder or its parents).
+	 */
+	FilterFolder(String name, FacetIndex index, int[] parentMatches, int facet, int value, boolean[] selectedFacets)
+	{
+		super(name);
+
+		_masterCategoryMap = null;
+		_index = index;
+		_parentMatches = parentMatches;
+		_facet = facet;
+		_value = value;
+		_selectedFacets = selectedFacets;
+	}
+
+	/**
+	 * Stand in for the root filter folder built from a newer library snapshot if it is built from
+	 * the same category type snapshots (so the index, once built, stays valid).
+	 * 
+	 * @param folder The folder built from the newer library snapshot.
+	 * @return       True, if this folder stands in for the provided folder; false otherwise.
+	 */
+	@Override
+	protected boolean update(MaterializedFolder folder)
+	{
+		if ((folder instanceof FilterFolder) == false || _masterCategoryMap == null || getName().equals(folder.getName()) == false)
+		{
+			return false;
+		}
+
+		FilterFolder filterFolder = (FilterFolder) folder;
+		return (filterFolder._masterCategoryMap != null && ImmutableMediaLibrary.isSameMasterCategoryMap(_masterCategoryMap, filterFolder._masterCategoryMap) == true);
+	}
+
+	/**
+	 * Create the facet folders and matching media of this filter.
+	 */
+	@Override
+	protected void materializeChildren()
+	{
+		// Root filter folder? Build the index when first browsed (it is kept once evicted).
+		if (_index == null)
+		{
+			_index = FacetIndex.build(_masterCategoryMap);
+			if (_index == null)
+			{
+				return;
+			}
+
+			_selectedFacets = new boolean[_index.getFacetCount()];
+		}
+
+		int[] matches = (_facet >= 0 ? _index.getMatches(_facet, _value, _parentMatches) : null);
+
+		// Add each facet which still has matching values.
+		for(int facet = 0; facet < _index.getFacetCount(); facet++)
+		{
+			if (_selectedFacets[facet] == true)
+			{
+				continue;
+			}
+
+			for(int value = 0; value < _index.getValueCount(facet); value++)
+			{
+				if (_index.getMatchCount(facet, value, matches) > 0)
+				{
+					addChild(new FacetFolder(_index.getFacetName(facet), _index, facet, matches, _selectedFacets));
+					break;
+				}
+			}
+		}
+
+		if (matches == null || matches.length == 0)
+		{
+			return;
+		}
+
+		// Add the matching media (in the display order kept by the selected category).
+		int[] displayOrder = _index.getDisplayOrder(_facet, _value, matches);
+		CategoryPageFolder.addRange(this, _index.getEntries(), displayOrder, 0, displayOrder.length, CcmlConfiguration.getInstance().getFolderPageSize());
+	}
+}
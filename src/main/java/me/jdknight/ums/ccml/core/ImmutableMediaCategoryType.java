@@ -0,0 +1,203 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.jdknight.ums.ccml.core.enumerators.ESortOrder;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaCategoryType;
+import net.pms.dlna.virtual.VirtualFolder;
+
+/**
+ * An immutable snapshot of a media category type.
+ * 
+ * <p>
+ * The media entry identifiers of each category are shared with the category type the snapshot
+ * was taken from (and with later snapshots, as long as the category does not change).
+ * </p>
+ */
+public final class ImmutableMediaCategoryType implements IReadableMediaCategoryType
+{
+	/**
+	 * The name of this category type.
+	 **/
+	private final String _name;
+
+	/**
+	 * The snapshot of the table the media entries of this category type are interned in.
+	 **/
+	private final ImmutableMediaEntryTable _entries;
+
+	/**
+	 * The names of the categories (in ascending order).
+	 **/
+	private final String[] _categoryNames;
+
+	/**
+	 * The media entries of each category (in the order of the category names).
+	 **/
+	private final CategoryEntries[] _categories;
+
+	/**
+	 * The order the media entries of each category are sorted in.
+	 **/
+	private final ESortOrder _sortOrder;
+
+	/**
+	 * Initializes a new instance of ImmutableMediaCategoryType.
+	 * 
+	 * @param name          The name of this category type.
+	 * @param entries       The snapshot of the table the media entries of this category type are interned in.
+	 * @param categoryNames The names of the categories (in ascending order).
+	 * @param categories    The media entries of each category (in the order of the category names).
+	 * @param sortOrder     The order the media entries of each category are sorted in.
+	 */
+	ImmutableMediaCategoryType(String name, ImmutableMediaEntryTable entries, String[] categoryNames, CategoryEntries[] categories, ESortOrder sortOrder)
+	{
+		_name = name;
+		_entries = entries;
+		_categoryNames = categoryNames;
+		_categories = categories;
+		_sortOrder = sortOrder;
+	}
+
+	/**
+	 * Return the name of this category type.
+	 * 
+	 * @return The name.
+	 */
+	@Override
+	public String getCategoryTypeName()
+	{
+		return _name;
+	}
+
+	/**
+	 * Return whether or not this category type has any media entries.
+	 * 
+	 * @return True, if no media entries have been added; false otherwise.
+	 */
+	@Override
+	public boolean isEmpty()
+	{
+		return (_categoryNames.length == 0);
+	}
+
+	/**
+	 * Return a map of all media entries added to this category type.
+	 * 
+	 * @return The map of media entries (ordered by category name).
+	 */
+	@Override
+	public Map<String, List<MediaEntry>> getResources()
+	{
+		Map<String, List<MediaEntry>> resources = new LinkedHashMap<String, List<MediaEntry>>();
+		for(int index = 0; index < _categoryNames.length; index++)
+		{
+			resources.put(_categoryNames[index], _entries.resolve(_categories[index].getIds()));
+		}
+
+		return resources;
+	}
+
+	/**
+	 * Generate a virtual folder for this media category.
+	 * 
+	 * <p>
+	 * The category folders are only added once a renderer browses the generated folder; the 
+	 * resources of a category are only created once a renderer browses its folder.
+	 * </p>
+	 * 
+	 * @return The generated virtual folder.
+	 */
+	@Override
+	public VirtualFolder generateVirtualFolder()
+	{
+		return new CategoryTypeFolder(this);
+	}
+
+	/**
+	 * Add a folder for each category to the provided virtual folder.
+	 * 
+	 * @param virtualFolder The virtual folder.
+	 */
+	void addCategoryFolders(VirtualFolder virtualFolder)
+	{
+		for(int index = 0; index < _categoryNames.length; index++)
+		{
+			// Create a category folder (its resources are created when browsed).
+			virtualFolder.addChild(new CategoryMediaFolder(_categoryNames[index], _entries, _categories[index], _sortOrder));
+		}
+	}
+
+	/**
+	 * Return the snapshot of the table the media entries of this category type are interned in.
+	 * 
+	 * @return The media entry table snapshot.
+	 */
+	ImmutableMediaEntryTable getEntryTable()
+	{
+		return _entries;
+	}
+
+	/**
+	 * Return the order the media entries of each category are sorted in.
+	 * 
+	 * @return The sort order.
+	 */
+	ESortOrder getSortOrder()
+	{
+		return _sortOrder;
+	}
+
+	/**
+	 * Return the number of categories.
+	 * 
+	 * @return The number of categories.
+	 */
+	int getCategoryCount()
+	{
+		return _categoryNames.length;
+	}
+
+	/**
+	 * Return the name of a category.
+	 * 
+	 * @param index The index of the category (categories are in ascending order of their names).
+	 * @return      The name.
+	 */
+	String getCategoryName(int index)
+	{
+		return _categoryNames[index];
+	}
+
+	/**
+	 * Return the media entries of a category.
+	 * 
+	 * @param index The index of the category (categories are in ascending order of their names).
+	 * @return      The media entries.
+	 */
+	CategoryEntries getCategoryEntries(int index)
+	{
+		return _categories[index];
+	}
+
+	/**
+	 * Return the media entries of a category.
+	 * 
+	 * @param categoryName The name of the category.
+	 * @return             The media entries; null if the category does not exist.
+	 */
+	CategoryEntries getCategoryEntries(String categoryName)
+	{
+		int index = Arrays.binarySearch(_categoryNames, categoryName);
+		return (index >= 0 ? _categories[index] : null);
+	}
+}
@@ -0,0 +1,81 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.List;
+
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaEntryTable;
+
+/**
+ * An immutable snapshot of a media entry table.
+ * 
+ * <p>
+ * A snapshot shares the chunks of entries with its table; a chunk is copied by the table before
+ * an entry is freed from it, so entries freed after the snapshot was taken can still be read from
+ * the snapshot. A snapshot (and the chunks only it references) is released once no library 
+ * snapshot refers to it.
+ * </p>
+ */
+public final class ImmutableMediaEntryTable implements IReadableMediaEntryTable
+{
+	/**
+	 * The entries by identifier, in chunks.
+	 **/
+	private final MediaEntry[][] _chunks;
+
+	/**
+	 * The version of this snapshot (later snapshots of a table have greater versions).
+	 **/
+	private final int _version;
+
+	/**
+	 * Initializes a new instance of ImmutableMediaEntryTable.
+	 * 
+	 * @param chunks  The entries by identifier, in chunks.
+	 * @param version The version of this snapshot.
+	 */
+	ImmutableMediaEntryTable(MediaEntry[][] chunks, int version)
+	{
+		_chunks = chunks;
+		_version = version;
+	}
+
+	/**
+	 * Return the entry with the provided identifier.
+	 * 
+	 * @param id The identifier.
+	 * @return   The entry.
+	 */
+	@Override
+	public MediaEntry get(int id)
+	{
+		return _chunks[id >>> MediaEntryTable.CHUNK_SHIFT][id & MediaEntryTable.CHUNK_MASK];
+	}
+
+	/**
+	 * Return a list of the entries with the provided identifiers.
+	 * 
+	 * @param ids The identifiers.
+	 * @return    The list of entries.
+	 */
+	@Override
+	public List<MediaEntry> resolve(int[] ids)
+	{
+		return new MediaEntryTable.MediaEntryList(this, ids);
+	}
+
+	/**
+	 * Return whether or not this snapshot was taken after another snapshot of the same table.
+	 * 
+	 * @param other The other snapshot.
+	 * @return      True, if this snapshot is more recent; false otherwise.
+	 */
+	boolean isNewerThan(ImmutableMediaEntryTable other)
+	{
+		return (_version > other._version);
+	}
+}
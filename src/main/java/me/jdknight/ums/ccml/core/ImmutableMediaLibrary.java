@@ -0,0 +1,227 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaLibrary;
+import me.jdknight.ums.ccml.lang.Messages;
+import net.pms.dlna.virtual.VirtualFolder;
+
+/**
+ * An immutable snapshot of a custom category media library.
+ * 
+ * <p>
+ * A snapshot always reflects a complete version of a library and may be read from any thread.
+ * Category types which have not changed between two snapshots of a library are shared by both.
+ * Master categories and category types are kept sorted by name.
+ * </p>
+ */
+public final class ImmutableMediaLibrary implements IReadableMediaLibrary
+{
+	/**
+	 * The (sorted) master category maps for each media type.
+	 **/
+	private final EnumMap<EMediaType, Map<String, Map<String, IReadableMediaCategoryType>>> _masterCategories;
+
+	/**
+	 * Initializes a new instance of ImmutableMediaLibrary.
+	 * 
+	 * @param masterCategories The (sorted) master category maps for each media type; media types
+	 *                         without content may be omitted.
+	 */
+	ImmutableMediaLibrary(EnumMap<EMediaType, Map<String, Map<String, IReadableMediaCategoryType>>> masterCategories)
+	{
+		_masterCategories = masterCategories;
+	}
+
+	/**
+	 * Return whether or not the media library has any content of the provided media type.
+	 * 
+	 * @param mediaType The media type.
+	 * @return          True, if this library has content of this media type; false otherwise.
+	 */
+	@Override
+	public boolean hasContent(EMediaType mediaType)
+	{
+		return (getMasterCategoryMapByType(mediaType).isEmpty() == false);
+	}
+
+	/**
+	 * Return a list of master categories for a given media type.
+	 * 
+	 * @param mediaType The media type.
+	 * @return          A list of master categories.
+	 */
+	@Override
+	public List<String> getMasterCategories(EMediaType mediaType)
+	{
+		return new ArrayList<String>(getMasterCategoryMapByType(mediaType).keySet());
+	}
+
+	/**
+	 * Return a list of media categories for a given media type and master category type.
+	 * 
+	 * @param mediaType          The media type.
+	 * @param masterCategoryType The master category type.
+	 * @return                   A list of media categories; null if the no category exists for the provided
+	 *                           master category type.
+	 */
+	@Override
+	public List<String> getMediaCategoriesForMasterCategoryType(EMediaType mediaType, String masterCategoryType)
+	{
+		Map<String, IReadableMediaCategoryType> categoryTypeMap = getMasterCategoryMapByType(mediaType).get(masterCategoryType);
+		if (categoryTypeMap == null)
+		{
+			return null;
+		}
+
+		return new ArrayList<String>(categoryTypeMap.keySet());
+	}
+
+	/**
+	 * Return the master category map for a given type.
+	 * 
+	 * @param mediaType The media type.
+	 * @return          A map for master categories (ordered by name).
+	 */
+	@Override
+	public Map<String, Map<String, IReadableMediaCategoryType>> getMasterCategoryMapByType(EMediaType mediaType)
+	{
+		Map<String, Map<String, IReadableMediaCategoryType>> masterCategoryMap = _masterCategories.get(mediaType);
+		if (masterCategoryMap == null)
+		{
+			return Collections.emptyMap();
+		}
+
+		return masterCategoryMap;
+	}
+
+	/**
+	 * Build a virtual folder of sorted category types for the provided media type.
+	 * 
+	 * <p>
+	 * Master categories, if present, and category types are added as folders; the children of these
+	 * folders are only created when a renderer browses into them. If there are several category
+	 * types, a filter folder is added to browse media by a combination of categories (its name is
+	 * decorated if a master category or category type has the same name).
+	 * </p>
+	 * 
+	 * @param mediaType              The media type.
+	 * @param mediaTypeVirtualFolder The virtual folder to add sorted category types to for the provided media type.
+	 */
+	@Override
+	public void buildVirtualFolder(EMediaType mediaType, VirtualFolder mediaTypeVirtualFolder)
+	{
+		Map<String, Map<String, IReadableMediaCategoryType>> masterCategoryMap = getMasterCategoryMapByType(mediaType);
+		Set<String> categoryTypeNames = new HashSet<String>();
+		for(Entry<String, Map<String, IReadableMediaCategoryType>> masterCategory : masterCategoryMap.entrySet())
+		{
+			categoryTypeNames.addAll(masterCategory.getValue().keySet());
+
+			// Do we have more than one (1) master category? If so, create the master category virtual
+			// folders as a base for this sections category types. If not, add the category types
+			// to the respective media type virtual folder.
+			if (masterCategoryMap.size() > 1)
+			{
+				// Create a master category type folder (its category types are added when browsed).
+				mediaTypeVirtualFolder.addChild(new MasterCategoryFolder(masterCategory.getKey(), masterCategory.getValue()));
+				continue;
+			}
+
+			for(IReadableMediaCategoryType mediaCategoryType : masterCategory.getValue().values())
+			{
+				// Create a category type folder (its categories are added when browsed).
+				VirtualFolder categoryTypeVirtualFolder = mediaCategoryType.generateVirtualFolder();
+				mediaTypeVirtualFolder.addChild(categoryTypeVirtualFolder);
+			}
+		}
+
+		// Filtering by a combination of categories requires at least two (2) category types (the 
+		// category index is only built once the filter folder is browsed).
+		if (categoryTypeNames.size() > 1)
+		{
+			// Keep the filter folder apart from a master category or category type of the same name.
+			Set<String> folderNames = (masterCategoryMap.size() > 1 ? masterCategoryMap.keySet() : categoryTypeNames);
+			String filterName = Messages.getString("CCustomCategoryMediaLibrary.FILTER"); //$NON-NLS-1$
+			if (folderNames.contains(filterName) == true)
+			{
+				filterName = "#- " + filterName + " -#"; //$NON-NLS-1$ //$NON-NLS-2$
+			}
+
+			mediaTypeVirtualFolder.addChild(new FilterFolder(filterName, masterCategoryMap));
+		}
+	}
+
+	/**
+	 * Return whether or not two master category maps hold the same category type snapshots.
+	 * 
+	 * @param masterCategoryMap      A master category map.
+	 * @param otherMasterCategoryMap The other master category map.
+	 * @return                       True, if both maps have the same master categories, each with 
+	 *                               the same category type snapshots (in the same order); false otherwise.
+	 */
+	static boolean isSameMasterCategoryMap(Map<String, Map<String, IReadableMediaCategoryType>> masterCategoryMap, Map<String, Map<String, IReadableMediaCategoryType>> otherMasterCategoryMap)
+	{
+		if (masterCategoryMap.size() != otherMasterCategoryMap.size())
+		{
+			return false;
+		}
+
+		Iterator<Entry<String, Map<String, IReadableMediaCategoryType>>> otherIterator = otherMasterCategoryMap.entrySet().iterator();
+		for(Entry<String, Map<String, IReadableMediaCategoryType>> masterCategory : masterCategoryMap.entrySet())
+		{
+			Entry<String, Map<String, IReadableMediaCategoryType>> otherMasterCategory = otherIterator.next();
+			if (masterCategory.getKey().equals(otherMasterCategory.getKey()) == false || 
+				isSameCategoryTypeMap(masterCategory.getValue(), otherMasterCategory.getValue()) == false)
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Return whether or not two category type maps hold the same category type snapshots.
+	 * 
+	 * @param categoryTypeMap      A category type map.
+	 * @param otherCategoryTypeMap The other category type map.
+	 * @return                     True, if both maps have the same category type snapshots (in the 
+	 *                             same order); false otherwise.
+	 */
+	static boolean isSameCategoryTypeMap(Map<String, IReadableMediaCategoryType> categoryTypeMap, Map<String, IReadableMediaCategoryType> otherCategoryTypeMap)
+	{
+		if (categoryTypeMap.size() != otherCategoryTypeMap.size())
+		{
+			return false;
+		}
+
+		// Category types which have not changed are shared between snapshots; compare by identity.
+		Iterator<Entry<String, IReadableMediaCategoryType>> otherIterator = otherCategoryTypeMap.entrySet().iterator();
+		for(Entry<String, IReadableMediaCategoryType> categoryType : categoryTypeMap.entrySet())
+		{
+			Entry<String, IReadableMediaCategoryType> otherCategoryType = otherIterator.next();
+			if (categoryType.getKey().equals(otherCategoryType.getKey()) == false || categoryType.getValue() != otherCategoryType.getValue())
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,201 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaLibrary;
+import net.pms.dlna.DLNAResource;
+import net.pms.dlna.virtual.VirtualFolder;
+
+/**
+ * The root virtual folder of a library.
+ * 
+ * <p>
+ * The folder is built from the library snapshot published in an atomic reference. When a newer
+ * snapshot is published, the folder is rebuilt from it the next time a renderer browses into
+ * this folder; a renderer never sees a partially built library. Only the first level of the
+ * library is built with this folder; each deeper level is built when a renderer browses into it.
+ * </p>
+ * 
+ * <p>
+ * When rebuilt, folders built from category type snapshots shared by both library snapshots are
+ * kept (along with their materialized descendants); only the folders of changed category types
+ * are built again.
+ * </p>
+ */
+public class LibraryRootFolder extends VirtualFolder
+{
+	/**
+	 * The published library snapshot.
+	 **/
+	private final AtomicReference<IReadableMediaLibrary> _publishedLibrary;
+
+	/**
+	 * The library snapshot the children of this folder were built from (guarded by this instance).
+	 **/
+	private IReadableMediaLibrary _builtLibrary;
+
+	/**
+	 * The previous children which may be kept while this folder is rebuilt; null otherwise 
+	 * (guarded by this instance).
+	 **/
+	private ReusableFolders _reusableFolders;
+
+	/**
+	 * Initializes a new instance of LibraryRootFolder.
+	 * 
+	 * @param name             The name of this folder.
+	 * @param publishedLibrary The published library snapshot.
+	 */
+	public LibraryRootFolder(String name, AtomicReference<IReadableMediaLibrary> publishedLibrary)
+	{
+		super(name, null);
+
+		_publishedLibrary = publishedLibrary;
+	}
+
+	/**
+	 * Discover the contents of this folder from the published library snapshot.
+	 */
+	@Override
+	public synchronized void discoverChildren()
+	{
+		_builtLibrary = _publishedLibrary.get();
+		buildChildren(_builtLibrary);
+	}
+
+	/**
+	 * Return whether or not a newer library snapshot has been published.
+	 * 
+	 * @return True, if this folder should be refreshed; false otherwise.
+	 */
+	@Override
+	public synchronized boolean isRefreshNeeded()
+	{
+		return (_builtLibrary != _publishedLibrary.get());
+	}
+
+	/**
+	 * Rebuild the contents of this folder from the published library snapshot.
+	 * 
+	 * @return True, if the contents have changed; false otherwise.
+	 */
+	@Override
+	public synchronized boolean refreshChildren()
+	{
+		IReadableMediaLibrary library = _publishedLibrary.get();
+		if (library == _builtLibrary)
+		{
+			return false;
+		}
+
+		// Swap in a new list; the previous list may still be iterated by a browse.
+		ReusableFolders reusableFolders = new ReusableFolders(getChildren());
+		setChildren(new ArrayList<DLNAResource>());
+
+		_builtLibrary = library;
+		_reusableFolders = reusableFolders;
+		try
+		{
+			buildChildren(library);
+		}
+		finally
+		{
+			_reusableFolders = null;
+		}
+
+		// Folders of the previous build which were not kept are no longer browsable; kept folders
+		// which took over changed category types are built again.
+		MaterializedFolderCache.getInstance().forget(reusableFolders.getDroppedChildren());
+		for(MaterializedFolder keptFolder : reusableFolders.getKeptFolders())
+		{
+			keptFolder.rematerialize();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Add a child to this folder.
+	 * 
+	 * <p>
+	 * While this folder is rebuilt, a previous child which can stand in for the provided child is
+	 * added instead.
+	 * </p>
+	 * 
+	 * @param child The child.
+	 */
+	@Override
+	public void addChild(DLNAResource child)
+	{
+		MaterializedFolder previousChild = (_reusableFolders != null ? _reusableFolders.reuse(child) : null);
+		if (previousChild != null)
+		{
+			// Already a child of this folder; keep its identifier.
+			getChildren().add(previousChild);
+		}
+		else
+		{
+			super.addChild(child);
+		}
+	}
+
+	/**
+	 * Build the contents of this folder.
+	 * 
+	 * @param library The library snapshot.
+	 */
+	private void buildChildren(IReadableMediaLibrary library)
+	{
+		assert(library != null);
+
+		// Count how many base sections that we are using.
+		//
+		// If the count is only one (1), prevent building a base section for
+		// the single media type we are using.
+		int usedSectionsCount = 0;
+		EMediaType[] mediaTypes = EMediaType.values();
+		for(EMediaType mediaType : mediaTypes)
+		{
+			if (mediaType == EMediaType.UNKNOWN)
+			{
+				continue;
+			}
+
+			if (library.hasContent(mediaType) == true)
+			{
+				usedSectionsCount++;
+			}
+		}
+
+		// Create section(s).
+		for(EMediaType mediaType : mediaTypes)
+		{
+			if (mediaType == EMediaType.UNKNOWN)
+			{
+				continue;
+			}
+
+			if (library.hasContent(mediaType) == true)
+			{
+				if (usedSectionsCount > 1)
+				{
+					// Create a section (its contents are built when browsed).
+					addChild(new MediaTypeFolder(library, mediaType));
+				}
+				else
+				{
+					library.buildVirtualFolder(mediaType, this);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,473 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.core.interfaces.ICustomCategoryMediaLibrary;
+import me.jdknight.ums.ccml.core.interfaces.IMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaLibrary;
+import me.jdknight.ums.ccml.lang.Messages;
+import me.jdknight.ums.ccml.util.FileReplaceHelper;
+import net.pms.PMS;
+
+/**
+ * A binary snapshot of a custom category media library.
+ * 
+ * <p>
+ * A snapshot holds the media types, master categories, category types, category values and the
+ * paths of the media referenced by a library. It is stored in the profile directory so the library
+ * can be restored on startup without crawling the shared folders. All strings are kept once in a
+ * string table; the remainder of the snapshot references strings by their index.
+ * </p>
+ * 
+ * <pre>
+ * Layout (big endian):
+ *  int    magic
+ *  int    version
+ *  int    string count, followed by each string as (int length, UTF-8 bytes)
+ *  int    media type count, followed by each media type:
+ *   int   media type name (string)
+ *   int   master category count, followed by each master category:
+ *    int  master category name (string; -1 for the uncategorized master category)
+ *    int  category type count, followed by each category type:
+ *     int category type name (string)
+ *     int category count, followed by each category:
+ *      int  category name (string)
+ *      int  resource count, followed by each resource:
+ *       byte resource kind
+ *       int  path (string)
+ *       int  media type mask (directory resources only)
+ * </pre>
+ */
+public final class LibrarySnapshot
+{
+	/**
+	 * Name of the snapshot file.
+	 **/
+	private final static String SNAPSHOT_FILENAME = "PLUGIN_CCML.snapshot"; //$NON-NLS-1$
+
+	/**
+	 * Header identifying a snapshot file.
+	 **/
+	private final static int SNAPSHOT_MAGIC = 0x43434D4C;
+
+	/**
+	 * Supported snapshot file version.
+	 **/
+	private final static int SNAPSHOT_VERSION = 2;
+
+	/**
+	 * Master category name index of the uncategorized master category (its name is localized).
+	 **/
+	private final static int UNCATEGORIZED_MASTER_CATEGORY = -1;
+
+	/**
+	 * Resource kind - a media file.
+	 **/
+	private final static byte RESOURCE_KIND_FILE = 0;
+
+	/**
+	 * Resource kind - a directory of media (from a folder meta file).
+	 **/
+	private final static byte RESOURCE_KIND_DIRECTORY = 1;
+
+	/**
+	 * Character set used for strings.
+	 **/
+	private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	/**
+	 * Logger.
+	 **/
+	private static final Logger _logger = LoggerFactory.getLogger(LibrarySnapshot.class);
+
+	/**
+	 * Private constructor.
+	 **/
+	private LibrarySnapshot() {}
+
+	/**
+	 * Load the library from the snapshot in the profile directory.
+	 * 
+	 * @return The library; null if no (usable) snapshot exists.
+	 */
+	public static ICustomCategoryMediaLibrary load()
+	{
+		return load(getSnapshotFile());
+	}
+
+	/**
+	 * Load the library from the provided snapshot file.
+	 * 
+	 * @param snapshotFile The snapshot file; null if the snapshot file cannot be determined.
+	 * @return             The library; null if no (usable) snapshot exists.
+	 */
+	static ICustomCategoryMediaLibrary load(File snapshotFile)
+	{
+		if (snapshotFile == null || snapshotFile.isFile() == false)
+		{
+			return null;
+		}
+
+		// Read through a stream (not a mapping); a mapped file cannot be replaced on all platforms
+		// until the mapping is garbage collected.
+		DataInputStream input = null;
+		try
+		{
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+
+			// Different format? Ignore the snapshot; it will be replaced on the next save.
+			if (input.readInt() != SNAPSHOT_MAGIC || input.readInt() != SNAPSHOT_VERSION)
+			{
+				_logger.info("[CCML] Ignoring library snapshot of an unsupported version."); //$NON-NLS-1$
+				return null;
+			}
+
+			return read(input);
+		}
+		catch (EOFException e)
+		{
+			_logger.error("[CCML] Ignoring library snapshot as it is truncated."); //$NON-NLS-1$
+		}
+		catch (IOException e)
+		{
+			_logger.error("[CCML] Unable to read library snapshot due to an I/O error."); //$NON-NLS-1$
+		}
+		catch (NegativeArraySizeException e)
+		{
+			_logger.error("[CCML] Ignoring library snapshot as it is corrupt."); //$NON-NLS-1$
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			_logger.error("[CCML] Ignoring library snapshot as it is corrupt."); //$NON-NLS-1$
+		}
+		catch (IllegalArgumentException e)
+		{
+			_logger.error("[CCML] Ignoring library snapshot as it is corrupt."); //$NON-NLS-1$
+		}
+		finally
+		{
+			if (input != null)
+			{
+				try
+				{
+					input.close();
+				}
+				catch (IOException e)
+				{
+					// Ignore if closing has failed.
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Save a snapshot of the provided library to the profile directory.
+	 * 
+	 * <p>
+	 * The snapshot is written to a temporary file first and then moved over the existing snapshot.
+	 * </p>
+	 * 
+	 * @param library The library.
+	 * @return        True, if the snapshot was saved; false otherwise.
+	 */
+	public static boolean save(IReadableMediaLibrary library)
+	{
+		return save(library, getSnapshotFile());
+	}
+
+	/**
+	 * Save a snapshot of the provided library to the provided snapshot file.
+	 * 
+	 * @param library      The library.
+	 * @param snapshotFile The snapshot file; null if the snapshot file cannot be determined.
+	 * @return             True, if the snapshot was saved; false otherwise.
+	 */
+	static boolean save(IReadableMediaLibrary library, File snapshotFile)
+	{
+		if (snapshotFile == null)
+		{
+			return false;
+		}
+
+		File temporaryFile = new File(snapshotFile.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream output = null;
+		try
+		{
+			// Build the body first; this collects the string table.
+			Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			write(library, new DataOutputStream(body), strings);
+
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+			output.writeInt(SNAPSHOT_MAGIC);
+			output.writeInt(SNAPSHOT_VERSION);
+			output.writeInt(strings.size());
+			for(String value : strings.keySet())
+			{
+				byte[] bytes = value.getBytes(UTF8);
+				output.writeInt(bytes.length);
+				output.write(bytes);
+			}
+			body.writeTo(output);
+
+			output.close();
+			output = null;
+
+			// Replace the existing snapshot (atomically, where supported).
+			if (FileReplaceHelper.replace(temporaryFile, snapshotFile) == false)
+			{
+				_logger.error("[CCML] Unable to move library snapshot into place."); //$NON-NLS-1$
+				temporaryFile.delete();
+				return false;
+			}
+
+			_logger.debug("[CCML] Library snapshot saved."); //$NON-NLS-1$
+			return true;
+		}
+		catch (IOException e)
+		{
+			_logger.error("[CCML] Unable to write library snapshot due to an I/O error."); //$NON-NLS-1$
+		}
+		finally
+		{
+			if (output != null)
+			{
+				try
+				{
+					output.close();
+				}
+				catch (IOException e)
+				{
+					// Ignore if closing has failed.
+				}
+				temporaryFile.delete();
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Return the snapshot file.
+	 * 
+	 * @return The snapshot file; null if the snapshot file cannot be determined.
+	 */
+	private static File getSnapshotFile()
+	{
+		try
+		{
+			return new File(PMS.getConfiguration().getProfileDirectory(), SNAPSHOT_FILENAME);
+		}
+		catch (NullPointerException e)
+		{
+			_logger.error("[CCML] Cannot acquire library snapshot file as profile directory is not defined."); //$NON-NLS-1$
+		}
+
+		return null;
+	}
+
+	/**
+	 * Write the structure of a library.
+	 * 
+	 * @param library The library.
+	 * @param output  The output to write to.
+	 * @param strings The string table to populate.
+	 * 
+	 * @throws IOException Thrown if the structure could not be written.
+	 */
+	private static void write(IReadableMediaLibrary library, DataOutputStream output, Map<String, Integer> strings) throws IOException
+	{
+		String uncategorizedName = Messages.getString("CCustomCategoryMediaLibrary.UNCATEGORIZED0"); //$NON-NLS-1$
+
+		List<EMediaType> mediaTypes = new ArrayList<EMediaType>();
+		for(EMediaType mediaType : EMediaType.values())
+		{
+			if (library.hasContent(mediaType) == true)
+			{
+				mediaTypes.add(mediaType);
+			}
+		}
+
+		output.writeInt(mediaTypes.size());
+		for(EMediaType mediaType : mediaTypes)
+		{
+			output.writeInt(getStringIndex(strings, mediaType.name()));
+
+			Map<String, Map<String, IReadableMediaCategoryType>> masterCategoryMap = library.getMasterCategoryMapByType(mediaType);
+			output.writeInt(masterCategoryMap.size());
+			for(Entry<String, Map<String, IReadableMediaCategoryType>> masterCategory : masterCategoryMap.entrySet())
+			{
+				// Uncategorized? Store a fixed key, so a snapshot survives a change of locale.
+				if (masterCategory.getKey().equals(uncategorizedName) == true)
+				{
+					output.writeInt(UNCATEGORIZED_MASTER_CATEGORY);
+				}
+				else
+				{
+					output.writeInt(getStringIndex(strings, masterCategory.getKey()));
+				}
+				output.writeInt(masterCategory.getValue().size());
+				for(Entry<String, IReadableMediaCategoryType> categoryType : masterCategory.getValue().entrySet())
+				{
+					output.writeInt(getStringIndex(strings, categoryType.getKey()));
+
+					Map<String, List<MediaEntry>> categories = categoryType.getValue().getResources();
+					output.writeInt(categories.size());
+					for(Entry<String, List<MediaEntry>> category : categories.entrySet())
+					{
+						output.writeInt(getStringIndex(strings, category.getKey()));
+
+						List<MediaEntry> entries = category.getValue();
+						output.writeInt(entries.size());
+						for(MediaEntry entry : entries)
+						{
+							if (entry.isDirectory() == true)
+							{
+								output.writeByte(RESOURCE_KIND_DIRECTORY);
+								output.writeInt(getStringIndex(strings, entry.getPath()));
+
+								int mediaTypeMask = 0;
+								for(EMediaType directoryMediaType : entry.getDirectoryMediaTypes())
+								{
+									mediaTypeMask |= (1 << directoryMediaType.ordinal());
+								}
+								output.writeInt(mediaTypeMask);
+							}
+							else
+							{
+								output.writeByte(RESOURCE_KIND_FILE);
+								output.writeInt(getStringIndex(strings, entry.getPath()));
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a library from the structure of a snapshot.
+	 * 
+	 * @param input The snapshot, positioned after the header.
+	 * @return      The library.
+	 * 
+	 * @throws IOException Thrown if the structure could not be read.
+	 */
+	private static ICustomCategoryMediaLibrary read(DataInputStream input) throws IOException
+	{
+		String[] strings = new String[input.readInt()];
+		for(int stringIndex = 0; stringIndex < strings.length; stringIndex++)
+		{
+			byte[] bytes = new byte[input.readInt()];
+			input.readFully(bytes);
+			strings[stringIndex] = new String(bytes, UTF8);
+		}
+
+		ICustomCategoryMediaLibrary library = new CustomCategoryMediaLibrary();
+		int mediaTypeCount = input.readInt();
+		for(int mediaTypeIndex = 0; mediaTypeIndex < mediaTypeCount; mediaTypeIndex++)
+		{
+			EMediaType mediaType = EMediaType.valueOf(strings[input.readInt()]);
+
+			int masterCategoryCount = input.readInt();
+			for(int masterCategoryIndex = 0; masterCategoryIndex < masterCategoryCount; masterCategoryIndex++)
+			{
+				// Uncategorized? A null master category name maps to the localized name.
+				int masterCategoryTypeIndex = input.readInt();
+				String masterCategoryTypeName = (masterCategoryTypeIndex == UNCATEGORIZED_MASTER_CATEGORY ? null : strings[masterCategoryTypeIndex]);
+
+				int categoryTypeCount = input.readInt();
+				for(int categoryTypeIndex = 0; categoryTypeIndex < categoryTypeCount; categoryTypeIndex++)
+				{
+					IMediaCategoryType categoryType = library.acquireCategoryType(mediaType, masterCategoryTypeName, strings[input.readInt()]);
+
+					int categoryCount = input.readInt();
+					for(int categoryIndex = 0; categoryIndex < categoryCount; categoryIndex++)
+					{
+						String categoryName = strings[input.readInt()];
+
+						int resourceCount = input.readInt();
+						for(int resourceIndex = 0; resourceIndex < resourceCount; resourceIndex++)
+						{
+							byte resourceKind = input.readByte();
+							String path = strings[input.readInt()];
+							if (resourceKind == RESOURCE_KIND_DIRECTORY)
+							{
+								int mediaTypeMask = input.readInt();
+								EnumSet<EMediaType> directoryMediaTypes = EnumSet.noneOf(EMediaType.class);
+								for(EMediaType directoryMediaType : EMediaType.values())
+								{
+									if ((mediaTypeMask & (1 << directoryMediaType.ordinal())) != 0)
+									{
+										directoryMediaTypes.add(directoryMediaType);
+									}
+								}
+
+								// Directory entries are interned, so they are shared between categories.
+								categoryType.addResource(library.acquireDirectoryEntry(new File(path), directoryMediaTypes), categoryName);
+							}
+							else if (resourceKind == RESOURCE_KIND_FILE)
+							{
+								categoryType.addResource(library.acquireMediaEntry(new File(path), mediaType), categoryName);
+							}
+							else
+							{
+								throw new IllegalArgumentException("Unknown resource kind: " + resourceKind); //$NON-NLS-1$
+							}
+						}
+					}
+				}
+			}
+		}
+
+		return library;
+	}
+
+	/**
+	 * Return the index of a string in the string table; the string is added if not yet present.
+	 * 
+	 * @param strings The string table.
+	 * @param value   The string.
+	 * @return        The index.
+	 */
+	private static int getStringIndex(Map<String, Integer> strings, String value)
+	{
+		Integer index = strings.get(value);
+		if (index == null)
+		{
+			index = strings.size();
+			strings.put(value, index);
+		}
+
+		return index;
+	}
+}
@@ -0,0 +1,137 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import me.jdknight.ums.ccml.core.interfaces.ILibraryStatusListener;
+
+/**
+ * The progress of a library being parsed.
+ * 
+ * <p>
+ * Listeners registered after the library is ready are notified immediately.
+ * </p>
+ */
+public class LibraryStatus
+{
+	/**
+	 * The registered listeners.
+	 **/
+	private final List<ILibraryStatusListener> _listeners = new CopyOnWriteArrayList<ILibraryStatusListener>();
+
+	/**
+	 * The number of shared directories parsed so far.
+	 **/
+	private int _parsedCount;
+
+	/**
+	 * The total number of shared directories to parse.
+	 **/
+	private int _totalCount;
+
+	/**
+	 * Whether or not the library is ready.
+	 **/
+	private boolean _isReady;
+
+	/**
+	 * Register a listener.
+	 * 
+	 * @param listener The listener.
+	 */
+	public void addListener(ILibraryStatusListener listener)
+	{
+		synchronized(this)
+		{
+			if (_isReady == false)
+			{
+				_listeners.add(listener);
+				return;
+			}
+		}
+
+		listener.libraryReady();
+	}
+
+	/**
+	 * Unregister a listener.
+	 * 
+	 * @param listener The listener.
+	 */
+	public void removeListener(ILibraryStatusListener listener)
+	{
+		_listeners.remove(listener);
+	}
+
+	/**
+	 * Return whether or not the library is ready.
+	 * 
+	 * @return True, if the library is ready; false otherwise.
+	 */
+	public synchronized boolean isReady()
+	{
+		return _isReady;
+	}
+
+	/**
+	 * Flag the start of parsing and notify listeners.
+	 * 
+	 * @param totalCount The total number of shared directories to parse.
+	 */
+	public void start(int totalCount)
+	{
+		synchronized(this)
+		{
+			_parsedCount = 0;
+			_totalCount = totalCount;
+			_isReady = false;
+		}
+
+		for(ILibraryStatusListener listener : _listeners)
+		{
+			listener.parsingStarted(totalCount);
+		}
+	}
+
+	/**
+	 * Flag a shared directory as parsed and notify listeners.
+	 */
+	public void directoryParsed()
+	{
+		int parsedCount;
+		int totalCount;
+		synchronized(this)
+		{
+			parsedCount = ++_parsedCount;
+			totalCount = _totalCount;
+		}
+
+		for(ILibraryStatusListener listener : _listeners)
+		{
+			listener.directoryParsed(parsedCount, totalCount);
+		}
+	}
+
+	/**
+	 * Flag the library as ready and notify listeners.
+	 */
+	public void ready()
+	{
+		synchronized(this)
+		{
+			_isReady = true;
+		}
+
+		for(ILibraryStatusListener listener : _listeners)
+		{
+			listener.libraryReady();
+		}
+		_listeners.clear();
+	}
+}
@@ -0,0 +1,848 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.core.enumerators.EWatchResult;
+import me.jdknight.ums.ccml.core.interfaces.ICustomCategoryMediaLibrary;
+import me.jdknight.ums.ccml.core.interfaces.IMediaLibraryCrawler;
+import me.jdknight.ums.ccml.util.DirectoryListing;
+
+/**
+ * A watcher of shared directories for changes to media files and meta files.
+ * 
+ * <p>
+ * The state of each directory is recorded by the crawler as it lists the directory: the
+ * directory's modification time, the names of its media files, meta files and sub-directories
+ * (in sorted arrays, to keep the state of large libraries small) and the size and modification
+ * time of its meta files. A poll compares these against the file system. A directory is only
+ * listed again when its modification time has changed (files were added or removed). Meta files
+ * edited in place do not change the modification time of their directory; they are checked in
+ * turns, with a limited number of meta files checked per poll, so a poll does not read the state
+ * of every meta file of a large library. All changes found in a single poll are coalesced by
+ * file before they are applied to the library, so only the affected entries are removed and
+ * crawled again.
+ * </p>
+ * 
+ * <p>
+ * The media types found in the tree of each folder meta file are recorded as well. When media
+ * files or sub-directories are added or removed, the media types of the trees of the folder meta
+ * files above the changed directory are computed again from the recorded state (without listing
+ * the trees), and folder meta files whose media types have changed are crawled again.
+ * </p>
+ * 
+ * <p>
+ * If the alternative meta folder is removed, or more changes are found than can reasonably be
+ * applied one by one, an overflow is reported; the library should then be parsed again.
+ * </p>
+ * 
+ * <p>
+ * Directories may be recorded from multiple threads (for example, by a parallel crawler);
+ * polling should be done from a single thread.
+ * </p>
+ */
+public class LibraryWatcher
+{
+	/**
+	 * The maximum number of changes applied individually in a single poll.
+	 **/
+	private static final int OVERFLOW_THRESHOLD = 256;
+
+	/**
+	 * Default maximum number of meta files checked for in place edits in a single poll.
+	 **/
+	public static final int DEFAULT_META_FILE_CHECKS_PER_POLL = 1000;
+
+	/**
+	 * Extension of meta files.
+	 **/
+	private static final String META_FILE_EXTENSION = ".meta"; //$NON-NLS-1$
+
+	/**
+	 * The watched directories.
+	 **/
+	private final Map<File, WatchedDirectory> _directories = new ConcurrentHashMap<File, WatchedDirectory>();
+
+	/**
+	 * The media types found in the tree of each crawled directory with a folder meta file.
+	 **/
+	private final Map<File, EnumSet<EMediaType>> _folderMediaTypes = new ConcurrentHashMap<File, EnumSet<EMediaType>>();
+
+	/**
+	 * The maximum number of meta files checked for in place edits in a single poll; zero (0) if
+	 * every meta file is checked.
+	 **/
+	private volatile int _metaFileChecksPerPoll = DEFAULT_META_FILE_CHECKS_PER_POLL;
+
+	/**
+	 * The watched alternative meta folder; null if none is watched.
+	 **/
+	private volatile File _alternativeMetaFolder;
+
+	/**
+	 * The position, among unchanged directories, to continue checking meta files from on the next
+	 * poll (only used by the polling thread).
+	 **/
+	private int _metaFileCheckPosition;
+
+	/**
+	 * Logger.
+	 **/
+	private static final Logger _logger = LoggerFactory.getLogger(LibraryWatcher.class);
+
+	/**
+	 * Stop watching all directories.
+	 * 
+	 * <p>
+	 * Directories are watched again as they are recorded by a crawl.
+	 * </p>
+	 * 
+	 * @param alternativeMetaFolder The alternative meta folder to watch; may be null.
+	 */
+	public void reset(File alternativeMetaFolder)
+	{
+		_directories.clear();
+		_folderMediaTypes.clear();
+		_alternativeMetaFolder = null;
+
+		if (alternativeMetaFolder != null && alternativeMetaFolder.isDirectory() == true)
+		{
+			_alternativeMetaFolder = alternativeMetaFolder;
+			record(alternativeMetaFolder, DirectoryListing.list(alternativeMetaFolder));
+		}
+	}
+
+	/**
+	 * Record the state of a crawled directory.
+	 * 
+	 * <p>
+	 * The modification time of the directory should be read before it is listed, so that a
+	 * change made while listing is found on the next poll.
+	 * </p>
+	 * 
+	 * <p>
+	 * The size and modification time of each meta file in the directory are read once; the 
+	 * returned state can be used to look them up rather than reading them again.
+	 * </p>
+	 * 
+	 * @param directory    The directory.
+	 * @param lastModified The modification time of the directory before it was listed.
+	 * @param listing      The listing of the directory.
+	 * @return             The recorded state of the directory.
+	 */
+	WatchedDirectory record(File directory, long lastModified, DirectoryListing listing)
+	{
+		WatchedDirectory watchedDirectory = scan(directory, lastModified, listing);
+		_directories.put(directory, watchedDirectory);
+		return watchedDirectory;
+	}
+
+	/**
+	 * Record the state of a directory.
+	 * 
+	 * @param directory The directory.
+	 * @param listing   The listing of the directory.
+	 */
+	private void record(File directory, DirectoryListing listing)
+	{
+		record(directory, directory.lastModified(), listing);
+	}
+
+	/**
+	 * Set the maximum number of meta files checked for in place edits in a single poll.
+	 * 
+	 * <p>
+	 * Meta files are checked in turns; with N meta files, an edit is found within N divided by
+	 * this number polls.
+	 * </p>
+	 * 
+	 * @param count The number of meta files; zero (0) to check every meta file on each poll.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided count is negative.
+	 */
+	public void setMetaFileChecksPerPoll(int count)
+	{
+		if (count < 0)
+		{
+			throw new IllegalArgumentException("A non-negative meta file check count must be provided."); //$NON-NLS-1$
+		}
+
+		_metaFileChecksPerPoll = count;
+	}
+
+	/**
+	 * Record the media types found in the tree of a directory with a folder meta file.
+	 * 
+	 * @param directory  The directory.
+	 * @param mediaTypes The media types found in the directory's tree.
+	 */
+	public void recordFolderMediaTypes(File directory, EnumSet<EMediaType> mediaTypes)
+	{
+		_folderMediaTypes.put(directory, EnumSet.copyOf(mediaTypes));
+	}
+
+	/**
+	 * Collect the media types found in a directory's tree from the recorded state of the tree.
+	 * 
+	 * @param directory The directory.
+	 * @return          The media types; null if the directory (or a directory in its tree) has not
+	 *                  been recorded.
+	 */
+	public EnumSet<EMediaType> collectMediaTypes(File directory)
+	{
+		EnumSet<EMediaType> mediaTypes = EnumSet.noneOf(EMediaType.class);
+		return (collectMediaTypes(directory, mediaTypes) == true ? mediaTypes : null);
+	}
+
+	/**
+	 * Collect the media types found in a directory's tree from the recorded state of the tree.
+	 * 
+	 * @param directory  The directory.
+	 * @param mediaTypes The set to add found media types to.
+	 * @return           True, if the whole tree has been recorded; false otherwise.
+	 */
+	private boolean collectMediaTypes(File directory, EnumSet<EMediaType> mediaTypes)
+	{
+		WatchedDirectory watchedDirectory = _directories.get(directory);
+		if (watchedDirectory == null)
+		{
+			return false;
+		}
+
+		mediaTypes.addAll(watchedDirectory._mediaTypes);
+		for(String subDirectoryName : watchedDirectory._subDirectoryNames)
+		{
+			if (collectMediaTypes(new File(directory, subDirectoryName), mediaTypes) == false)
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Check the watched directories for changes and apply them to the provided library.
+	 * 
+	 * @param library The library to update.
+	 * @param crawler The crawler used to add changed entries to the library; it should record
+	 *                crawled directories with this watcher.
+	 * @return        The result of the check.
+	 */
+	public EWatchResult poll(ICustomCategoryMediaLibrary library, IMediaLibraryCrawler crawler)
+	{
+		ChangeSet changes = new ChangeSet();
+		File alternativeMetaFolder = _alternativeMetaFolder;
+		List<Entry<File, WatchedDirectory>> unchangedDirectories = new ArrayList<Entry<File, WatchedDirectory>>();
+
+		List<Entry<File, WatchedDirectory>> entries = new ArrayList<Entry<File, WatchedDirectory>>(_directories.entrySet());
+		for(Entry<File, WatchedDirectory> entry : entries)
+		{
+			File directory = entry.getKey();
+			WatchedDirectory previous = entry.getValue();
+
+			// Already dropped with a removed parent?
+			if (_directories.get(directory) != previous)
+			{
+				continue;
+			}
+
+			boolean isAlternativeMetaFolder = directory.equals(alternativeMetaFolder);
+			long lastModified = directory.lastModified();
+			if (lastModified == 0 && directory.isDirectory() == false)
+			{
+				if (isAlternativeMetaFolder == true)
+				{
+					changes._isAlternativeMetaFolderRemoved = true;
+				}
+				else
+				{
+					changes._removedDirectories.add(directory);
+					changes._changedDirectories.add(directory.getParentFile());
+				}
+				unwatchTree(directory);
+				continue;
+			}
+
+			// Files added or removed? List the directory again and compare.
+			if (lastModified != previous._lastModified)
+			{
+				WatchedDirectory current = scan(directory, lastModified, DirectoryListing.list(directory));
+				_directories.put(directory, current);
+				compare(directory, previous, current, isAlternativeMetaFolder, changes);
+			}
+			else if (previous._metaFileNames.length > 0)
+			{
+				unchangedDirectories.add(entry);
+			}
+		}
+
+		// Check (a limited number of) meta files of unchanged directories for in place edits.
+		checkMetaFiles(unchangedDirectories, alternativeMetaFolder, changes);
+
+		// Changed alternative meta files apply to media (without a local meta file) anywhere.
+		if (changes._alternativeMetaFileNames.isEmpty() == false)
+		{
+			for(Entry<File, WatchedDirectory> entry : _directories.entrySet())
+			{
+				if (entry.getKey().equals(alternativeMetaFolder) == true)
+				{
+					continue;
+				}
+
+				WatchedDirectory watchedDirectory = entry.getValue();
+				for(String fileName : watchedDirectory._mediaFileNames)
+				{
+					String metaFileName = fileName + META_FILE_EXTENSION;
+					if (changes._alternativeMetaFileNames.contains(metaFileName) == true && Arrays.binarySearch(watchedDirectory._metaFileNames, metaFileName) < 0)
+					{
+						changes._mediaFiles.add(new File(entry.getKey(), fileName));
+					}
+				}
+			}
+		}
+
+		int changeCount = changes.size();
+		if (changes._isAlternativeMetaFolderRemoved == true || changeCount > OVERFLOW_THRESHOLD)
+		{
+			_logger.info("[CCML] Too many changes found in shared directories; the library will be parsed again."); //$NON-NLS-1$
+			return EWatchResult.OVERFLOW;
+		}
+
+		if (changeCount == 0)
+		{
+			return EWatchResult.UNCHANGED;
+		}
+
+		_logger.info("[CCML] Applying " + changeCount + " changes found in shared directories."); //$NON-NLS-1$ //$NON-NLS-2$
+		if (changes._alternativeMetaFileNames.isEmpty() == false)
+		{
+			AlternativeMetaFolderIndex.getInstance().refresh(alternativeMetaFolder.getPath());
+		}
+		apply(changes, library, crawler);
+
+		return EWatchResult.UPDATED;
+	}
+
+	/**
+	 * Check the meta files of unchanged directories for in place edits.
+	 * 
+	 * <p>
+	 * Directories are checked in turns, continuing from where the last poll stopped, until the
+	 * number of meta files checked in this poll is reached.
+	 * </p>
+	 * 
+	 * @param directories           The unchanged directories (with meta files).
+	 * @param alternativeMetaFolder The watched alternative meta folder; may be null.
+	 * @param changes               The changes to populate.
+	 */
+	private void checkMetaFiles(List<Entry<File, WatchedDirectory>> directories, File alternativeMetaFolder, ChangeSet changes)
+	{
+		int directoryCount = directories.size();
+		if (directoryCount == 0)
+		{
+			return;
+		}
+
+		int maximumFileCount = (_metaFileChecksPerPoll > 0 ? _metaFileChecksPerPoll : Integer.MAX_VALUE);
+		int position = _metaFileCheckPosition % directoryCount;
+		int checkedDirectoryCount = 0;
+		int checkedFileCount = 0;
+		while (checkedDirectoryCount < directoryCount && checkedFileCount < maximumFileCount)
+		{
+			Entry<File, WatchedDirectory> entry = directories.get((position + checkedDirectoryCount) % directoryCount);
+			File directory = entry.getKey();
+			WatchedDirectory watchedDirectory = entry.getValue();
+			checkedDirectoryCount++;
+
+			// Dropped with a removed parent in this poll?
+			if (_directories.get(directory) != watchedDirectory)
+			{
+				continue;
+			}
+
+			boolean isAlternativeMetaFolder = directory.equals(alternativeMetaFolder);
+			String[] metaFileNames = watchedDirectory._metaFileNames;
+			for(int index = 0; index < metaFileNames.length; index++)
+			{
+				File metaFile = new File(directory, metaFileNames[index]);
+				long length = metaFile.length();
+				long lastModified = metaFile.lastModified();
+				if (length != watchedDirectory._metaFileLengths[index] || lastModified != watchedDirectory._metaFileLastModifieds[index])
+				{
+					watchedDirectory._metaFileLengths[index] = length;
+					watchedDirectory._metaFileLastModifieds[index] = lastModified;
+					changes.addFile(directory, metaFileNames[index], isAlternativeMetaFolder);
+				}
+			}
+
+			checkedFileCount += metaFileNames.length;
+		}
+
+		_metaFileCheckPosition = position + checkedDirectoryCount;
+	}
+
+	/**
+	 * Compare the previous and current state of a directory.
+	 * 
+	 * @param directory               The directory.
+	 * @param previous                The previous state.
+	 * @param current                 The current state.
+	 * @param isAlternativeMetaFolder True, if the directory is the alternative meta folder.
+	 * @param changes                 The changes to populate.
+	 */
+	private void compare(File directory, WatchedDirectory previous, WatchedDirectory current, boolean isAlternativeMetaFolder, ChangeSet changes)
+	{
+		// Added or removed media files and meta files.
+		List<String> changedFileNames = new ArrayList<String>();
+		addMissing(current._mediaFileNames, previous._mediaFileNames, changedFileNames);
+		addMissing(previous._mediaFileNames, current._mediaFileNames, changedFileNames);
+		addMissing(current._metaFileNames, previous._metaFileNames, changedFileNames);
+		addMissing(previous._metaFileNames, current._metaFileNames, changedFileNames);
+
+		// Replaced or edited meta files.
+		for(int index = 0; index < current._metaFileNames.length; index++)
+		{
+			int previousIndex = Arrays.binarySearch(previous._metaFileNames, current._metaFileNames[index]);
+			if (previousIndex >= 0 &&
+					(previous._metaFileLengths[previousIndex] != current._metaFileLengths[index] ||
+					previous._metaFileLastModifieds[previousIndex] != current._metaFileLastModifieds[index]))
+			{
+				changedFileNames.add(current._metaFileNames[index]);
+			}
+		}
+
+		for(String fileName : changedFileNames)
+		{
+			changes.addFile(directory, fileName, isAlternativeMetaFolder);
+		}
+
+		// Sub-directories of the alternative meta folder are not shared.
+		if (isAlternativeMetaFolder == true)
+		{
+			return;
+		}
+
+		// Media or sub-directories added or removed? The media types of trees above may change.
+		if (Arrays.equals(previous._mediaFileNames, current._mediaFileNames) == false || Arrays.equals(previous._subDirectoryNames, current._subDirectoryNames) == false)
+		{
+			changes._changedDirectories.add(directory);
+		}
+
+		List<String> addedSubDirectoryNames = new ArrayList<String>();
+		addMissing(current._subDirectoryNames, previous._subDirectoryNames, addedSubDirectoryNames);
+		for(String subDirectoryName : addedSubDirectoryNames)
+		{
+			changes._addedDirectories.add(new File(directory, subDirectoryName));
+		}
+
+		List<String> removedSubDirectoryNames = new ArrayList<String>();
+		addMissing(previous._subDirectoryNames, current._subDirectoryNames, removedSubDirectoryNames);
+		for(String subDirectoryName : removedSubDirectoryNames)
+		{
+			File subDirectory = new File(directory, subDirectoryName);
+			changes._removedDirectories.add(subDirectory);
+			unwatchTree(subDirectory);
+		}
+	}
+
+	/**
+	 * Add the names of a sorted array which are missing from another sorted array.
+	 * 
+	 * @param names    The names (sorted).
+	 * @param others   The other names (sorted).
+	 * @param missing  The list to add the missing names to.
+	 */
+	private static void addMissing(String[] names, String[] others, List<String> missing)
+	{
+		for(String name : names)
+		{
+			if (Arrays.binarySearch(others, name) < 0)
+			{
+				missing.add(name);
+			}
+		}
+	}
+
+	/**
+	 * Apply a set of changes to the provided library.
+	 * 
+	 * @param changes The changes.
+	 * @param library The library to update.
+	 * @param crawler The crawler used to add changed entries to the library.
+	 */
+	private void apply(ChangeSet changes, ICustomCategoryMediaLibrary library, IMediaLibraryCrawler crawler)
+	{
+		for(File directory : changes._removedDirectories)
+		{
+			_logger.trace("[CCML] Removing directory: " + directory); //$NON-NLS-1$
+			library.removeResourcesWithin(directory);
+		}
+
+		for(File mediaFile : changes._mediaFiles)
+		{
+			_logger.trace("[CCML] Updating media file: " + mediaFile); //$NON-NLS-1$
+			library.removeResources(mediaFile);
+			crawler.crawlFile(mediaFile);
+		}
+
+		for(File directory : changes._addedDirectories)
+		{
+			_logger.trace("[CCML] Adding directory: " + directory); //$NON-NLS-1$
+			crawler.crawl(new File[] { directory });
+		}
+
+		// Folder meta files are handled once added directories are recorded, so the media types 
+		// of their trees are known.
+		Set<File> folderMetaDirectories = new LinkedHashSet<File>(changes._folderMetaDirectories);
+		addChangedFolderMetaDirectories(changes._changedDirectories, folderMetaDirectories);
+		for(File directory : folderMetaDirectories)
+		{
+			_logger.trace("[CCML] Updating folder meta file: " + directory); //$NON-NLS-1$
+			library.removeResources(directory);
+			crawler.crawlFolderMeta(directory);
+		}
+	}
+
+	/**
+	 * Find the folder meta files whose tree's media types have changed.
+	 * 
+	 * <p>
+	 * Only the watched directories above each changed directory (and the changed directory itself)
+	 * are checked; the media types of their trees are computed from the recorded state.
+	 * </p>
+	 * 
+	 * @param changedDirectories    The directories which had media or sub-directories added or removed.
+	 * @param folderMetaDirectories The set to add the directories of changed folder meta files to.
+	 */
+	private void addChangedFolderMetaDirectories(Set<File> changedDirectories, Set<File> folderMetaDirectories)
+	{
+		Set<File> checkedDirectories = new HashSet<File>();
+		for(File changedDirectory : changedDirectories)
+		{
+			File directory = changedDirectory;
+			while (directory != null && checkedDirectories.add(directory) == true)
+			{
+				WatchedDirectory watchedDirectory = _directories.get(directory);
+				if (watchedDirectory == null)
+				{
+					break;
+				}
+
+				EnumSet<EMediaType> recordedMediaTypes = _folderMediaTypes.get(directory);
+				if (recordedMediaTypes != null && Arrays.binarySearch(watchedDirectory._metaFileNames, CcmlRootFolderListener.FOLDER_FOLDER_NAME) >= 0)
+				{
+					EnumSet<EMediaType> mediaTypes = collectMediaTypes(directory);
+					if (mediaTypes != null && mediaTypes.equals(recordedMediaTypes) == false)
+					{
+						folderMetaDirectories.add(directory);
+					}
+				}
+
+				directory = directory.getParentFile();
+			}
+		}
+	}
+
+	/**
+	 * Stop watching the provided directory and its sub-directories.
+	 * 
+	 * @param directory The directory.
+	 */
+	private void unwatchTree(File directory)
+	{
+		removeTree(_directories.keySet(), directory);
+		removeTree(_folderMediaTypes.keySet(), directory);
+	}
+
+	/**
+	 * Remove a directory and its sub-directories from a set of directories.
+	 * 
+	 * @param directories The set of directories.
+	 * @param directory   The directory.
+	 */
+	private static void removeTree(Set<File> directories, File directory)
+	{
+		String pathPrefix = directory.getPath() + File.separator;
+
+		Iterator<File> iterator = directories.iterator();
+		while (iterator.hasNext() == true)
+		{
+			File watchedDirectory = iterator.next();
+			if (watchedDirectory.equals(directory) == true || watchedDirectory.getPath().startsWith(pathPrefix) == true)
+			{
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Build the state of a directory from its listing.
+	 * 
+	 * @param directory    The directory.
+	 * @param lastModified The modification time of the directory before it was listed.
+	 * @param listing      The listing of the directory.
+	 * @return             The state of the directory.
+	 */
+	private static WatchedDirectory scan(File directory, long lastModified, DirectoryListing listing)
+	{
+		List<String> mediaFileNames = new ArrayList<String>();
+		List<String> metaFileNames = new ArrayList<String>();
+		EnumSet<EMediaType> mediaTypes = EnumSet.noneOf(EMediaType.class);
+		for(File file : listing.getFiles())
+		{
+			String fileName = file.getName();
+			if (fileName.endsWith(META_FILE_EXTENSION) == true)
+			{
+				metaFileNames.add(fileName);
+				continue;
+			}
+
+			EMediaType mediaType = EMediaType.get(LazyCompatibility.getAssociatedExtension(file.getPath()));
+			if (mediaType != EMediaType.UNKNOWN)
+			{
+				mediaFileNames.add(fileName);
+				mediaTypes.add(mediaType);
+			}
+		}
+
+		List<File> subDirectories = listing.getDirectories();
+		String[] subDirectoryNames = new String[subDirectories.size()];
+		for(int index = 0; index < subDirectoryNames.length; index++)
+		{
+			subDirectoryNames[index] = subDirectories.get(index).getName();
+		}
+
+		return new WatchedDirectory(lastModified, toSortedArray(mediaFileNames), mediaTypes, toSortedArray(metaFileNames), sort(subDirectoryNames), directory);
+	}
+
+	/**
+	 * Return a sorted array of names.
+	 * 
+	 * @param names The names.
+	 * @return      The sorted array.
+	 */
+	private static String[] toSortedArray(List<String> names)
+	{
+		return sort(names.toArray(new String[names.size()]));
+	}
+
+	/**
+	 * Sort an array of names.
+	 * 
+	 * @param names The names.
+	 * @return      The (sorted) array.
+	 */
+	private static String[] sort(String[] names)
+	{
+		Arrays.sort(names);
+		return names;
+	}
+
+	/**
+	 * The last known state of a watched directory.
+	 */
+	static final class WatchedDirectory
+	{
+		/**
+		 * The modification time of the directory.
+		 **/
+		private final long _lastModified;
+
+		/**
+		 * The names of the media files in the directory (sorted).
+		 **/
+		private final String[] _mediaFileNames;
+
+		/**
+		 * The media types of the media files in the directory.
+		 **/
+		private final EnumSet<EMediaType> _mediaTypes;
+
+		/**
+		 * The names of the meta files in the directory (sorted).
+		 **/
+		private final String[] _metaFileNames;
+
+		/**
+		 * The size of each meta file (in the order of the meta file names).
+		 **/
+		private final long[] _metaFileLengths;
+
+		/**
+		 * The modification time of each meta file (in the order of the meta file names).
+		 **/
+		private final long[] _metaFileLastModifieds;
+
+		/**
+		 * The names of the sub-directories of the directory (sorted).
+		 **/
+		private final String[] _subDirectoryNames;
+
+		/**
+		 * Initializes a new instance of WatchedDirectory.
+		 * 
+		 * <p>
+		 * The size and modification time of each meta file is read.
+		 * </p>
+		 * 
+		 * @param lastModified      The modification time of the directory.
+		 * @param mediaFileNames    The names of the media files in the directory (sorted).
+		 * @param mediaTypes        The media types of the media files in the directory.
+		 * @param metaFileNames     The names of the meta files in the directory (sorted).
+		 * @param subDirectoryNames The names of the sub-directories of the directory (sorted).
+		 * @param directory         The directory.
+		 */
+		public WatchedDirectory(long lastModified, String[] mediaFileNames, EnumSet<EMediaType> mediaTypes, String[] metaFileNames, String[] subDirectoryNames, File directory)
+		{
+			_lastModified = lastModified;
+			_mediaFileNames = mediaFileNames;
+			_mediaTypes = mediaTypes;
+			_metaFileNames = metaFileNames;
+			_subDirectoryNames = subDirectoryNames;
+
+			_metaFileLengths = new long[metaFileNames.length];
+			_metaFileLastModifieds = new long[metaFileNames.length];
+			for(int index = 0; index < metaFileNames.length; index++)
+			{
+				File metaFile = new File(directory, metaFileNames[index]);
+				_metaFileLengths[index] = metaFile.length();
+				_metaFileLastModifieds[index] = metaFile.lastModified();
+			}
+		}
+
+		/**
+		 * Return the position of a meta file in the directory.
+		 * 
+		 * @param metaFileName The name of the meta file.
+		 * @return             The position; a negative value if the meta file was not recorded.
+		 */
+		int indexOfMetaFile(String metaFileName)
+		{
+			return Arrays.binarySearch(_metaFileNames, metaFileName);
+		}
+
+		/**
+		 * Return the recorded size of a meta file.
+		 * 
+		 * @param index The position of the meta file.
+		 * @return      The size.
+		 */
+		long getMetaFileLength(int index)
+		{
+			return _metaFileLengths[index];
+		}
+
+		/**
+		 * Return the recorded modification time of a meta file.
+		 * 
+		 * @param index The position of the meta file.
+		 * @return      The modification time.
+		 */
+		long getMetaFileLastModified(int index)
+		{
+			return _metaFileLastModifieds[index];
+		}
+	}
+
+	/**
+	 * The coalesced changes found in a single poll.
+	 */
+	private static final class ChangeSet
+	{
+		/**
+		 * Media files which were added, removed or had their meta file changed.
+		 **/
+		private final Set<File> _mediaFiles = new LinkedHashSet<File>();
+
+		/**
+		 * Directories which had their folder meta file changed.
+		 **/
+		private final Set<File> _folderMetaDirectories = new LinkedHashSet<File>();
+
+		/**
+		 * Directories which were added.
+		 **/
+		private final Set<File> _addedDirectories = new LinkedHashSet<File>();
+
+		/**
+		 * Directories which were removed.
+		 **/
+		private final Set<File> _removedDirectories = new LinkedHashSet<File>();
+
+		/**
+		 * Directories which had media files or sub-directories added or removed.
+		 **/
+		private final Set<File> _changedDirectories = new LinkedHashSet<File>();
+
+		/**
+		 * Names of meta files which changed in the alternative meta folder.
+		 **/
+		private final Set<String> _alternativeMetaFileNames = new HashSet<String>();
+
+		/**
+		 * Whether or not the alternative meta folder was removed.
+		 **/
+		private boolean _isAlternativeMetaFolderRemoved;
+
+		/**
+		 * Add a changed file.
+		 * 
+		 * @param directory               The directory of the file.
+		 * @param fileName                The name of the file.
+		 * @param isAlternativeMetaFolder True, if the directory is the alternative meta folder.
+		 */
+		public void addFile(File directory, String fileName, boolean isAlternativeMetaFolder)
+		{
+			if (isAlternativeMetaFolder == true)
+			{
+				if (fileName.endsWith(META_FILE_EXTENSION) == true)
+				{
+					_alternativeMetaFileNames.add(fileName);
+				}
+			}
+			else if (fileName.equalsIgnoreCase(CcmlRootFolderListener.FOLDER_FOLDER_NAME) == true)
+			{
+				_folderMetaDirectories.add(directory);
+			}
+			else if (fileName.endsWith(META_FILE_EXTENSION) == true)
+			{
+				_mediaFiles.add(new File(directory, fileName.substring(0, fileName.length() - META_FILE_EXTENSION.length())));
+			}
+			else
+			{
+				_mediaFiles.add(new File(directory, fileName));
+			}
+		}
+
+		/**
+		 * Return the number of changes.
+		 * 
+		 * @return The number of changes.
+		 */
+		public int size()
+		{
+			return _mediaFiles.size() + _folderMetaDirectories.size() + _addedDirectories.size() + _removedDirectories.size();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.Map;
+
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaCategoryType;
+
+/**
+ * A virtual folder for the category types of a master category.
+ * 
+ * <p>
+ * The category type folders are only created the first time a renderer browses into this folder.
+ * </p>
+ */
+public class MasterCategoryFolder extends MaterializedFolder
+{
+	/**
+	 * The (sorted) category types of the master category (guarded by this instance).
+	 **/
+	private Map<String, IReadableMediaCategoryType> _categoryTypes;
+
+	/**
+	 * Initializes a new instance of MasterCategoryFolder.
+	 * 
+	 * @param name          The name of the master category.
+	 * @param categoryTypes The (sorted) category types of the master category.
+	 */
+	public MasterCategoryFolder(String name, Map<String, IReadableMediaCategoryType> categoryTypes)
+	{
+		super(name);
+
+		_categoryTypes = categoryTypes;
+	}
+
+	/**
+	 * Create the folders of the category types of this master category.
+	 */
+	@Override
+	protected void materializeChildren()
+	{
+		for(IReadableMediaCategoryType mediaCategoryType : _categoryTypes.values())
+		{
+			addChild(mediaCategoryType.generateVirtualFolder());
+		}
+	}
+
+	/**
+	 * Stand in for the folder of the same master category built from a newer library snapshot.
+	 * 
+	 * <p>
+	 * If the master category's category types have changed, this folder takes them over and is
+	 * invalidated; the folders of unchanged category types are kept when it is rematerialized.
+	 * </p>
+	 * 
+	 * @param folder The folder built from the newer library snapshot.
+	 * @return       True, if this folder stands in for the provided folder; false otherwise.
+	 */
+	@Override
+	protected boolean update(MaterializedFolder folder)
+	{
+		if ((folder instanceof MasterCategoryFolder) == false || getName().equals(folder.getName()) == false)
+		{
+			return false;
+		}
+
+		Map<String, IReadableMediaCategoryType> categoryTypes = ((MasterCategoryFolder) folder).getCategoryTypes();
+		synchronized(this)
+		{
+			if (ImmutableMediaLibrary.isSameCategoryTypeMap(_categoryTypes, categoryTypes) == false)
+			{
+				_categoryTypes = categoryTypes;
+				invalidate();
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Return the category types of the master category.
+	 * 
+	 * @return The (sorted) category types.
+	 */
+	private synchronized Map<String, IReadableMediaCategoryType> getCategoryTypes()
+	{
+		return _categoryTypes;
+	}
+}
@@ -0,0 +1,265 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.pms.dlna.DLNAResource;
+import net.pms.dlna.virtual.VirtualFolder;
+
+/**
+ * A virtual folder whose children are created from the library when a renderer browses into it.
+ * 
+ * <p>
+ * Materialized folders are tracked by the materialized folder cache. When the cache evicts a
+ * folder, its children are dropped; they are created again the next time the folder is browsed.
+ * </p>
+ * 
+ * <p>
+ * When a newer library snapshot is published, a folder may take over the snapshots of the folder
+ * which would replace it (see update); if it is materialized, its children are then created again
+ * from these snapshots, keeping the previous children which can stand in for the new ones.
+ * </p>
+ * 
+ * <p>
+ * When several renderers browse the same folder at once, the first browse creates the children
+ * while the others wait on the folder's monitor and then find them created.
+ * </p>
+ */
+public abstract class MaterializedFolder extends VirtualFolder
+{
+	/**
+	 * Whether or not the children of this folder have been created (guarded by this instance).
+	 **/
+	private boolean _isMaterialized;
+
+	/**
+	 * Whether or not the children of this folder were created from snapshots this folder no longer
+	 * holds (guarded by this instance).
+	 **/
+	private boolean _isStale;
+
+	/**
+	 * The previous children which may be kept while the children of this folder are created again;
+	 * null otherwise (guarded by this instance).
+	 **/
+	private ReusableFolders _reusableFolders;
+
+	/**
+	 * Initializes a new instance of MaterializedFolder.
+	 * 
+	 * @param name The name of this folder.
+	 */
+	public MaterializedFolder(String name)
+	{
+		super(name, null);
+	}
+
+	/**
+	 * Create the children of this folder.
+	 */
+	protected abstract void materializeChildren();
+
+	/**
+	 * Discover the children of this folder.
+	 */
+	@Override
+	public void discoverChildren()
+	{
+		int childCount;
+		synchronized(this)
+		{
+			if (_isMaterialized == true)
+			{
+				return;
+			}
+
+			materializeChildren();
+			_isMaterialized = true;
+			childCount = getChildCount();
+		}
+
+		// Never call into the cache while holding this folder's monitor (the cache evicts folders).
+		MaterializedFolderCache.getInstance().materialized(this, childCount);
+	}
+
+	/**
+	 * Return whether or not this folder should be refreshed.
+	 * 
+	 * <p>
+	 * A browse of an already materialized folder is recorded as a cache hit.
+	 * </p>
+	 * 
+	 * @return True, if the children of this folder have been evicted (and must be created again); 
+	 *         false otherwise.
+	 */
+	@Override
+	public boolean isRefreshNeeded()
+	{
+		MaterializedFolderCache.getInstance().hit(this);
+
+		synchronized(this)
+		{
+			return (_isMaterialized == false);
+		}
+	}
+
+	/**
+	 * Create the children of this folder again if they have been evicted.
+	 * 
+	 * @return True, if the children have been created; false if they were kept.
+	 */
+	@Override
+	public boolean refreshChildren()
+	{
+		synchronized(this)
+		{
+			if (_isMaterialized == true)
+			{
+				return false;
+			}
+		}
+
+		discoverChildren();
+		return true;
+	}
+
+	/**
+	 * Take over the snapshots of a folder built from a newer library snapshot, so this folder can be
+	 * kept in its place.
+	 * 
+	 * <p>
+	 * A folder built from the same snapshots is kept as is. A folder which takes over different
+	 * snapshots must invalidate itself, so its children are created again.
+	 * </p>
+	 * 
+	 * @param folder The folder built from the newer library snapshot.
+	 * @return       True, if this folder stands in for the provided folder; false if it is replaced.
+	 */
+	protected boolean update(MaterializedFolder folder)
+	{
+		return false;
+	}
+
+	/**
+	 * Mark the children of this folder as created from snapshots this folder no longer holds.
+	 * 
+	 * <p>
+	 * The children are created again by the next rematerialize (if this folder is materialized).
+	 * </p>
+	 */
+	protected synchronized void invalidate()
+	{
+		_isStale = true;
+	}
+
+	/**
+	 * Create the children of this folder again if it has been invalidated.
+	 * 
+	 * <p>
+	 * Previous children which can stand in for the new children are kept (and are created again
+	 * themselves if they have taken over different snapshots); dropped children are forgotten by
+	 * the materialized folder cache. A folder which is not materialized creates its children when
+	 * next browsed.
+	 * </p>
+	 */
+	void rematerialize()
+	{
+		int childCount;
+		ReusableFolders reusableFolders;
+		synchronized(this)
+		{
+			if (_isStale == false)
+			{
+				return;
+			}
+
+			_isStale = false;
+			if (_isMaterialized == false)
+			{
+				return;
+			}
+
+			// Swap in a new list; the previous list may still be iterated by a browse.
+			reusableFolders = new ReusableFolders(getChildren());
+			setChildren(new ArrayList<DLNAResource>());
+
+			_reusableFolders = reusableFolders;
+			try
+			{
+				materializeChildren();
+			}
+			finally
+			{
+				_reusableFolders = null;
+			}
+
+			childCount = getChildCount();
+		}
+
+		// Never call into the cache while holding this folder's monitor (the cache evicts folders).
+		MaterializedFolderCache.getInstance().rematerialized(this, childCount, reusableFolders.getDroppedChildren());
+
+		for(MaterializedFolder keptFolder : reusableFolders.getKeptFolders())
+		{
+			keptFolder.rematerialize();
+		}
+	}
+
+	/**
+	 * Add a child to this folder.
+	 * 
+	 * <p>
+	 * While the children of this folder are created again, a previous child which can stand in for
+	 * the provided child is added instead.
+	 * </p>
+	 * 
+	 * @param child The child.
+	 */
+	@Override
+	public void addChild(DLNAResource child)
+	{
+		MaterializedFolder previousChild = (_reusableFolders != null ? _reusableFolders.reuse(child) : null);
+		if (previousChild != null)
+		{
+			// Already a child of this folder; keep its identifier.
+			getChildren().add(previousChild);
+		}
+		else
+		{
+			super.addChild(child);
+		}
+	}
+
+	/**
+	 * Evict the children of this folder.
+	 * 
+	 * <p>
+	 * The children will be created again the next time this folder is browsed.
+	 * </p>
+	 */
+	public synchronized void evictChildren()
+	{
+		// Swap in a new list; the previous list may still be iterated by a browse.
+		setChildren(new ArrayList<DLNAResource>());
+
+		_isMaterialized = false;
+		setDiscovered(false);
+	}
+
+	/**
+	 * Return the number of children of this folder.
+	 * 
+	 * @return The number of children.
+	 */
+	private int getChildCount()
+	{
+		List<DLNAResource> children = getChildren();
+		return (children != null ? children.size() : 0);
+	}
+}
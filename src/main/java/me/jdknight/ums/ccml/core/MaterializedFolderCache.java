@@ -0,0 +1,435 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.pms.dlna.DLNAResource;
+
+/**
+ * A bounded, least recently used cache of materialized folders.
+ * 
+ * <p>
+ * Folders are kept by identity (two categories may share a name). The cache is bounded by the total number
+ * of children of its folders; when the bound is exceeded, the children of the least recently
+ * browsed folders are evicted (and created again from the library on their next browse). Often
+ * browsed folders stay materialized while rarely browsed folders do not pin memory.
+ * </p>
+ * 
+ * <p>
+ * Evicting a folder drops its children, so materialized folders below it are removed from the
+ * cache (and evicted) along with it. A folder above the folder being materialized is never
+ * evicted.
+ * </p>
+ * 
+ * <p>
+ * The cache's statistics (hits, misses and evictions) are logged every thousand misses, so the
+ * capacity can be tuned from the log.
+ * </p>
+ */
+public final class MaterializedFolderCache
+{
+	/**
+	 * Default number of children kept by materialized folders.
+	 **/
+	public static final int DEFAULT_CAPACITY = 20000;
+
+	/**
+	 * The number of misses between two reports of the cache's statistics.
+	 **/
+	private static final int STATISTICS_INTERVAL = 1000;
+
+	/**
+	 * Cache instance.
+	 **/
+	private static final MaterializedFolderCache _instance = new MaterializedFolderCache();
+
+	/**
+	 * Logger.
+	 **/
+	private static final Logger _logger = LoggerFactory.getLogger(MaterializedFolderCache.class);
+
+	/**
+	 * The materialized folders (in least recently browsed order).
+	 **/
+	private final LinkedHashMap<MaterializedFolder, CachedFolder> _folders = new LinkedHashMap<MaterializedFolder, CachedFolder>(16, 0.75f, true);
+
+	/**
+	 * The maximum number of children kept by materialized folders; zero (0) if unbounded.
+	 **/
+	private int _capacity = DEFAULT_CAPACITY;
+
+	/**
+	 * The number of children kept by materialized folders.
+	 **/
+	private int _size;
+
+	/**
+	 * The number of browses of already materialized folders.
+	 **/
+	private long _hitCount;
+
+	/**
+	 * The number of browses which materialized a folder.
+	 **/
+	private long _missCount;
+
+	/**
+	 * The number of evicted folders.
+	 **/
+	private long _evictionCount;
+
+	/**
+	 * Private constructor.
+	 **/
+	private MaterializedFolderCache() {}
+
+	/**
+	 * Return the cache instance.
+	 * 
+	 * @return The instance.
+	 */
+	public static MaterializedFolderCache getInstance()
+	{
+		return _instance;
+	}
+
+	/**
+	 * Set the maximum number of children kept by materialized folders.
+	 * 
+	 * @param capacity The capacity; zero (0) if unbounded.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided capacity is negative.
+	 */
+	public void setCapacity(int capacity)
+	{
+		if (capacity < 0)
+		{
+			throw new IllegalArgumentException("A non-negative capacity must be provided."); //$NON-NLS-1$
+		}
+
+		List<MaterializedFolder> evictedFolders;
+		synchronized(this)
+		{
+			_capacity = capacity;
+			evictedFolders = trim(null);
+		}
+
+		evict(evictedFolders);
+	}
+
+	/**
+	 * Record a browse which materialized the provided folder.
+	 * 
+	 * @param folder     The folder.
+	 * @param childCount The number of children of the folder.
+	 */
+	public void materialized(MaterializedFolder folder, int childCount)
+	{
+		List<MaterializedFolder> evictedFolders;
+		String statistics = null;
+		synchronized(this)
+		{
+			_missCount++;
+			if (_missCount % STATISTICS_INTERVAL == 0)
+			{
+				statistics = getStatistics();
+			}
+
+			// Replace the folder's previous entry (if it has been materialized again meanwhile).
+			CachedFolder previous = _folders.put(folder, new CachedFolder(folder, childCount));
+			if (previous != null)
+			{
+				_size -= previous._childCount;
+			}
+			_size += childCount;
+
+			evictedFolders = trim(folder);
+		}
+
+		if (statistics != null)
+		{
+			_logger.info("[CCML] Materialized folder cache: " + statistics); //$NON-NLS-1$
+		}
+
+		evict(evictedFolders);
+	}
+
+	/**
+	 * Record a browse of the provided (materialized) folder.
+	 * 
+	 * @param folder The folder.
+	 */
+	public synchronized void hit(MaterializedFolder folder)
+	{
+		if (_folders.get(folder) != null)
+		{
+			_hitCount++;
+		}
+	}
+
+	/**
+	 * Record that the children of the provided folder were created again from a newer library 
+	 * snapshot.
+	 * 
+	 * <p>
+	 * Folders which are (or are below) the dropped children are forgotten (without evicting them; 
+	 * they are no longer browsable). The folder is not counted as a miss.
+	 * </p>
+	 * 
+	 * @param folder          The folder.
+	 * @param childCount      The number of children of the folder.
+	 * @param droppedChildren The previous children of the folder which were not kept.
+	 */
+	public void rematerialized(MaterializedFolder folder, int childCount, List<DLNAResource> droppedChildren)
+	{
+		List<MaterializedFolder> evictedFolders;
+		synchronized(this)
+		{
+			removeWithin(droppedChildren);
+
+			// Only update a folder still in the cache (an evicted folder is not materialized).
+			CachedFolder previous = _folders.get(folder);
+			if (previous != null)
+			{
+				_folders.put(folder, new CachedFolder(folder, childCount));
+				_size += childCount - previous._childCount;
+			}
+
+			evictedFolders = trim(folder);
+		}
+
+		evict(evictedFolders);
+	}
+
+	/**
+	 * Forget the provided folders and the folders below them (without evicting them).
+	 * 
+	 * <p>
+	 * This should be invoked when library folders are dropped from their parent; they are then 
+	 * no longer referenced by this cache.
+	 * </p>
+	 * 
+	 * @param folders The dropped folders.
+	 */
+	public synchronized void forget(List<DLNAResource> folders)
+	{
+		removeWithin(folders);
+	}
+
+	/**
+	 * Return the number of browses of already materialized folders.
+	 * 
+	 * @return The number of hits.
+	 */
+	public synchronized long getHitCount()
+	{
+		return _hitCount;
+	}
+
+	/**
+	 * Return the number of browses which materialized a folder.
+	 * 
+	 * @return The number of misses.
+	 */
+	public synchronized long getMissCount()
+	{
+		return _missCount;
+	}
+
+	/**
+	 * Return the number of evicted folders.
+	 * 
+	 * @return The number of evictions.
+	 */
+	public synchronized long getEvictionCount()
+	{
+		return _evictionCount;
+	}
+
+	/**
+	 * Return a description of the cache's statistics.
+	 * 
+	 * @return The description.
+	 */
+	public synchronized String getStatistics()
+	{
+		return _folders.size() + " folders, " + _size + "/" + (_capacity > 0 ? String.valueOf(_capacity) : "unbounded") + " children, " + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			_hitCount + " hits, " + _missCount + " misses, " + _evictionCount + " evictions"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	/**
+	 * Remove the least recently browsed folders until the cache is within its capacity.
+	 * 
+	 * @param keptFolder A folder which is never removed; may be null.
+	 * @return           The removed folders.
+	 */
+	private List<MaterializedFolder> trim(MaterializedFolder keptFolder)
+	{
+		List<MaterializedFolder> evictedFolders = new ArrayList<MaterializedFolder>();
+		if (_capacity == 0)
+		{
+			return evictedFolders;
+		}
+
+		Iterator<CachedFolder> iterator = _folders.values().iterator();
+		while (_size > _capacity && iterator.hasNext() == true)
+		{
+			CachedFolder cachedFolder = iterator.next();
+			if (keptFolder != null && isWithin(keptFolder, cachedFolder._folder) == true)
+			{
+				continue;
+			}
+
+			iterator.remove();
+			_size -= cachedFolder._childCount;
+			_evictionCount++;
+			evictedFolders.add(cachedFolder._folder);
+		}
+
+		if (evictedFolders.isEmpty() == false)
+		{
+			removeDescendants(evictedFolders);
+			_logger.trace("[CCML] Evicted " + evictedFolders.size() + " materialized folder(s): " + getStatistics()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		return evictedFolders;
+	}
+
+	/**
+	 * Remove the folders below the provided (removed) folders from the cache.
+	 * 
+	 * @param evictedFolders The removed folders; folders removed below them are added.
+	 */
+	private void removeDescendants(List<MaterializedFolder> evictedFolders)
+	{
+		Set<DLNAResource> ancestors = Collections.newSetFromMap(new IdentityHashMap<DLNAResource, Boolean>());
+		ancestors.addAll(evictedFolders);
+
+		Iterator<CachedFolder> iterator = _folders.values().iterator();
+		while (iterator.hasNext() == true)
+		{
+			CachedFolder cachedFolder = iterator.next();
+			for(DLNAResource parent = cachedFolder._folder.getParent(); parent != null; parent = parent.getParent())
+			{
+				if (ancestors.contains(parent) == true)
+				{
+					iterator.remove();
+					_size -= cachedFolder._childCount;
+					_evictionCount++;
+					evictedFolders.add(cachedFolder._folder);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove the provided folders and the folders below them from the cache.
+	 * 
+	 * @param folders The folders.
+	 */
+	private void removeWithin(List<DLNAResource> folders)
+	{
+		if (folders.isEmpty() == true)
+		{
+			return;
+		}
+
+		Set<DLNAResource> ancestors = Collections.newSetFromMap(new IdentityHashMap<DLNAResource, Boolean>());
+		ancestors.addAll(folders);
+
+		Iterator<CachedFolder> iterator = _folders.values().iterator();
+		while (iterator.hasNext() == true)
+		{
+			CachedFolder cachedFolder = iterator.next();
+			for(DLNAResource resource = cachedFolder._folder; resource != null; resource = resource.getParent())
+			{
+				if (ancestors.contains(resource) == true)
+				{
+					iterator.remove();
+					_size -= cachedFolder._childCount;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return whether or not a folder is (or is below) another folder.
+	 * 
+	 * @param folder   The folder.
+	 * @param ancestor The other folder.
+	 * @return         True, if the folder is the other folder or one of its descendants; false otherwise.
+	 */
+	private static boolean isWithin(DLNAResource folder, DLNAResource ancestor)
+	{
+		for(DLNAResource resource = folder; resource != null; resource = resource.getParent())
+		{
+			if (resource == ancestor)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Evict the children of the provided folders.
+	 * 
+	 * <p>
+	 * This must not be invoked while holding this cache's monitor.
+	 * </p>
+	 * 
+	 * @param folders The folders.
+	 */
+	private static void evict(List<MaterializedFolder> folders)
+	{
+		for(MaterializedFolder folder : folders)
+		{
+			folder.evictChildren();
+		}
+	}
+
+	/**
+	 * A materialized folder along with its number of children.
+	 */
+	private static final class CachedFolder
+	{
+		/**
+		 * The folder.
+		 **/
+		private final MaterializedFolder _folder;
+
+		/**
+		 * The number of children of the folder.
+		 **/
+		private final int _childCount;
+
+		/**
+		 * Initializes a new instance of CachedFolder.
+		 * 
+		 * @param folder     The folder.
+		 * @param childCount The number of children of the folder.
+		 */
+		public CachedFolder(MaterializedFolder folder, int childCount)
+		{
+			_folder = folder;
+			_childCount = childCount;
+		}
+	}
+}
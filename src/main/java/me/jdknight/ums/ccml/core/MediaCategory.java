@@ -0,0 +1,82 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import me.jdknight.ums.ccml.util.IntPostingList;
+
+/**
+ * A (mutable) category of a media category type.
+ * 
+ * <p>
+ * Besides the identifiers of its media entries, a category knows the category type it belongs
+ * to, so the media entry table can index the categories of each entry. A single instance is
+ * shared by every entry of the category.
+ * </p>
+ */
+final class MediaCategory
+{
+	/**
+	 * The category type this category belongs to.
+	 **/
+	private final MediaCategoryType _categoryType;
+
+	/**
+	 * The name of this category.
+	 **/
+	private final String _name;
+
+	/**
+	 * The sorted identifiers of the media entries of this category (guarded by this category).
+	 **/
+	private final IntPostingList _entryIds = new IntPostingList();
+
+	/**
+	 * Initializes a new instance of MediaCategory.
+	 * 
+	 * @param categoryType The category type this category belongs to.
+	 * @param name         The name of this category.
+	 */
+	MediaCategory(MediaCategoryType categoryType, String name)
+	{
+		_categoryType = categoryType;
+		_name = name;
+	}
+
+	/**
+	 * Return the category type this category belongs to.
+	 * 
+	 * @return The category type.
+	 */
+	MediaCategoryType getCategoryType()
+	{
+		return _categoryType;
+	}
+
+	/**
+	 * Return the name of this category.
+	 * 
+	 * @return The name.
+	 */
+	String getName()
+	{
+		return _name;
+	}
+
+	/**
+	 * Return the sorted identifiers of the media entries of this category.
+	 * 
+	 * <p>
+	 * The list must only be used while holding this category's monitor.
+	 * </p>
+	 * 
+	 * @return The posting list.
+	 */
+	IntPostingList getEntryIds()
+	{
+		return _entryIds;
+	}
+}
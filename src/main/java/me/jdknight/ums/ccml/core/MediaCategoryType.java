@@ -6,19 +6,23 @@
 
 package me.jdknight.ums.ccml.core;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import me.jdknight.ums.ccml.core.enumerators.ESortOrder;
 import me.jdknight.ums.ccml.core.interfaces.IMediaCategoryType;
-import net.pms.dlna.DLNAResource;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaCategoryType;
 import net.pms.dlna.virtual.VirtualFolder;
 
 /**
@@ -45,9 +49,49 @@ public class MediaCategoryType implements IMediaCategoryType
 	private String _name;
 
 	/**
-	 * The map of DLNA resources for known categories in master categories.
+	 * The media type partition this category type belongs to.
 	 **/
-	private Map<String, List<DLNAResource>> _resources = new HashMap<String, List<DLNAResource>>();
+	private final MediaTypePartition _partition;
+
+	/**
+	 * The table the media entries of this category type are interned in.
+	 **/
+	private final MediaEntryTable _entries;
+
+	/**
+	 * The shared lock held while populating this category type.
+	 **/
+	private final Lock _populationLock;
+
+	/**
+	 * The order the media entries of each category are sorted in.
+	 **/
+	private final ESortOrder _sortOrder;
+
+	/**
+	 * The known categories of this category type (with the sorted identifiers of their media entries).
+	 * 
+	 * <p>
+	 * Categories are kept ordered by name. Each category is guarded by its own monitor, so 
+	 * entries may be added to different categories at once.
+	 * </p>
+	 **/
+	private ConcurrentNavigableMap<String, MediaCategory> _resources = new ConcurrentSkipListMap<String, MediaCategory>();
+
+	/**
+	 * The number of modifications made to this category type.
+	 **/
+	private final AtomicInteger _modificationCount = new AtomicInteger();
+
+	/**
+	 * The last snapshot of this category type (guarded by this instance).
+	 **/
+	private ImmutableMediaCategoryType _snapshot;
+
+	/**
+	 * The modification count the last snapshot was taken at (guarded by this instance).
+	 **/
+	private int _snapshotModificationCount;
 
 	/**
 	 * Logger.
@@ -57,11 +101,16 @@ public class MediaCategoryType implements IMediaCategoryType
 	/**
 	 * Initializes a new instance of MediaCategoryType.
 	 * 
-	 * @param name The name of this category type.
+	 * @param name      The name of this category type.
+	 * @param partition The media type partition this category type belongs to.
 	 */
-	public MediaCategoryType(String name)
+	public MediaCategoryType(String name, MediaTypePartition partition)
 	{
 		_name = name;
+		_partition = partition;
+		_entries = partition.getEntries();
+		_populationLock = partition.getPopulationLock();
+		_sortOrder = CcmlConfiguration.getInstance().getSortOrder(name);
 	}
 
 	/**
@@ -76,18 +125,28 @@ public class MediaCategoryType implements IMediaCategoryType
 	}
 
 	/**
-	 * Add a resource to this media category type.
+	 * Return the media type partition this category type belongs to.
+	 * 
+	 * @return The partition.
+	 */
+	MediaTypePartition getPartition()
+	{
+		return _partition;
+	}
+
+	/**
+	 * Add a media entry to this media category type.
 	 * 
-	 * @param resource     The resource to add.
+	 * @param entry        The media entry to add.
 	 * @param categoryName The name of this category to add the resource to.
 	 * 
-	 * @throws NullPointerException     Thrown if the provided resource is null or the provided category is null.
+	 * @throws NullPointerException     Thrown if the provided entry is null or the provided category is null.
 	 * @throws IllegalArgumentException Thrown if the provided category is empty.
 	 */
 	@Override
-	public void addResource(DLNAResource resource, String categoryName)
+	public void addResource(MediaEntry entry, String categoryName)
 	{
-		if (resource == null || categoryName == null)
+		if (entry == null || categoryName == null)
 		{
 			throw new NullPointerException();
 		}
@@ -97,43 +156,178 @@ public class MediaCategoryType implements IMediaCategoryType
 			throw new IllegalArgumentException();
 		}
 
-		// Find the category to add this resource to.
-		List<DLNAResource> categoryResources = _resources.get(categoryName);
-		if (categoryResources == null)
+		_populationLock.lock();
+		try
+		{
+			// Find the category to add this entry to.
+			MediaCategory category = _resources.get(categoryName);
+			if (category == null)
+			{
+				// Create new category.
+				MediaCategory newCategory = new MediaCategory(this, categoryName);
+				category = _resources.putIfAbsent(categoryName, newCategory);
+				if (category == null)
+				{
+					category = newCategory;
+				}
+			}
+
+			// Ignore duplicates (the same file may be added more than once).
+			boolean isAdded;
+			synchronized(category)
+			{
+				isAdded = category.getEntryIds().add(entry.getId());
+			}
+
+			if (isAdded == true)
+			{
+				_entries.addMembership(entry.getId());
+				markModified();
+				_logger.trace("[CCML] Adding the following resource to category '" + categoryName + "': " + entry.getPath()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		finally
 		{
-			// Create new list.
-			categoryResources = new ArrayList<DLNAResource>();
-			_resources.put(categoryName, categoryResources);
+			_populationLock.unlock();
 		}
-		else
+	}
+
+	/**
+	 * Remove all resources referencing the provided file or directory from this media category type.
+	 * 
+	 * <p>
+	 * Categories left without any resources are removed.
+	 * </p>
+	 * 
+	 * @param path The file or directory.
+	 */
+	@Override
+	public void removeResources(File path)
+	{
+		MediaEntry entry = _entries.find(path);
+		if (entry != null)
 		{
-			// Ignore duplicates.
-			if (categoryResources.contains(resource) == true)
+			_partition.removeEntries(new int[] { entry.getId() }, this);
+		}
+	}
+
+	/**
+	 * Remove all resources referencing the provided directory or anything within it from this 
+	 * media category type.
+	 * 
+	 * <p>
+	 * Categories left without any resources are removed.
+	 * </p>
+	 * 
+	 * @param directory The directory.
+	 */
+	@Override
+	public void removeResourcesWithin(File directory)
+	{
+		_partition.removeEntries(_entries.findWithin(directory), this);
+	}
+
+	/**
+	 * Remove a batch of media entries from the categories of this category type.
+	 * 
+	 * <p>
+	 * Every category is visited; a category holding none of the entries is only binary searched, 
+	 * and a category holding some of them is compacted once for the whole batch. Categories left 
+	 * without any media entries are removed. Must be called while holding the partition's 
+	 * exclusive lock.
+	 * </p>
+	 * 
+	 * @param ids        The identifiers of the media entries (in ascending order).
+	 * @param removedIds A scratch array (holding at least as many identifiers as provided).
+	 */
+	void removeEntries(int[] ids, int[] removedIds)
+	{
+		boolean isModified = false;
+		for(MediaCategory category : _resources.values())
+		{
+			int removedCount;
+			boolean isEmpty;
+			synchronized(category)
 			{
-				return;
+				removedCount = category.getEntryIds().removeAll(ids, ids.length, removedIds);
+				isEmpty = category.getEntryIds().isEmpty();
+			}
+
+			if (removedCount > 0)
+			{
+				_entries.removeMemberships(removedIds, removedCount);
+				isModified = true;
+			}
+
+			if (isEmpty == true)
+			{
+				_resources.remove(category.getName(), category);
 			}
 		}
 
-		_logger.trace("[CCML] Adding the following resource to category '" + categoryName + "': " + resource.getDisplayName()); //$NON-NLS-1$ //$NON-NLS-2$
-		categoryResources.add(resource);
+		if (isModified == true)
+		{
+			markModified();
+		}
 	}
 
 	/**
-	 * Return a map of all resources added to this category type.
+	 * Remove all categories of this category type.
 	 * 
-	 * @return The map of resources.
+	 * <p>
+	 * Must be called while holding the partition's exclusive lock.
+	 * </p>
+	 */
+	void clear()
+	{
+		for(MediaCategory category : _resources.values())
+		{
+			int[] ids = getEntryIds(category);
+			_entries.removeMemberships(ids, ids.length);
+		}
+
+		_resources.clear();
+		markModified();
+	}
+
+	/**
+	 * Return whether or not this category type has any media entries.
+	 * 
+	 * @return True, if no media entries have been added; false otherwise.
 	 */
 	@Override
-	public Map<String, List<DLNAResource>> getResources()
+	public boolean isEmpty()
 	{
-		return _resources;
+		return _resources.isEmpty();
+	}
+
+	/**
+	 * Return a map of all media entries added to this category type.
+	 * 
+	 * <p>
+	 * The returned map is a copy; it is not updated as entries are added or removed.
+	 * </p>
+	 * 
+	 * @return The map of media entries (ordered by category name).
+	 */
+	@Override
+	public Map<String, List<MediaEntry>> getResources()
+	{
+		Map<String, List<MediaEntry>> resources = new LinkedHashMap<String, List<MediaEntry>>();
+		for(Entry<String, MediaCategory> category : _resources.entrySet())
+		{
+			resources.put(category.getKey(), _entries.resolve(getEntryIds(category.getValue())));
+		}
+
+		return resources;
 	}
 
 	/**
 	 * Generate a virtual folder for this media category.
 	 * 
 	 * <p>
-	 * All resources tied to this category type will be added as children.
+	 * A folder is added for each category once a renderer browses the generated folder; the 
+	 * resources of a category are only created once a renderer browses its folder.
 	 * </p>
 	 * 
 	 * @return The generated virtual folder.
@@ -141,41 +335,93 @@ public class MediaCategoryType implements IMediaCategoryType
 	@Override
 	public VirtualFolder generateVirtualFolder()
 	{
-		Comparator<DLNAResource> dlnaResourceComparator = new Comparator<DLNAResource>()
+		return snapshot().generateVirtualFolder();
+	}
+
+	/**
+	 * Return an immutable snapshot of this category type.
+	 * 
+	 * <p>
+	 * If this category type has not changed since the last snapshot, the last snapshot is returned. 
+	 * The identifiers of categories which have not changed are shared between snapshots.
+	 * </p>
+	 * 
+	 * @return The snapshot.
+	 */
+	@Override
+	public IReadableMediaCategoryType snapshot()
+	{
+		// Hold the shared lock, so no entry read by the snapshot is freed before the snapshot of the
+		// table is taken.
+		_populationLock.lock();
+		try
 		{
-			@Override
-			public int compare(DLNAResource argument1, DLNAResource argument2)
+			synchronized(this)
 			{
-				return argument1.getDisplayName().compareToIgnoreCase(argument2.getDisplayName());
-			}
-		};
-		
-		// Create the initial category type virtual folder.
-		VirtualFolder virtualFolder = new VirtualFolder(_name, null);
+				int modificationCount = _modificationCount.get();
+				if (_snapshot == null || _snapshotModificationCount != modificationCount)
+				{
+					// Categories are already ordered by name; categories which have not changed keep 
+					// the entries (and display order) of the last snapshot.
+					List<String> categoryNames = new ArrayList<String>(_resources.size());
+					List<CategoryEntries> categories = new ArrayList<CategoryEntries>(_resources.size());
+					for(Entry<String, MediaCategory> category : _resources.entrySet())
+					{
+						int[] ids = getEntryIds(category.getValue());
+						if (ids.length == 0)
+						{
+							continue;
+						}
 
-		// Sort category names.
-		Set<String> categoryTypes = _resources.keySet();
-		List<String> sortedCategoryTypes = new ArrayList<String>(categoryTypes);
-		Collections.sort(sortedCategoryTypes);
+						CategoryEntries categoryEntries = (_snapshot != null ? _snapshot.getCategoryEntries(category.getKey()) : null);
+						if (categoryEntries == null)
+						{
+							categoryEntries = new CategoryEntries(ids);
+						}
+						else if (categoryEntries.getIds() != ids)
+						{
+							// Changed; the display order will be updated from the last one.
+							categoryEntries = new CategoryEntries(ids, categoryEntries);
+						}
 
-		for(String categoryType : sortedCategoryTypes)
-		{
-			// Create a category folder.
-			VirtualFolder categoryVirtualFolder = new VirtualFolder(categoryType, null);
-			virtualFolder.addChild(categoryVirtualFolder);
+						categoryNames.add(category.getKey());
+						categories.add(categoryEntries);
+					}
 
-			// Sort all resources for this category by name.
-			List<DLNAResource> categoryResources = _resources.get(categoryType);
-			assert(categoryResources != null);
-			Collections.sort(categoryResources, dlnaResourceComparator);
+					// Snapshot the table after the identifiers, so it holds every entry read.
+					_snapshot = new ImmutableMediaCategoryType(_name, _entries.snapshot(), categoryNames.toArray(new String[categoryNames.size()]), categories.toArray(new CategoryEntries[categories.size()]), _sortOrder);
+					_snapshotModificationCount = modificationCount;
+				}
 
-			// Add each resource to the category folder.
-			for(DLNAResource resource : categoryResources)
-			{
-				categoryVirtualFolder.addChild(resource);
+				return _snapshot;
 			}
 		}
-			
-		return virtualFolder;
+		finally
+		{
+			_populationLock.unlock();
+		}
+	}
+
+	/**
+	 * Return a snapshot of the media entry identifiers of a category.
+	 * 
+	 * @param category The category.
+	 * @return         The identifiers.
+	 */
+	private static int[] getEntryIds(MediaCategory category)
+	{
+		synchronized(category)
+		{
+			return category.getEntryIds().snapshot();
+		}
+	}
+
+	/**
+	 * Record a modification of this category type.
+	 */
+	private void markModified()
+	{
+		_modificationCount.incrementAndGet();
+		_partition.markModified();
 	}
 }
@@ -0,0 +1,199 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.File;
+import java.text.CollationKey;
+import java.util.EnumSet;
+
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.tmp.RealFileWithVirtualFolderThumbnails;
+import me.jdknight.ums.ccml.util.SortKeyHelper;
+import net.pms.dlna.DLNAResource;
+
+/**
+ * A lightweight media entry of a library.
+ * 
+ * <p>
+ * An entry references either a media file or a directory of media (from a folder meta file).
+ * Entries are interned by a media entry table; a single entry is shared by every category it
+ * belongs to. The DLNA resource for an entry is only created when a renderer browses a folder
+ * containing the entry.
+ * </p>
+ * 
+ * <p>
+ * The sort keys of an entry are computed from its name the first time they are needed and are
+ * kept with the entry, so sorting a category never interprets a name more than once.
+ * </p>
+ */
+public final class MediaEntry
+{
+	/**
+	 * The interned path identifier of this entry.
+	 **/
+	private final int _id;
+
+	/**
+	 * The path of the file or directory.
+	 **/
+	private final String _path;
+
+	/**
+	 * The media type of a file entry; null for a directory entry.
+	 **/
+	private final EMediaType _mediaType;
+
+	/**
+	 * The media types found in the tree of a directory entry; null for a file entry.
+	 **/
+	private final EnumSet<EMediaType> _directoryMediaTypes;
+
+	/**
+	 * The collation key of this entry's name; null if not computed yet.
+	 **/
+	private volatile CollationKey _collationKey;
+
+	/**
+	 * The natural order key of this entry's name; null if not computed yet.
+	 **/
+	private volatile String _naturalKey;
+
+	/**
+	 * Initializes a new instance of MediaEntry.
+	 * 
+	 * @param id                  The interned path identifier of this entry.
+	 * @param path                The path of the file or directory.
+	 * @param mediaType           The media type of a file entry; null for a directory entry.
+	 * @param directoryMediaTypes The media types found in the tree of a directory entry; null for a file entry.
+	 */
+	MediaEntry(int id, String path, EMediaType mediaType, EnumSet<EMediaType> directoryMediaTypes)
+	{
+		_id = id;
+		_path = path;
+		_mediaType = mediaType;
+		_directoryMediaTypes = directoryMediaTypes;
+	}
+
+	/**
+	 * Return the interned path identifier of this entry.
+	 * 
+	 * @return The identifier.
+	 */
+	public int getId()
+	{
+		return _id;
+	}
+
+	/**
+	 * Return the path of the file or directory.
+	 * 
+	 * @return The path.
+	 */
+	public String getPath()
+	{
+		return _path;
+	}
+
+	/**
+	 * Return the name of the file or directory.
+	 * 
+	 * @return The name.
+	 */
+	public String getName()
+	{
+		return getFile().getName();
+	}
+
+	/**
+	 * Return the collation key of this entry's name (for the default locale).
+	 * 
+	 * @return The collation key.
+	 */
+	public CollationKey getCollationKey()
+	{
+		CollationKey collationKey = _collationKey;
+		if (collationKey == null)
+		{
+			collationKey = SortKeyHelper.getCollationKey(getName());
+			_collationKey = collationKey;
+		}
+
+		return collationKey;
+	}
+
+	/**
+	 * Return the natural order key of this entry's name.
+	 * 
+	 * @return The natural order key.
+	 */
+	public String getNaturalKey()
+	{
+		String naturalKey = _naturalKey;
+		if (naturalKey == null)
+		{
+			naturalKey = SortKeyHelper.getNaturalKey(getName());
+			_naturalKey = naturalKey;
+		}
+
+		return naturalKey;
+	}
+
+	/**
+	 * Return the file or directory.
+	 * 
+	 * @return The file or directory.
+	 */
+	public File getFile()
+	{
+		return new File(_path);
+	}
+
+	/**
+	 * Return whether or not this entry references a directory of media.
+	 * 
+	 * @return True, if this is a directory entry; false if this is a file entry.
+	 */
+	public boolean isDirectory()
+	{
+		return (_directoryMediaTypes != null);
+	}
+
+	/**
+	 * Return the media type of a file entry.
+	 * 
+	 * @return The media type; null for a directory entry.
+	 */
+	public EMediaType getMediaType()
+	{
+		return _mediaType;
+	}
+
+	/**
+	 * Return the media types found in the tree of a directory entry.
+	 * 
+	 * @return The media types; null for a file entry.
+	 */
+	public EnumSet<EMediaType> getDirectoryMediaTypes()
+	{
+		return _directoryMediaTypes;
+	}
+
+	/**
+	 * Create a new DLNA resource for this entry.
+	 * 
+	 * @return The resource.
+	 */
+	public DLNAResource createResource()
+	{
+		if (_directoryMediaTypes != null)
+		{
+			return new DirectoryMediaFolder(getFile(), _directoryMediaTypes);
+		}
+
+		return new RealFileWithVirtualFolderThumbnails(getFile());
+	}
+}
@@ -0,0 +1,88 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.Comparator;
+
+import me.jdknight.ums.ccml.core.enumerators.ESortOrder;
+
+/**
+ * Comparator ordering media entries by the sort keys kept with each entry (then by name and by path).
+ */
+public final class MediaEntryComparator implements Comparator<MediaEntry>
+{
+	/**
+	 * Comparator ordering entries alphabetically by name.
+	 **/
+	private static final MediaEntryComparator ALPHABETICAL = new MediaEntryComparator(ESortOrder.ALPHABETICAL);
+
+	/**
+	 * Comparator ordering entries naturally by name.
+	 **/
+	private static final MediaEntryComparator NATURAL = new MediaEntryComparator(ESortOrder.NATURAL);
+
+	/**
+	 * The order entries are sorted in.
+	 **/
+	private final ESortOrder _sortOrder;
+
+	/**
+	 * Initializes a new instance of MediaEntryComparator.
+	 * 
+	 * @param sortOrder The order entries are sorted in.
+	 */
+	private MediaEntryComparator(ESortOrder sortOrder)
+	{
+		_sortOrder = sortOrder;
+	}
+
+	/**
+	 * Return the comparator for the provided sort order.
+	 * 
+	 * @param sortOrder The sort order.
+	 * @return          The comparator.
+	 */
+	public static MediaEntryComparator get(ESortOrder sortOrder)
+	{
+		return (sortOrder == ESortOrder.NATURAL ? NATURAL : ALPHABETICAL);
+	}
+
+	/**
+	 * Compare two media entries.
+	 * 
+	 * @param argument1 The first entry.
+	 * @param argument2 The second entry.
+	 * @return          The comparison result.
+	 */
+	@Override
+	public int compare(MediaEntry argument1, MediaEntry argument2)
+	{
+		int result;
+		if (_sortOrder == ESortOrder.NATURAL)
+		{
+			result = argument1.getNaturalKey().compareTo(argument2.getNaturalKey());
+		}
+		else
+		{
+			result = argument1.getCollationKey().compareTo(argument2.getCollationKey());
+		}
+
+		// Same key? Order by the name itself ("Episode 01" before "Episode 1"), then by path so the 
+		// result does not depend on crawl order.
+		if (result == 0)
+		{
+			result = argument1.getName().compareTo(argument2.getName());
+		}
+
+		if (result == 0)
+		{
+			result = argument1.getPath().compareTo(argument2.getPath());
+		}
+
+		return result;
+	}
+}
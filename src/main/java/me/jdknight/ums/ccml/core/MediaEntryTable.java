@@ -0,0 +1,462 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaEntryTable;
+
+/**
+ * A table interning the media entries of a library.
+ * 
+ * <p>
+ * Each path is assigned a unique identifier the first time it is acquired. Acquiring the same
+ * path again returns the same entry, so an entry can be shared by every category it belongs to.
+ * Paths are kept in order, so the entries within a directory are found by a range lookup rather
+ * than by visiting every path.
+ * </p>
+ * 
+ * <p>
+ * Entries may be acquired from multiple threads at once. Entries are kept in fixed-size chunks
+ * published through a volatile array; looking an entry up by its identifier therefore takes no
+ * lock, so renderers browsing the library do not contend with each other or with threads 
+ * populating the library. An entry is never modified once published.
+ * </p>
+ * 
+ * <p>
+ * The table also counts the categories each entry belongs to; which categories they are is only
+ * held by the categories themselves. Once an entry no longer belongs to any category, it is 
+ * freed: its path is forgotten (acquiring the path again assigns a new identifier) and its slot 
+ * is cleared. Snapshots of the table keep reading freed entries, as a chunk shared with a snapshot 
+ * is copied before a slot of it is cleared; a chunk left without any entries is released.
+ * </p>
+ * 
+ * <p>
+ * Identifiers are never reused. An entry must not be removed from its last category while 
+ * another thread is adding it to a category (the library is updated by a single thread once 
+ * crawled).
+ * </p>
+ */
+public class MediaEntryTable implements IReadableMediaEntryTable
+{
+	/**
+	 * The entries by path (in ascending order of their paths).
+	 **/
+	private final ConcurrentNavigableMap<String, MediaEntry> _entriesByPath = new ConcurrentSkipListMap<String, MediaEntry>();
+
+	/**
+	 * The number of bits of an identifier which select the entry within its chunk.
+	 **/
+	static final int CHUNK_SHIFT = 10;
+
+	/**
+	 * The number of entries in a chunk.
+	 **/
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	/**
+	 * The mask selecting the entry within its chunk from an identifier.
+	 **/
+	static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/**
+	 * The entries by identifier, in chunks (replaced with a copy when a chunk is added, copied or 
+	 * released; entries are written while holding this table's monitor).
+	 **/
+	private volatile MediaEntry[][] _chunks = new MediaEntry[0][];
+
+	/**
+	 * The number of identifiers assigned (guarded by this table's monitor).
+	 **/
+	private int _size;
+
+	/**
+	 * The number of entries not freed in each chunk (guarded by this table's monitor).
+	 **/
+	private int[] _chunkEntryCounts = new int[0];
+
+	/**
+	 * The snapshot version each chunk was allocated or copied at; a chunk allocated or copied at 
+	 * or before the current snapshot version is shared with a snapshot (guarded by this table's 
+	 * monitor).
+	 **/
+	private int[] _chunkVersions = new int[0];
+
+	/**
+	 * The version of the last snapshot of this table (guarded by this table's monitor).
+	 **/
+	private int _snapshotVersion;
+
+	/**
+	 * The last snapshot of this table; null if an entry was freed or a chunk was added since
+	 * (guarded by this table's monitor).
+	 **/
+	private ImmutableMediaEntryTable _snapshot;
+
+	/**
+	 * The number of categories each entry belongs to by identifier, in chunks allocated with the 
+	 * chunks of entries.
+	 **/
+	private volatile AtomicIntegerArray[] _membershipCountChunks = new AtomicIntegerArray[0];
+
+	/**
+	 * Acquire the entry for a media file.
+	 * 
+	 * @param file      The media file.
+	 * @param mediaType The media type of the file.
+	 * @return          The entry.
+	 */
+	public MediaEntry acquireFile(File file, EMediaType mediaType)
+	{
+		String path = file.getPath();
+		MediaEntry entry = _entriesByPath.get(path);
+		if (entry == null || entry.isDirectory() == true)
+		{
+			synchronized(this)
+			{
+				entry = _entriesByPath.get(path);
+				if (entry == null || entry.isDirectory() == true)
+				{
+					entry = register(path, mediaType, null);
+				}
+			}
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Acquire the entry for a directory of media.
+	 * 
+	 * <p>
+	 * If the media types of the directory have changed, the directory's entry is replaced by a new 
+	 * entry (with a new identifier); entries are never modified once published, so snapshots keep 
+	 * reading the old entry. The old entry is freed once it leaves its last category (the 
+	 * directory's resources should be removed before it is acquired with other media types).
+	 * </p>
+	 * 
+	 * @param directory  The directory.
+	 * @param mediaTypes The media types found in the directory's tree.
+	 * @return           The entry.
+	 */
+	public MediaEntry acquireDirectory(File directory, EnumSet<EMediaType> mediaTypes)
+	{
+		String path = directory.getPath();
+		MediaEntry entry = _entriesByPath.get(path);
+		if (isSameDirectory(entry, mediaTypes) == false)
+		{
+			synchronized(this)
+			{
+				entry = _entriesByPath.get(path);
+				if (isSameDirectory(entry, mediaTypes) == false)
+				{
+					entry = register(path, null, EnumSet.copyOf(mediaTypes));
+				}
+			}
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Return whether or not an entry is a directory entry with the provided media types.
+	 *
+	 * @param entry      The entry (or null).
+	 * @param mediaTypes The media types.
+	 * @return           True, if the entry matches; false otherwise.
+	 */
+	private static boolean isSameDirectory(MediaEntry entry, EnumSet<EMediaType> mediaTypes)
+	{
+		return (entry != null && entry.isDirectory() == true && entry.getDirectoryMediaTypes().equals(mediaTypes) == true);
+	}
+
+	/**
+	 * Find the entry for a file or directory, without acquiring it.
+	 *
+	 * @param path The file or directory.
+	 * @return     The entry; null if the path has not been acquired.
+	 */
+	public MediaEntry find(File path)
+	{
+		return _entriesByPath.get(path.getPath());
+	}
+
+	/**
+	 * Find the entries for a directory and anything within it, without acquiring them.
+	 * 
+	 * @param directory The directory.
+	 * @return          The identifiers of the entries (in ascending order).
+	 */
+	public int[] findWithin(File directory)
+	{
+		String path = directory.getPath();
+		String pathPrefix = (path.endsWith(File.separator) == true ? path : path + File.separator);
+
+		int[] ids = new int[16];
+		int count = 0;
+		MediaEntry directoryEntry = (path.equals(pathPrefix) == false ? _entriesByPath.get(path) : null);
+		if (directoryEntry != null)
+		{
+			ids[count++] = directoryEntry.getId();
+		}
+
+		// Paths within the directory all sort between the prefix and the prefix followed by the 
+		// highest character.
+		for(MediaEntry entry : _entriesByPath.subMap(pathPrefix, true, pathPrefix + Character.MAX_VALUE, true).values())
+		{
+			if (count == ids.length)
+			{
+				ids = Arrays.copyOf(ids, count * 2);
+			}
+			ids[count++] = entry.getId();
+		}
+
+		ids = Arrays.copyOf(ids, count);
+		Arrays.sort(ids);
+		return ids;
+	}
+
+	/**
+	 * Return the entry with the provided identifier.
+	 * 
+	 * @param id The identifier.
+	 * @return   The entry.
+	 */
+	@Override
+	public MediaEntry get(int id)
+	{
+		return _chunks[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+	}
+
+	/**
+	 * Record that an entry was added to a category.
+	 * 
+	 * @param id The identifier of the entry.
+	 */
+	void addMembership(int id)
+	{
+		_membershipCountChunks[id >>> CHUNK_SHIFT].incrementAndGet(id & CHUNK_MASK);
+	}
+
+	/**
+	 * Record that a batch of entries was removed from a category.
+	 * 
+	 * <p>
+	 * Entries left without any category are freed.
+	 * </p>
+	 * 
+	 * @param ids   The identifiers of the entries.
+	 * @param count The number of identifiers (from the start of the array) removed.
+	 */
+	void removeMemberships(int[] ids, int count)
+	{
+		AtomicIntegerArray[] membershipCountChunks = _membershipCountChunks;
+		for(int index = 0; index < count; index++)
+		{
+			int id = ids[index];
+			if (membershipCountChunks[id >>> CHUNK_SHIFT].decrementAndGet(id & CHUNK_MASK) == 0)
+			{
+				free(id);
+			}
+		}
+	}
+
+	/**
+	 * Free an entry which no longer belongs to any category.
+	 * 
+	 * @param id The identifier of the entry.
+	 */
+	private synchronized void free(int id)
+	{
+		int chunkIndex = id >>> CHUNK_SHIFT;
+		MediaEntry[][] chunks = _chunks;
+		MediaEntry entry = chunks[chunkIndex][id & CHUNK_MASK];
+		if (entry == null)
+		{
+			return;
+		}
+
+		_entriesByPath.remove(entry.getPath(), entry);
+		_snapshot = null;
+
+		// Last entry of a filled chunk? Release the chunk (and the chunk of its category counts).
+		_chunkEntryCounts[chunkIndex]--;
+		if (_chunkEntryCounts[chunkIndex] == 0 && chunkIndex < (_size >>> CHUNK_SHIFT))
+		{
+			AtomicIntegerArray[] newMembershipCountChunks = _membershipCountChunks.clone();
+			newMembershipCountChunks[chunkIndex] = null;
+			_membershipCountChunks = newMembershipCountChunks;
+
+			MediaEntry[][] newChunks = chunks.clone();
+			newChunks[chunkIndex] = null;
+			_chunks = newChunks;
+			return;
+		}
+
+		// Shared with a snapshot? Publish a copy of the chunk, leaving the snapshot untouched.
+		if (_chunkVersions[chunkIndex] <= _snapshotVersion)
+		{
+			MediaEntry[][] newChunks = chunks.clone();
+			newChunks[chunkIndex] = chunks[chunkIndex].clone();
+			newChunks[chunkIndex][id & CHUNK_MASK] = null;
+			_chunkVersions[chunkIndex] = _snapshotVersion + 1;
+			_chunks = newChunks;
+			return;
+		}
+
+		chunks[chunkIndex][id & CHUNK_MASK] = null;
+	}
+
+	/**
+	 * Return an immutable snapshot of this table.
+	 * 
+	 * <p>
+	 * If no entry has been freed (and no chunk added) since the last snapshot, the last snapshot 
+	 * is returned. Entries acquired after a snapshot was taken must not be read from it.
+	 * </p>
+	 * 
+	 * @return The snapshot.
+	 */
+	public synchronized ImmutableMediaEntryTable snapshot()
+	{
+		if (_snapshot == null)
+		{
+			_snapshotVersion++;
+			_snapshot = new ImmutableMediaEntryTable(_chunks, _snapshotVersion);
+		}
+
+		return _snapshot;
+	}
+
+	/**
+	 * Return a list of the entries with the provided identifiers.
+	 *
+	 * <p>
+	 * The list only keeps the identifiers; each entry is looked up when it is read.
+	 * </p>
+	 *
+	 * @param ids The identifiers.
+	 * @return    The list of entries.
+	 */
+	@Override
+	public List<MediaEntry> resolve(int[] ids)
+	{
+		return new MediaEntryList(this, ids);
+	}
+
+	/**
+	 * Return the number of interned paths.
+	 * 
+	 * @return The number of paths.
+	 */
+	public synchronized int size()
+	{
+		return _size;
+	}
+
+	/**
+	 * Register a new entry for a path, replacing any previous entry of the path (while holding 
+	 * this table's monitor).
+	 * 
+	 * @param path                The path.
+	 * @param mediaType           The media type of a file entry; null for a directory entry.
+	 * @param directoryMediaTypes The media types of a directory entry; null for a file entry.
+	 * @return                    The entry.
+	 */
+	private MediaEntry register(String path, EMediaType mediaType, EnumSet<EMediaType> directoryMediaTypes)
+	{
+		int id = _size++;
+
+		// First entry of a new chunk? Publish a copy of the chunks with a new chunk added.
+		MediaEntry[][] chunks = _chunks;
+		int chunkIndex = id >>> CHUNK_SHIFT;
+		if (chunkIndex == chunks.length)
+		{
+			AtomicIntegerArray[] newMembershipCountChunks = Arrays.copyOf(_membershipCountChunks, chunks.length + 1);
+			newMembershipCountChunks[chunkIndex] = new AtomicIntegerArray(CHUNK_SIZE);
+			_membershipCountChunks = newMembershipCountChunks;
+
+			_chunkEntryCounts = Arrays.copyOf(_chunkEntryCounts, chunks.length + 1);
+			_chunkVersions = Arrays.copyOf(_chunkVersions, chunks.length + 1);
+			_chunkVersions[chunkIndex] = _snapshotVersion + 1;
+
+			MediaEntry[][] newChunks = new MediaEntry[chunks.length + 1][];
+			System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+			newChunks[chunkIndex] = new MediaEntry[CHUNK_SIZE];
+			_chunks = newChunks;
+			_snapshot = null;
+			chunks = newChunks;
+		}
+
+		_chunkEntryCounts[chunkIndex]++;
+
+		MediaEntry entry = new MediaEntry(id, path, mediaType, directoryMediaTypes);
+		chunks[chunkIndex][id & CHUNK_MASK] = entry;
+		_entriesByPath.put(path, entry);
+
+		return entry;
+	}
+
+	/**
+	 * A read-only list of entries backed by their identifiers.
+	 */
+	static final class MediaEntryList extends AbstractList<MediaEntry>
+	{
+		/**
+		 * The table to look entries up from.
+		 **/
+		private final IReadableMediaEntryTable _table;
+
+		/**
+		 * The identifiers of the entries.
+		 **/
+		private final int[] _ids;
+
+		/**
+		 * Initializes a new instance of MediaEntryList.
+		 *
+		 * @param table The table to look entries up from.
+		 * @param ids   The identifiers of the entries.
+		 */
+		public MediaEntryList(IReadableMediaEntryTable table, int[] ids)
+		{
+			_table = table;
+			_ids = ids;
+		}
+
+		/**
+		 * Return the entry at the provided position.
+		 *
+		 * @param index The position.
+		 * @return      The entry.
+		 */
+		@Override
+		public MediaEntry get(int index)
+		{
+			return _table.get(_ids[index]);
+		}
+
+		/**
+		 * Return the number of entries.
+		 *
+		 * @return The number of entries.
+		 */
+		@Override
+		public int size()
+		{
+			return _ids.length;
+		}
+	}
+}
@@ -0,0 +1,896 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.core.interfaces.ICustomCategoryMediaLibrary;
+import me.jdknight.ums.ccml.core.interfaces.IMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IMediaLibraryCrawler;
+import me.jdknight.ums.ccml.util.DirectoryListing;
+import net.pms.formats.Format;
+
+/**
+ * A crawler used to populate a custom category media library from shared directories.
+ * 
+ * <p>
+ * Each directory is handled as its own task. When more than one (1) thread is configured,
+ * directory tasks are queued onto a shared pool of worker threads where any idle worker
+ * picks up the next pending directory. Since the library sorts its content when building
+ * virtual folders, the resulting library is the same as a sequential crawl.
+ * </p>
+ * 
+ * <p>
+ * An interrupted crawl stops queueing directories (each directory checks for an interrupt before
+ * it is crawled) and only returns once no worker thread is crawling anymore.
+ * </p>
+ */
+public class MediaLibraryCrawler implements IMediaLibraryCrawler
+{
+	/**
+	 * Special category type name - master.
+	 **/
+	final String SPECIAL_CATEGORY_TYPE_NAME_MASTER = "Master"; //$NON-NLS-1$
+
+	/**
+	 * Special category type name - filter.
+	 **/
+	final String SPECIAL_CATEGORY_TYPE_NAME_FILTER = "Filter"; //$NON-NLS-1$
+
+	/**
+	 * The library to populate.
+	 **/
+	private final ICustomCategoryMediaLibrary _library;
+
+	/**
+	 * The number of threads to crawl with.
+	 **/
+	private final int _threadCount;
+
+	/**
+	 * The cache of parsed meta files; null if no cache is used.
+	 **/
+	private final MetaFileCache _metaCache;
+
+	/**
+	 * The watcher recording crawled directories; null if crawled directories are not watched.
+	 **/
+	private final LibraryWatcher _watcher;
+
+	/**
+	 * The number of directory tasks which have been queued but not yet completed.
+	 **/
+	private final AtomicInteger _pendingDirectoryCount = new AtomicInteger();
+
+	/**
+	 * Lock used to signal the completion of all directory tasks.
+	 **/
+	private final Object _completionLock = new Object();
+
+	/**
+	 * Meta file parser for each crawling thread.
+	 **/
+	private final ThreadLocal<MetaFileParser> _parser = new ThreadLocal<MetaFileParser>()
+	{
+		@Override
+		protected MetaFileParser initialValue()
+		{
+			return new MetaFileParser();
+		}
+	};
+
+	/**
+	 * Logger.
+	 **/
+	private static final Logger _logger = LoggerFactory.getLogger(MediaLibraryCrawler.class);
+
+	/**
+	 * Initializes a new instance of MediaLibraryCrawler.
+	 * 
+	 * @param library     The library to populate; must be thread-safe if more than one (1) thread is used.
+	 * @param threadCount The number of threads to crawl with.
+	 * @param metaCache   The cache of parsed meta files; null if no cache is used.
+	 * @param watcher     The watcher recording crawled directories; null if crawled directories are not watched.
+	 */
+	public MediaLibraryCrawler(ICustomCategoryMediaLibrary library, int threadCount, MetaFileCache metaCache, LibraryWatcher watcher)
+	{
+		_library = library;
+		_threadCount = Math.max(1, threadCount);
+		_metaCache = metaCache;
+		_watcher = watcher;
+	}
+
+	/**
+	 * Crawl the provided directories for meta information.
+	 * 
+	 * <p>
+	 * This call will block until all provided directories (and their sub-directories) have been
+	 * crawled.
+	 * </p>
+	 * 
+	 * @param directories The directories to crawl.
+	 */
+	@Override
+	public void crawl(File[] directories)
+	{
+		// Index the alternative meta folder once for this crawl.
+		AlternativeMetaFolderIndex.getInstance().refresh(CcmlConfiguration.getInstance().getAlternativeMetaFolder());
+
+		// Single thread? Crawl on the calling thread.
+		if (_threadCount == 1)
+		{
+			for(File directory : directories)
+			{
+				if (directory.isDirectory() == true)
+				{
+					queueDirectory(new DirectoryNode(directory, null), null);
+				}
+			}
+
+			if (Thread.currentThread().isInterrupted() == true)
+			{
+				_logger.warn("[CCML] Crawling was interrupted; library may be incomplete."); //$NON-NLS-1$
+			}
+
+			return;
+		}
+
+		_logger.debug("[CCML] Crawling with " + _threadCount + " threads."); //$NON-NLS-1$ //$NON-NLS-2$
+		ExecutorService executor = Executors.newFixedThreadPool(_threadCount, new CrawlerThreadFactory());
+		try
+		{
+			for(File directory : directories)
+			{
+				if (directory.isDirectory() == true)
+				{
+					queueDirectory(new DirectoryNode(directory, null), executor);
+				}
+			}
+
+			awaitCompletion();
+		}
+		finally
+		{
+			// Queued tasks which never ran will not complete; drop them from the pending count.
+			List<Runnable> droppedTasks = executor.shutdownNow();
+			for(int index = 0; index < droppedTasks.size(); index++)
+			{
+				releaseDirectory();
+			}
+
+			awaitTermination(executor);
+		}
+	}
+
+	/**
+	 * Crawl a single media file for meta information.
+	 * 
+	 * <p>
+	 * Only the media file itself is added; its directory's folder meta file is not handled.
+	 * </p>
+	 * 
+	 * @param mediaFile The media file to crawl.
+	 */
+	@Override
+	public void crawlFile(File mediaFile)
+	{
+		Format mediaFormat = LazyCompatibility.getAssociatedExtension(mediaFile.getPath());
+		EMediaType mediaType = EMediaType.get(mediaFormat);
+		if (mediaType == EMediaType.UNKNOWN || mediaFile.isFile() == false)
+		{
+			return;
+		}
+
+		// Check if a meta file exists.
+		String metaFileName = mediaFile.getName() + ".meta"; //$NON-NLS-1$
+		File metaFile = new File(mediaFile.getParentFile(), metaFileName);
+		if (metaFile.isFile() == false)
+		{
+			// No meta file? Check the alternative folder (if any is provided).
+			metaFile = AlternativeMetaFolderIndex.getInstance().find(metaFileName);
+		}
+
+		if (metaFile != null)
+		{
+			addMediaFile(mediaFile, mediaType, metaFile, null);
+		}
+	}
+
+	/**
+	 * Crawl the folder meta file of the provided directory.
+	 * 
+	 * <p>
+	 * The media types the directory's tree contains are taken from the watcher's state of the 
+	 * tree (the tree is only listed if it is not watched). Media files in the tree are not handled.
+	 * </p>
+	 * 
+	 * @param directory The directory containing the folder meta file.
+	 */
+	@Override
+	public void crawlFolderMeta(File directory)
+	{
+		if (new File(directory, CcmlRootFolderListener.FOLDER_FOLDER_NAME).isFile() == false)
+		{
+			return;
+		}
+
+		// Use the watcher's listings of the tree, rather than listing the whole tree again.
+		DirectoryNode node = new DirectoryNode(directory, null);
+		EnumSet<EMediaType> mediaTypes = (_watcher != null ? _watcher.collectMediaTypes(directory) : null);
+		if (mediaTypes != null)
+		{
+			node.addMediaTypes(mediaTypes);
+		}
+		else
+		{
+			collectMediaTypes(directory, node._mediaTypes);
+		}
+
+		buildFolderMetaCategories(node);
+	}
+
+	/**
+	 * Collect the media types found in the provided directory's tree.
+	 * 
+	 * @param directory  The directory.
+	 * @param mediaTypes The set to add found media types to.
+	 */
+	private void collectMediaTypes(File directory, EnumSet<EMediaType> mediaTypes)
+	{
+		DirectoryListing listing = DirectoryListing.list(directory);
+		for(File child : listing.getFiles())
+		{
+			Format mediaFormat = LazyCompatibility.getAssociatedExtension(child.getPath());
+			EMediaType mediaType = EMediaType.get(mediaFormat);
+			if (mediaType != EMediaType.UNKNOWN)
+			{
+				mediaTypes.add(mediaType);
+			}
+		}
+
+		for(File subDirectory : listing.getDirectories())
+		{
+			collectMediaTypes(subDirectory, mediaTypes);
+		}
+	}
+
+	/**
+	 * Queue a directory task for the provided directory.
+	 * 
+	 * <p>
+	 * When crawling sequentially, the task is run immediately on the calling thread. Once the 
+	 * crawl has been interrupted (or the executor shut down), the directory is not crawled.
+	 * </p>
+	 * 
+	 * @param node     The directory to crawl.
+	 * @param executor The executor running directory tasks; null when crawling sequentially.
+	 */
+	private void queueDirectory(DirectoryNode node, ExecutorService executor)
+	{
+		if (Thread.currentThread().isInterrupted() == true || (executor != null && executor.isShutdown() == true))
+		{
+			return;
+		}
+
+		_pendingDirectoryCount.incrementAndGet();
+		if (executor == null)
+		{
+			new DirectoryTask(node, null).run();
+			return;
+		}
+
+		try
+		{
+			executor.execute(new DirectoryTask(node, executor));
+		}
+		catch (RejectedExecutionException e)
+		{
+			// Shut down meanwhile; the task will never run.
+			releaseDirectory();
+		}
+	}
+
+	/**
+	 * Flag a queued directory task as completed (or dropped).
+	 */
+	private void releaseDirectory()
+	{
+		// Last pending directory? Notify any waiting crawl.
+		if (_pendingDirectoryCount.decrementAndGet() == 0)
+		{
+			synchronized(_completionLock)
+			{
+				_completionLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Wait for the worker threads of a shut down executor to finish their current directory.
+	 * 
+	 * <p>
+	 * The wait is not interruptible (running tasks have already been interrupted and stop 
+	 * after their current directory); the interrupt status is restored afterwards.
+	 * </p>
+	 * 
+	 * @param executor The executor.
+	 */
+	private static void awaitTermination(ExecutorService executor)
+	{
+		boolean isInterrupted = Thread.interrupted();
+		try
+		{
+			while (executor.isTerminated() == false)
+			{
+				try
+				{
+					executor.awaitTermination(1, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					isInterrupted = true;
+				}
+			}
+		}
+		finally
+		{
+			if (isInterrupted == true)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Flag a directory as crawled.
+	 * 
+	 * <p>
+	 * Once a directory and all of its sub-directories have been crawled, the directory's folder 
+	 * meta file (if any) is handled and the directory's media types are merged into its parent. 
+	 * This is repeated up the tree for each parent which has now completed as well.
+	 * </p>
+	 * 
+	 * @param node The crawled directory.
+	 */
+	private void completeDirectory(DirectoryNode node)
+	{
+		while (node != null && node._pendingCount.decrementAndGet() == 0)
+		{
+			if (node._hasFolderMeta == true)
+			{
+				try
+				{
+					buildFolderMetaCategories(node);
+				}
+				catch (RuntimeException e)
+				{
+					_logger.error("[CCML] Unable to handle folder meta file for directory: " + node._directory, e); //$NON-NLS-1$
+				}
+			}
+
+			DirectoryNode parent = node._parent;
+			if (parent != null)
+			{
+				parent.addMediaTypes(node._mediaTypes);
+			}
+
+			node = parent;
+		}
+	}
+
+	/**
+	 * Wait for all queued directory tasks to complete.
+	 */
+	private void awaitCompletion()
+	{
+		synchronized(_completionLock)
+		{
+			while (_pendingDirectoryCount.get() > 0)
+			{
+				try
+				{
+					_completionLock.wait();
+				}
+				catch (InterruptedException e)
+				{
+					_logger.warn("[CCML] Crawling was interrupted; library may be incomplete."); //$NON-NLS-1$
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Build the media library based off the files found in the provided directory.
+	 * 
+	 * @param node The directory to scan.
+	 * @return     The sub-directories which still need to be crawled.
+	 */
+	private List<DirectoryNode> buildMediaLibrary(DirectoryNode node)
+	{
+		File directory = node._directory;
+		assert(directory.isDirectory() == true);
+
+		// List the directory once; sibling meta files are resolved from this listing.
+		long lastModified = directory.lastModified();
+		DirectoryListing listing = DirectoryListing.list(directory);
+		if (_watcher != null)
+		{
+			node._watchedDirectory = _watcher.record(directory, lastModified, listing);
+		}
+
+		// A folder meta file references all media in this directory's tree; it is handled once the 
+		// tree has been crawled.
+		node._hasFolderMeta = listing.containsFile(CcmlRootFolderListener.FOLDER_FOLDER_NAME);
+
+		for(File child : listing.getFiles())
+		{
+			// Find if this file is a supported media type.
+			Format mediaFormat = LazyCompatibility.getAssociatedExtension(child.getPath());
+			EMediaType mediaType = EMediaType.get(mediaFormat);
+
+			// Ignore unsupported media types.
+			if (mediaType == EMediaType.UNKNOWN)
+			{
+				continue;
+			}
+
+			node.addMediaType(mediaType);
+
+			// Check if a meta file exists.
+			String metaFileName = child.getName() + ".meta"; //$NON-NLS-1$
+			if (listing.containsFile(metaFileName) == true)
+			{
+				addMediaFile(child, mediaType, new File(directory, metaFileName), node._watchedDirectory);
+				continue;
+			}
+
+			// No meta file? Check the alternative folder (if any is provided).
+			File metaFile = AlternativeMetaFolderIndex.getInstance().find(metaFileName);
+
+			// Still no meta file? Ignore.
+			if (metaFile != null)
+			{
+				addMediaFile(child, mediaType, metaFile, null);
+			}
+		}
+
+		// Prepare sub-directories to crawl.
+		List<DirectoryNode> subDirectories = new ArrayList<DirectoryNode>(listing.getDirectories().size());
+		for(File subDirectory : listing.getDirectories())
+		{
+			subDirectories.add(new DirectoryNode(subDirectory, node));
+		}
+		node._pendingCount.addAndGet(subDirectories.size());
+
+		return subDirectories;
+	}
+
+	/**
+	 * Add a media file to the categories of its meta file.
+	 * 
+	 * @param mediaFile        The media file.
+	 * @param mediaType        The media type of the media file.
+	 * @param metaFile         The meta file of the media file.
+	 * @param watchedDirectory The recorded state of the meta file's directory; null if not recorded.
+	 */
+	private void addMediaFile(File mediaFile, EMediaType mediaType, File metaFile, LibraryWatcher.WatchedDirectory watchedDirectory)
+	{
+		_logger.trace("[CCML] Parsing meta file: " + metaFile); //$NON-NLS-1$
+
+		Map<String, List<String>> mapOfCategories = parseMetaFile(metaFile, watchedDirectory);
+		if (mapOfCategories == null)
+		{
+			return;
+		}
+
+		// Attempt to find this meta file's master reference(s).
+		String[] masterSections = stripSpecialValues(mapOfCategories, metaFile, SPECIAL_CATEGORY_TYPE_NAME_MASTER);
+
+		// Strip out any filter entries; they are not used on single meta file.
+		stripSpecialValues(mapOfCategories, metaFile, SPECIAL_CATEGORY_TYPE_NAME_FILTER);
+
+		// Add resources to a respective media category type.
+		Set<Entry<String, List<String>>> categorySet = mapOfCategories.entrySet();
+		if (categorySet.isEmpty() == false)
+		{
+			MediaEntry mediaEntry = _library.acquireMediaEntry(mediaFile, mediaType);
+			for(String masterSection : masterSections)
+			{
+				for(Entry<String, List<String>> categoryReference : categorySet)
+				{
+					// Find/create category.
+					String categoryName = categoryReference.getKey();
+					IMediaCategoryType category = _library.acquireCategoryType(mediaType, masterSection, categoryName);
+
+					// Add resource to it.
+					List<String> categoryValues = categoryReference.getValue();
+					for(String categoryValue : categoryValues)
+					{
+						category.addResource(mediaEntry, categoryValue);
+
+						_logger.trace("[CCML] Adding resource to category a '" + categoryName + "' with a value of '" + categoryValue + "'" + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+								( masterSection != null ? " (Master: " + masterSection + ")" : "" ) + ": " + metaFile); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					}
+				}
+			}
+		}
+		else
+		{
+			_logger.warn("[CCML] The following meta file does not have any defined categories: " + metaFile); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Add the media of the provided directory's tree to the categories of its folder meta file.
+	 * 
+	 * <p>
+	 * Must only be invoked once the directory's tree has been crawled.
+	 * </p>
+	 * 
+	 * @param node The directory.
+	 */
+	private void buildFolderMetaCategories(DirectoryNode node)
+	{
+		File folderMetaFile = new File(node._directory, CcmlRootFolderListener.FOLDER_FOLDER_NAME);
+
+		_logger.trace("[CCML] Parsing folder meta file: " + folderMetaFile); //$NON-NLS-1$
+
+		Map<String, List<String>> mapOfCategories = parseMetaFile(folderMetaFile, node._watchedDirectory);
+		if (mapOfCategories == null)
+		{
+			return;
+		}
+
+		// Attempt to find this meta file's master reference(s).
+		String[] masterSections = stripSpecialValues(mapOfCategories, folderMetaFile, SPECIAL_CATEGORY_TYPE_NAME_MASTER);
+
+		// Find if this meta file is specific to any media types.
+		String[] filterValues = stripSpecialValues(mapOfCategories, folderMetaFile, SPECIAL_CATEGORY_TYPE_NAME_FILTER);
+
+		boolean isFirstFilterAdded = false;
+		EnumSet<EMediaType> mediaTypeFilter = EnumSet.allOf(EMediaType.class);
+		for(String filterValue : filterValues)
+		{
+			if (filterValue != null)
+			{
+				EMediaType[] mediaTypes = EMediaType.values();
+				for(EMediaType mediaType : mediaTypes)
+				{
+					if (mediaType.getEnglishName().equalsIgnoreCase(filterValue) == true || mediaType.getDisplayName().equalsIgnoreCase(filterValue) == true)
+					{
+						// If we have actual content to filter, start fresh.
+						if (isFirstFilterAdded == false)
+						{
+							mediaTypeFilter = EnumSet.noneOf(EMediaType.class);
+							isFirstFilterAdded = true;
+						}
+
+						mediaTypeFilter.add(mediaType);
+						break;
+					}
+				}
+			}
+		}
+
+		// Acquire the media entry for this folder (its resources are only listed once browsed).
+		EnumSet<EMediaType> mediaTypes;
+		synchronized(node._mediaTypes)
+		{
+			mediaTypes = EnumSet.copyOf(node._mediaTypes);
+		}
+
+		// Remember the media types, so the watcher can tell when media added or removed in the 
+		// tree changes them.
+		if (_watcher != null)
+		{
+			_watcher.recordFolderMediaTypes(node._directory, mediaTypes);
+		}
+
+		MediaEntry directoryEntry = (mediaTypes.isEmpty() == false ? _library.acquireDirectoryEntry(node._directory, mediaTypes) : null);
+
+		// Add resources to a respective media category type.
+		Set<Entry<String, List<String>>> categorySet = mapOfCategories.entrySet();
+		if (categorySet.isEmpty() == false)
+		{
+			for(String masterSection : masterSections)
+			{
+				for(Entry<String, List<String>> categoryReference : categorySet)
+				{
+					if (directoryEntry != null)
+					{
+						for(EMediaType mediaType : mediaTypes)
+						{
+							// This media type filtered? If so, next.
+							if (mediaTypeFilter.contains(mediaType) == false)
+							{
+								continue;
+							}
+
+							// Find/create category.
+							String categoryName = categoryReference.getKey();
+							IMediaCategoryType category = _library.acquireCategoryType(mediaType, masterSection, categoryName);
+
+							// Add resource to it.
+							List<String> categoryValues = categoryReference.getValue();
+							for(String categoryValue : categoryValues)
+							{
+								category.addResource(directoryEntry, categoryValue);
+
+								_logger.trace("[CCML] Adding resource to category a '" + categoryName + "' with a value of '" + categoryValue + "'" + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+										( masterSection != null ? " (Master: " + masterSection + ")" : "" ) + ": " + folderMetaFile); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+							}
+						}
+					}
+					else
+					{
+						_logger.warn("[CCML] The following folder meta file does not have any content to reference: " + folderMetaFile); //$NON-NLS-1$
+					}
+				}
+			}
+		}
+		else
+		{
+			_logger.warn("[CCML] The following folder meta file does not have any defined categories: " + folderMetaFile); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Parse a meta value for category type mappings.
+	 * 
+	 * @param metaFile         The meta file to parse.
+	 * @param watchedDirectory The recorded state of the meta file's directory; null if not recorded.
+	 * @return                 The map of category types to category values.
+	 */
+	private Map<String,List<String>> parseMetaFile(File metaFile, LibraryWatcher.WatchedDirectory watchedDirectory)
+	{
+		// Unchanged since it was last parsed? Use the cached result.
+		long length = 0;
+		long lastModified = 0;
+		if (_metaCache != null)
+		{
+			// Already read when the directory was recorded? Do not read the meta file's state again.
+			int index = (watchedDirectory != null ? watchedDirectory.indexOfMetaFile(metaFile.getName()) : -1);
+			if (index >= 0)
+			{
+				length = watchedDirectory.getMetaFileLength(index);
+				lastModified = watchedDirectory.getMetaFileLastModified(index);
+			}
+			else
+			{
+				length = metaFile.length();
+				lastModified = metaFile.lastModified();
+			}
+
+			Map<String, List<String>> mapOfCategories = _metaCache.get(metaFile, length, lastModified);
+			if (mapOfCategories != null)
+			{
+				return mapOfCategories;
+			}
+		}
+
+		try
+		{
+			Map<String, List<String>> mapOfCategories = _parser.get().parse(metaFile);
+			if (_metaCache != null)
+			{
+				_metaCache.put(metaFile, length, lastModified, mapOfCategories);
+			}
+
+			return mapOfCategories;
+		}
+		catch (FileNotFoundException e)
+		{
+			_logger.error("[CCML] Error opening meta file: " + metaFile); //$NON-NLS-1$
+		}
+		catch (IOException e)
+		{
+			_logger.error("[CCML] Error parsing meta file: " + metaFile); //$NON-NLS-1$
+		}
+
+		return null;
+	}
+
+	/**
+	 * Extract and remove the special category type values from a map of categories.
+	 * 
+	 * @param mapOfCategories         The map of categories to scan and alter if found.
+	 * @param metaFile                The meta file this map of categories was generated from.
+	 * @param specialCategoryTypeName The special category type name.
+	 * @return                        The special category type values; if no special category types are defined
+	 *                                an array containing a single null value will be returned.
+	 */
+	private String[] stripSpecialValues(Map<String,List<String>> mapOfCategories, File metaFile, String specialCategoryTypeName)
+	{
+		String[] specialCategories = new String[] { null };
+		List<String> masterSection = mapOfCategories.get(specialCategoryTypeName);
+		if (masterSection != null)
+		{
+			specialCategories = masterSection.toArray(new String[0]);
+
+			mapOfCategories.remove(specialCategoryTypeName);
+		}
+
+		return specialCategories;
+	}
+
+	/**
+	 * A task which crawls a single directory and queues its sub-directories.
+	 */
+	private class DirectoryTask implements Runnable
+	{
+		/**
+		 * The directory to crawl.
+		 **/
+		private final DirectoryNode _node;
+
+		/**
+		 * The executor running directory tasks; null when crawling sequentially.
+		 **/
+		private final ExecutorService _executor;
+
+		/**
+		 * Initializes a new instance of DirectoryTask.
+		 * 
+		 * @param node     The directory to crawl.
+		 * @param executor The executor running directory tasks; null when crawling sequentially.
+		 */
+		public DirectoryTask(DirectoryNode node, ExecutorService executor)
+		{
+			_node = node;
+			_executor = executor;
+		}
+
+		/**
+		 * Crawl the directory.
+		 */
+		@Override
+		public void run()
+		{
+			try
+			{
+				List<DirectoryNode> subDirectories = buildMediaLibrary(_node);
+				for(DirectoryNode subDirectory : subDirectories)
+				{
+					queueDirectory(subDirectory, _executor);
+				}
+			}
+			catch (RuntimeException e)
+			{
+				_logger.error("[CCML] Unable to crawl directory: " + _node._directory, e); //$NON-NLS-1$
+			}
+			finally
+			{
+				completeDirectory(_node);
+				releaseDirectory();
+			}
+		}
+	}
+
+	/**
+	 * A directory being crawled.
+	 * 
+	 * <p>
+	 * The media types found in a directory's tree are collected bottom-up as each directory 
+	 * completes so a folder meta file can be handled without listing its tree again.
+	 * </p>
+	 */
+	private static final class DirectoryNode
+	{
+		/**
+		 * The directory.
+		 **/
+		private final File _directory;
+
+		/**
+		 * The parent directory; null if this is a crawled root.
+		 **/
+		private final DirectoryNode _parent;
+
+		/**
+		 * The number of pending crawls for this directory (itself and its sub-directories).
+		 **/
+		private final AtomicInteger _pendingCount = new AtomicInteger(1);
+
+		/**
+		 * Whether or not this directory has a folder meta file.
+		 **/
+		private boolean _hasFolderMeta;
+
+		/**
+		 * The state of this directory recorded by the watcher; null if not watched.
+		 **/
+		private LibraryWatcher.WatchedDirectory _watchedDirectory;
+
+		/**
+		 * The media types found in this directory's tree.
+		 **/
+		private final EnumSet<EMediaType> _mediaTypes = EnumSet.noneOf(EMediaType.class);
+
+		/**
+		 * Initializes a new instance of DirectoryNode.
+		 * 
+		 * @param directory The directory.
+		 * @param parent    The parent directory; null if this is a crawled root.
+		 */
+		public DirectoryNode(File directory, DirectoryNode parent)
+		{
+			_directory = directory;
+			_parent = parent;
+		}
+
+		/**
+		 * Add a media type found directly in this directory.
+		 * 
+		 * @param mediaType The media type.
+		 */
+		public void addMediaType(EMediaType mediaType)
+		{
+			synchronized(_mediaTypes)
+			{
+				_mediaTypes.add(mediaType);
+			}
+		}
+
+		/**
+		 * Merge media types into the media types found in this directory's tree.
+		 * 
+		 * @param mediaTypes The media types.
+		 */
+		public void addMediaTypes(EnumSet<EMediaType> mediaTypes)
+		{
+			synchronized(_mediaTypes)
+			{
+				_mediaTypes.addAll(mediaTypes);
+			}
+		}
+	}
+
+	/**
+	 * Thread factory for crawler worker threads.
+	 */
+	private static class CrawlerThreadFactory implements ThreadFactory
+	{
+		/**
+		 * Counter used to name created threads.
+		 **/
+		private final AtomicInteger _threadCounter = new AtomicInteger();
+
+		/**
+		 * Create a new (daemon) crawler thread.
+		 * 
+		 * @param runnable The runnable to execute.
+		 * @return         The thread.
+		 */
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "CCML-Crawler-" + _threadCounter.incrementAndGet()); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaLibrary;
+
+/**
+ * A virtual folder for the master categories (or category types) of a media type.
+ * 
+ * <p>
+ * The children of this folder are only created from the library snapshot the first time a
+ * renderer browses into this folder.
+ * </p>
+ */
+public class MediaTypeFolder extends MaterializedFolder
+{
+	/**
+	 * The library snapshot (guarded by this instance).
+	 **/
+	private IReadableMediaLibrary _library;
+
+	/**
+	 * The media type.
+	 **/
+	private final EMediaType _mediaType;
+
+	/**
+	 * Initializes a new instance of MediaTypeFolder.
+	 * 
+	 * @param library   The library snapshot.
+	 * @param mediaType The media type.
+	 */
+	public MediaTypeFolder(IReadableMediaLibrary library, EMediaType mediaType)
+	{
+		super(mediaType.getDisplayName());
+
+		_library = library;
+		_mediaType = mediaType;
+	}
+
+	/**
+	 * Create the folders of the master categories (or category types) of this media type.
+	 */
+	@Override
+	protected void materializeChildren()
+	{
+		_library.buildVirtualFolder(_mediaType, this);
+	}
+
+	/**
+	 * Stand in for the folder of the same media type built from a newer library snapshot.
+	 * 
+	 * <p>
+	 * This folder takes the newer library snapshot over. If the media type's category types have
+	 * changed, this folder is invalidated; the folders of unchanged category types (and master
+	 * categories) are kept when it is rematerialized.
+	 * </p>
+	 * 
+	 * @param folder The folder built from the newer library snapshot.
+	 * @return       True, if this folder stands in for the provided folder; false otherwise.
+	 */
+	@Override
+	protected boolean update(MaterializedFolder folder)
+	{
+		if ((folder instanceof MediaTypeFolder) == false || ((MediaTypeFolder) folder)._mediaType != _mediaType)
+		{
+			return false;
+		}
+
+		IReadableMediaLibrary library = ((MediaTypeFolder) folder).getLibrary();
+		synchronized(this)
+		{
+			if (ImmutableMediaLibrary.isSameMasterCategoryMap(_library.getMasterCategoryMapByType(_mediaType), library.getMasterCategoryMapByType(_mediaType)) == false)
+			{
+				invalidate();
+			}
+			_library = library;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Return the library snapshot.
+	 * 
+	 * @return The library snapshot.
+	 */
+	private synchronized IReadableMediaLibrary getLibrary()
+	{
+		return _library;
+	}
+}
@@ -0,0 +1,345 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.core.interfaces.IMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaCategoryType;
+
+/**
+ * The master categories (and their category types) of a single media type in a library.
+ * 
+ * <p>
+ * Each partition has its own lock and its own snapshot. Population (acquiring category types and
+ * adding entries) holds the shared lock, so many crawler threads may populate a partition at
+ * once. Snapshots and removals hold the exclusive lock. Changes to one media type neither block
+ * nor invalidate the partitions of other media types.
+ * </p>
+ */
+public class MediaTypePartition
+{
+	/**
+	 * The media type of this partition.
+	 **/
+	private final EMediaType _mediaType;
+
+	/**
+	 * The table the media entries of the library are interned in.
+	 **/
+	private final MediaEntryTable _entries;
+
+	/**
+	 * The master categories of this partition (master categories and category types are kept ordered by name).
+	 **/
+	private final ConcurrentMap<String, ConcurrentMap<String, IMediaCategoryType>> _masterCategories = new ConcurrentSkipListMap<String, ConcurrentMap<String, IMediaCategoryType>>();
+
+	/**
+	 * Lock guarding the view of this partition.
+	 **/
+	private final ReadWriteLock _viewLock = new ReentrantReadWriteLock();
+
+	/**
+	 * The number of modifications made to this partition (including its category types).
+	 **/
+	private final AtomicInteger _modificationCount = new AtomicInteger();
+
+	/**
+	 * The last snapshot of this partition (guarded by the exclusive lock).
+	 **/
+	private Map<String, Map<String, IReadableMediaCategoryType>> _snapshot;
+
+	/**
+	 * The modification count the last snapshot was taken at (guarded by the exclusive lock).
+	 **/
+	private int _snapshotModificationCount;
+
+	/**
+	 * Initializes a new instance of MediaTypePartition.
+	 * 
+	 * @param mediaType The media type of this partition.
+	 * @param entries   The table the media entries of the library are interned in.
+	 */
+	public MediaTypePartition(EMediaType mediaType, MediaEntryTable entries)
+	{
+		_mediaType = mediaType;
+		_entries = entries;
+	}
+
+	/**
+	 * Return the media type of this partition.
+	 * 
+	 * @return The media type.
+	 */
+	public EMediaType getMediaType()
+	{
+		return _mediaType;
+	}
+
+	/**
+	 * Return the table the media entries of the library are interned in.
+	 * 
+	 * @return The media entry table.
+	 */
+	public MediaEntryTable getEntries()
+	{
+		return _entries;
+	}
+
+	/**
+	 * Return the shared lock held while populating this partition.
+	 * 
+	 * @return The lock.
+	 */
+	public Lock getPopulationLock()
+	{
+		return _viewLock.readLock();
+	}
+
+	/**
+	 * Record a modification of this partition (or one of its category types).
+	 */
+	public void markModified()
+	{
+		_modificationCount.incrementAndGet();
+	}
+
+	/**
+	 * Acquire the category type for the provided master category type and category type name.
+	 * 
+	 * @param masterCategoryTypeName The name of the master category type.
+	 * @param categoryTypeName       The name of the category type.
+	 * @return                       The category type.
+	 */
+	public IMediaCategoryType acquireCategoryType(String masterCategoryTypeName, String categoryTypeName)
+	{
+		_viewLock.readLock().lock();
+		try
+		{
+			// Find the master category. If the master category does not exist, create a new one.
+			ConcurrentMap<String, IMediaCategoryType> categoryMap = _masterCategories.get(masterCategoryTypeName);
+			if (categoryMap == null)
+			{
+				ConcurrentMap<String, IMediaCategoryType> newCategoryMap = new ConcurrentSkipListMap<String, IMediaCategoryType>();
+				categoryMap = _masterCategories.putIfAbsent(masterCategoryTypeName, newCategoryMap);
+				if (categoryMap == null)
+				{
+					categoryMap = newCategoryMap;
+				}
+			}
+
+			// Find the category. If the category does not exist, create a new one.
+			IMediaCategoryType category = categoryMap.get(categoryTypeName);
+			if (category == null)
+			{
+				IMediaCategoryType newCategory = new MediaCategoryType(categoryTypeName, this);
+				category = categoryMap.putIfAbsent(categoryTypeName, newCategory);
+				if (category == null)
+				{
+					category = newCategory;
+				}
+			}
+
+			return category;
+		}
+		finally
+		{
+			_viewLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Return whether or not this partition has any master categories.
+	 * 
+	 * @return True, if this partition is empty; false otherwise.
+	 */
+	public boolean isEmpty()
+	{
+		return _masterCategories.isEmpty();
+	}
+
+	/**
+	 * Return the master category map of this partition.
+	 * 
+	 * @return A read-only map of master categories (ordered by name).
+	 */
+	public Map<String, Map<String, IReadableMediaCategoryType>> getMasterCategoryMap()
+	{
+		Map<String, Map<String, IReadableMediaCategoryType>> masterCategoryMap = new LinkedHashMap<String, Map<String, IReadableMediaCategoryType>>();
+		for(Entry<String, ConcurrentMap<String, IMediaCategoryType>> masterCategory : _masterCategories.entrySet())
+		{
+			masterCategoryMap.put(masterCategory.getKey(), Collections.<String, IReadableMediaCategoryType>unmodifiableMap(masterCategory.getValue()));
+		}
+
+		return Collections.unmodifiableMap(masterCategoryMap);
+	}
+
+	/**
+	 * Remove media entries from the categories of this partition.
+	 * 
+	 * <p>
+	 * The categories of the category types are searched for the entries (the media entry table 
+	 * only counts the categories an entry belongs to), and each category holding some of them is 
+	 * compacted once for the whole batch. Category types and master categories left without any 
+	 * resources are removed.
+	 * </p>
+	 * 
+	 * @param ids          The identifiers of the media entries (in ascending order).
+	 * @param categoryType The category type to remove the entries from; null to remove the entries 
+	 *                     from every category type of this partition.
+	 */
+	public void removeEntries(int[] ids, MediaCategoryType categoryType)
+	{
+		if (ids.length == 0)
+		{
+			return;
+		}
+
+		_viewLock.writeLock().lock();
+		try
+		{
+			int[] removedIds = new int[ids.length];
+			if (categoryType != null)
+			{
+				categoryType.removeEntries(ids, removedIds);
+			}
+			else
+			{
+				for(ConcurrentMap<String, IMediaCategoryType> categoryTypeMap : _masterCategories.values())
+				{
+					for(IMediaCategoryType otherCategoryType : categoryTypeMap.values())
+					{
+						((MediaCategoryType) otherCategoryType).removeEntries(ids, removedIds);
+					}
+				}
+			}
+
+			removeEmptyCategoryTypes();
+		}
+		finally
+		{
+			_viewLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove category types and master categories left without any resources.
+	 */
+	private void removeEmptyCategoryTypes()
+	{
+		Iterator<ConcurrentMap<String, IMediaCategoryType>> masterCategoryIterator = _masterCategories.values().iterator();
+		while (masterCategoryIterator.hasNext() == true)
+		{
+			ConcurrentMap<String, IMediaCategoryType> categoryTypeMap = masterCategoryIterator.next();
+			Iterator<IMediaCategoryType> categoryTypeIterator = categoryTypeMap.values().iterator();
+			while (categoryTypeIterator.hasNext() == true)
+			{
+				IMediaCategoryType categoryType = categoryTypeIterator.next();
+				if (categoryType.isEmpty() == true)
+				{
+					categoryTypeIterator.remove();
+					markModified();
+				}
+			}
+
+			if (categoryTypeMap.isEmpty() == true)
+			{
+				masterCategoryIterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Remove all master categories from this partition.
+	 */
+	public void reset()
+	{
+		_viewLock.writeLock().lock();
+		try
+		{
+			// Drop the entries' memberships of this partition's categories as well.
+			for(ConcurrentMap<String, IMediaCategoryType> categoryTypeMap : _masterCategories.values())
+			{
+				for(IMediaCategoryType categoryType : categoryTypeMap.values())
+				{
+					((MediaCategoryType) categoryType).clear();
+				}
+			}
+
+			_masterCategories.clear();
+			markModified();
+		}
+		finally
+		{
+			_viewLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Return an immutable snapshot of this partition's master categories.
+	 * 
+	 * <p>
+	 * If this partition has not changed since the last snapshot, the last snapshot is returned.
+	 * Otherwise, category types which have not changed are shared with the last snapshot. Master
+	 * categories and category types are sorted by name.
+	 * </p>
+	 * 
+	 * @return A read-only (sorted) map of master categories.
+	 */
+	public Map<String, Map<String, IReadableMediaCategoryType>> snapshot()
+	{
+		// Hold the exclusive lock so no entries are added while the snapshot is taken.
+		_viewLock.writeLock().lock();
+		try
+		{
+			int modificationCount = _modificationCount.get();
+			if (_snapshot == null || _snapshotModificationCount != modificationCount)
+			{
+				SortedMap<String, Map<String, IReadableMediaCategoryType>> masterCategoryMap = new TreeMap<String, Map<String, IReadableMediaCategoryType>>();
+				for(Entry<String, ConcurrentMap<String, IMediaCategoryType>> masterCategory : _masterCategories.entrySet())
+				{
+					SortedMap<String, IReadableMediaCategoryType> categoryTypeMap = new TreeMap<String, IReadableMediaCategoryType>();
+					for(Entry<String, IMediaCategoryType> categoryType : masterCategory.getValue().entrySet())
+					{
+						IReadableMediaCategoryType categoryTypeSnapshot = categoryType.getValue().snapshot();
+						if (categoryTypeSnapshot.isEmpty() == false)
+						{
+							categoryTypeMap.put(categoryType.getKey(), categoryTypeSnapshot);
+						}
+					}
+
+					if (categoryTypeMap.isEmpty() == false)
+					{
+						masterCategoryMap.put(masterCategory.getKey(), Collections.unmodifiableSortedMap(categoryTypeMap));
+					}
+				}
+
+				_snapshot = Collections.unmodifiableSortedMap(masterCategoryMap);
+				_snapshotModificationCount = modificationCount;
+			}
+
+			return _snapshot;
+		}
+		finally
+		{
+			_viewLock.writeLock().unlock();
+		}
+	}
+}
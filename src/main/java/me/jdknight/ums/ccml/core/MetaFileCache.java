@@ -0,0 +1,426 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import me.jdknight.ums.ccml.util.FileReplaceHelper;
+import net.pms.PMS;
+
+/**
+ * A persistent cache of parsed meta files.
+ * 
+ * <p>
+ * Parsed category type mappings are stored by a meta file's path, length and modification time.
+ * A meta file which has not changed since it was cached does not need to be parsed again. The
+ * cache is stored in the profile directory; only entries used since the cache was loaded (or
+ * last saved) are written back, which drops entries of removed meta files.
+ * </p>
+ */
+public class MetaFileCache
+{
+	/**
+	 * Name of the meta cache file.
+	 **/
+	private final static String CACHE_FILENAME = "PLUGIN_CCML.metacache"; //$NON-NLS-1$
+
+	/**
+	 * Header identifying a meta cache file.
+	 **/
+	private final static int CACHE_MAGIC = 0x43434D43;
+
+	/**
+	 * Supported meta cache file version.
+	 **/
+	private final static int CACHE_VERSION = 2;
+
+	/**
+	 * Encoding of strings in a meta cache file.
+	 **/
+	private final static String CACHE_ENCODING = "UTF-8"; //$NON-NLS-1$
+
+	/**
+	 * Logger.
+	 **/
+	private static final Logger _logger = LoggerFactory.getLogger(MetaFileCache.class);
+
+	/**
+	 * The cached entries keyed by meta file path.
+	 **/
+	private final Map<String, CacheEntry> _entries = new ConcurrentHashMap<String, CacheEntry>();
+
+	/**
+	 * The cache file; null if the cache cannot be persisted.
+	 **/
+	private final File _cacheFile;
+
+	/**
+	 * Initializes a new instance of MetaFileCache.
+	 * 
+	 * @param cacheFile The cache file; null if the cache cannot be persisted.
+	 */
+	private MetaFileCache(File cacheFile)
+	{
+		_cacheFile = cacheFile;
+	}
+
+	/**
+	 * Load the meta cache from the profile directory.
+	 * 
+	 * <p>
+	 * If the cache file does not exist, cannot be read or is of another version, an empty cache
+	 * is returned.
+	 * </p>
+	 * 
+	 * @return The cache.
+	 */
+	public static MetaFileCache load()
+	{
+		File cacheFile = null;
+		try
+		{
+			cacheFile = new File(PMS.getConfiguration().getProfileDirectory(), CACHE_FILENAME);
+		}
+		catch (NullPointerException e)
+		{
+			_logger.error("[CCML] Cannot acquire meta cache file as profile directory is not defined."); //$NON-NLS-1$
+		}
+
+		return load(cacheFile);
+	}
+
+	/**
+	 * Load the meta cache from the provided cache file.
+	 * 
+	 * @param cacheFile The cache file; null if the cache cannot be persisted.
+	 * @return          The cache.
+	 */
+	static MetaFileCache load(File cacheFile)
+	{
+		MetaFileCache cache = new MetaFileCache(cacheFile);
+		if (cacheFile != null && cacheFile.isFile() == true)
+		{
+			cache.read();
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Return the cached category type mappings for the provided meta file.
+	 * 
+	 * @param metaFile     The meta file.
+	 * @param length       The current length of the meta file.
+	 * @param lastModified The current modification time of the meta file.
+	 * @return             A copy of the cached mappings; null if the meta file is not cached or has changed.
+	 */
+	public Map<String, List<String>> get(File metaFile, long length, long lastModified)
+	{
+		CacheEntry entry = _entries.get(metaFile.getPath());
+		if (entry == null || entry._length != length || entry._lastModified != lastModified)
+		{
+			return null;
+		}
+
+		entry._isUsed = true;
+		return copy(entry._mapOfCategories);
+	}
+
+	/**
+	 * Cache the category type mappings for the provided meta file.
+	 * 
+	 * @param metaFile        The meta file.
+	 * @param length          The length of the meta file when it was parsed.
+	 * @param lastModified    The modification time of the meta file when it was parsed.
+	 * @param mapOfCategories The parsed mappings.
+	 */
+	public void put(File metaFile, long length, long lastModified, Map<String, List<String>> mapOfCategories)
+	{
+		CacheEntry entry = new CacheEntry(length, lastModified, copy(mapOfCategories));
+		entry._isUsed = true;
+		_entries.put(metaFile.getPath(), entry);
+	}
+
+	/**
+	 * Persist the cache to the profile directory.
+	 * 
+	 * <p>
+	 * Only entries which have been used since the cache was loaded (or last saved) are written;
+	 * other entries are dropped from the cache. The cache is written to a temporary file first and
+	 * then moved over the existing cache file.
+	 * </p>
+	 * 
+	 * @return True, if the cache was persisted; false otherwise.
+	 */
+	public boolean save()
+	{
+		if (_cacheFile == null)
+		{
+			return false;
+		}
+
+		File temporaryFile = new File(_cacheFile.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream output = null;
+		try
+		{
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+
+			List<Entry<String, CacheEntry>> usedEntries = new ArrayList<Entry<String, CacheEntry>>();
+			for(Entry<String, CacheEntry> entry : _entries.entrySet())
+			{
+				if (entry.getValue()._isUsed == true)
+				{
+					usedEntries.add(entry);
+				}
+			}
+
+			output.writeInt(CACHE_MAGIC);
+			output.writeInt(CACHE_VERSION);
+			output.writeInt(usedEntries.size());
+			for(Entry<String, CacheEntry> entry : usedEntries)
+			{
+				CacheEntry cacheEntry = entry.getValue();
+				writeString(output, entry.getKey());
+				output.writeLong(cacheEntry._length);
+				output.writeLong(cacheEntry._lastModified);
+
+				output.writeInt(cacheEntry._mapOfCategories.size());
+				for(Entry<String, List<String>> category : cacheEntry._mapOfCategories.entrySet())
+				{
+					writeString(output, category.getKey());
+					output.writeInt(category.getValue().size());
+					for(String categoryValue : category.getValue())
+					{
+						writeString(output, categoryValue);
+					}
+				}
+			}
+
+			output.close();
+			output = null;
+
+			// Replace the existing cache (atomically, where supported).
+			if (FileReplaceHelper.replace(temporaryFile, _cacheFile) == false)
+			{
+				_logger.error("[CCML] Unable to move meta cache file into place."); //$NON-NLS-1$
+				temporaryFile.delete();
+				return false;
+			}
+
+			// Start tracking use again, so the next save drops entries unused from now on.
+			Iterator<CacheEntry> iterator = _entries.values().iterator();
+			while (iterator.hasNext() == true)
+			{
+				CacheEntry cacheEntry = iterator.next();
+				if (cacheEntry._isUsed == true)
+				{
+					cacheEntry._isUsed = false;
+				}
+				else
+				{
+					iterator.remove();
+				}
+			}
+
+			_logger.debug("[CCML] Meta cache saved (" + usedEntries.size() + " entries)."); //$NON-NLS-1$ //$NON-NLS-2$
+			return true;
+		}
+		catch (IOException e)
+		{
+			_logger.error("[CCML] Unable to write meta cache file due to an I/O error."); //$NON-NLS-1$
+		}
+		finally
+		{
+			if (output != null)
+			{
+				try
+				{
+					output.close();
+				}
+				catch (IOException e)
+				{
+					// Ignore if closing has failed.
+				}
+				temporaryFile.delete();
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Read the entries of the cache file.
+	 */
+	private void read()
+	{
+		DataInputStream input = null;
+		try
+		{
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(_cacheFile)));
+
+			// Different format? Ignore the cache; it will be replaced on the next save.
+			if (input.readInt() != CACHE_MAGIC || input.readInt() != CACHE_VERSION)
+			{
+				_logger.info("[CCML] Ignoring meta cache file of an unsupported version."); //$NON-NLS-1$
+				return;
+			}
+
+			int entryCount = input.readInt();
+			for(int entryIndex = 0; entryIndex < entryCount; entryIndex++)
+			{
+				String path = readString(input);
+				long length = input.readLong();
+				long lastModified = input.readLong();
+
+				int categoryCount = input.readInt();
+				Map<String, List<String>> mapOfCategories = new HashMap<String, List<String>>(categoryCount * 2);
+				for(int categoryIndex = 0; categoryIndex < categoryCount; categoryIndex++)
+				{
+					String categoryName = readString(input);
+					int valueCount = input.readInt();
+					List<String> categoryValues = new ArrayList<String>(valueCount);
+					for(int valueIndex = 0; valueIndex < valueCount; valueIndex++)
+					{
+						categoryValues.add(readString(input));
+					}
+					mapOfCategories.put(categoryName, categoryValues);
+				}
+
+				_entries.put(path, new CacheEntry(length, lastModified, mapOfCategories));
+			}
+
+			_logger.debug("[CCML] Meta cache loaded (" + entryCount + " entries)."); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		catch (IOException e)
+		{
+			_logger.error("[CCML] Ignoring meta cache file as it could not be read."); //$NON-NLS-1$
+			_entries.clear();
+		}
+		finally
+		{
+			if (input != null)
+			{
+				try
+				{
+					input.close();
+				}
+				catch (IOException e)
+				{
+					// Ignore if closing has failed.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write a string (of any length) as its encoded length followed by its encoded bytes.
+	 * 
+	 * @param output The stream to write to.
+	 * @param value  The string.
+	 * @throws IOException Thrown if the string could not be written.
+	 */
+	private static void writeString(DataOutputStream output, String value) throws IOException
+	{
+		byte[] bytes = value.getBytes(CACHE_ENCODING);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	/**
+	 * Read a string written by {@link #writeString(DataOutputStream, String)}.
+	 * 
+	 * @param input The stream to read from.
+	 * @return      The string.
+	 * @throws IOException Thrown if the string could not be read.
+	 */
+	private static String readString(DataInputStream input) throws IOException
+	{
+		int length = input.readInt();
+		if (length < 0)
+		{
+			throw new IOException("Invalid string length: " + length); //$NON-NLS-1$
+		}
+
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, CACHE_ENCODING);
+	}
+
+	/**
+	 * Create a deep copy of category type mappings.
+	 * 
+	 * @param mapOfCategories The mappings.
+	 * @return                The copy.
+	 */
+	private static Map<String, List<String>> copy(Map<String, List<String>> mapOfCategories)
+	{
+		Map<String, List<String>> copy = new HashMap<String, List<String>>(mapOfCategories.size() * 2);
+		for(Entry<String, List<String>> category : mapOfCategories.entrySet())
+		{
+			copy.put(category.getKey(), new ArrayList<String>(category.getValue()));
+		}
+
+		return copy;
+	}
+
+	/**
+	 * A cached meta file.
+	 */
+	private static final class CacheEntry
+	{
+		/**
+		 * The length of the meta file when it was parsed.
+		 **/
+		private final long _length;
+
+		/**
+		 * The modification time of the meta file when it was parsed.
+		 **/
+		private final long _lastModified;
+
+		/**
+		 * The parsed mappings.
+		 **/
+		private final Map<String, List<String>> _mapOfCategories;
+
+		/**
+		 * Whether or not this entry has been used since the cache was loaded.
+		 **/
+		private volatile boolean _isUsed;
+
+		/**
+		 * Initializes a new instance of CacheEntry.
+		 * 
+		 * @param length          The length of the meta file when it was parsed.
+		 * @param lastModified    The modification time of the meta file when it was parsed.
+		 * @param mapOfCategories The parsed mappings.
+		 */
+		public CacheEntry(long length, long lastModified, Map<String, List<String>> mapOfCategories)
+		{
+			_length = length;
+			_lastModified = lastModified;
+			_mapOfCategories = mapOfCategories;
+		}
+	}
+}
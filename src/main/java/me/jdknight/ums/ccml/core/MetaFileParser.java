@@ -0,0 +1,293 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.jdknight.ums.ccml.util.ByteOrderMarkHelper;
+
+/**
+ * A parser for meta files.
+ * 
+ * <p>
+ * A meta file is read once into a reusable buffer. The encoding is interpreted from the raw bytes
+ * (byte order mark) and each <code>key=value</code> line is tokenized directly from the buffer.
+ * Files which are not UTF-16/UTF-32 encoded are tokenized on bytes where ASCII tokens are built
+ * without any decoding. Keys and values have the first letter of each word capitalized.
+ * </p>
+ * 
+ * <p>
+ * A parser is not thread-safe; each thread should use its own parser.
+ * </p>
+ */
+public class MetaFileParser
+{
+	/**
+	 * The initial size of the read buffer.
+	 **/
+	private static final int INITIAL_BUFFER_SIZE = 4096;
+
+	/**
+	 * Character set used for UTF-8 encoded meta files.
+	 **/
+	private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	/**
+	 * The reusable read buffer.
+	 **/
+	private byte[] _buffer = new byte[INITIAL_BUFFER_SIZE];
+
+	/**
+	 * The reusable character buffer for ASCII tokens.
+	 **/
+	private char[] _charBuffer = new char[INITIAL_BUFFER_SIZE];
+
+	/**
+	 * Parse a meta file for category type mappings.
+	 * 
+	 * @param metaFile The meta file to parse.
+	 * @return         The map of category types to category values.
+	 * 
+	 * @throws IOException Thrown if the meta file could not be opened or read.
+	 */
+	public Map<String, List<String>> parse(File metaFile) throws IOException
+	{
+		int length = read(metaFile);
+
+		// Interpret the encoding from the raw bytes; skip any byte order mark.
+		String characterEncoding = ByteOrderMarkHelper.getEncoding(_buffer, length);
+		int offset = ByteOrderMarkHelper.getByteOrderMarkLength(characterEncoding);
+
+		Map<String, List<String>> mapOfCategories = new HashMap<String, List<String>>();
+		if (characterEncoding == null)
+		{
+			parseBytes(offset, length, Charset.defaultCharset(), mapOfCategories);
+		}
+		else if (UTF8.name().equalsIgnoreCase(characterEncoding) == true)
+		{
+			parseBytes(offset, length, UTF8, mapOfCategories);
+		}
+		else
+		{
+			// Wide encodings cannot be tokenized on bytes; decode first.
+			String content = new String(_buffer, offset, length - offset, characterEncoding);
+			parseChars(content.toCharArray(), mapOfCategories);
+		}
+
+		return mapOfCategories;
+	}
+
+	/**
+	 * Read the provided file into the read buffer.
+	 * 
+	 * @param file The file.
+	 * @return     The number of bytes read.
+	 * 
+	 * @throws IOException Thrown if the file could not be opened or read.
+	 */
+	private int read(File file) throws IOException
+	{
+		InputStream stream = new FileInputStream(file);
+		try
+		{
+			int length = 0;
+			int readCount;
+			while ((readCount = stream.read(_buffer, length, _buffer.length - length)) != -1)
+			{
+				length += readCount;
+				if (length == _buffer.length)
+				{
+					byte[] largerBuffer = new byte[_buffer.length * 2];
+					System.arraycopy(_buffer, 0, largerBuffer, 0, length);
+					_buffer = largerBuffer;
+				}
+			}
+
+			return length;
+		}
+		finally
+		{
+			try
+			{
+				stream.close();
+			}
+			catch (IOException e)
+			{
+				// Ignore issues with closing a file.
+			}
+		}
+	}
+
+	/**
+	 * Tokenize the read buffer for category type mappings.
+	 * 
+	 * <p>
+	 * Line separators and the key/value separator are ASCII characters, which never appear inside
+	 * a multi-byte character of an ASCII-compatible encoding (such as UTF-8).
+	 * </p>
+	 * 
+	 * @param offset          The offset to start at.
+	 * @param length          The number of valid bytes in the read buffer.
+	 * @param charset         The character set for non-ASCII tokens.
+	 * @param mapOfCategories The map to populate.
+	 */
+	private void parseBytes(int offset, int length, Charset charset, Map<String, List<String>> mapOfCategories)
+	{
+		byte[] buffer = _buffer;
+		int lineStart = offset;
+		int separator = -1;
+		for(int index = offset; index <= length; index++)
+		{
+			byte value = (index < length ? buffer[index] : (byte) '\n');
+			if (value == '=' && separator == -1)
+			{
+				separator = index;
+			}
+			else if (value == '\n' || value == '\r')
+			{
+				// Ignore lines without a key or value.
+				if (separator > lineStart && separator < index - 1)
+				{
+					String categoryName = decodeToken(lineStart, separator, charset);
+					String categoryValue = decodeToken(separator + 1, index, charset);
+					addCategory(mapOfCategories, categoryName, categoryValue);
+				}
+
+				lineStart = index + 1;
+				separator = -1;
+			}
+		}
+	}
+
+	/**
+	 * Tokenize decoded content for category type mappings.
+	 * 
+	 * @param content         The decoded content.
+	 * @param mapOfCategories The map to populate.
+	 */
+	private void parseChars(char[] content, Map<String, List<String>> mapOfCategories)
+	{
+		int lineStart = 0;
+		int separator = -1;
+		for(int index = 0; index <= content.length; index++)
+		{
+			char value = (index < content.length ? content[index] : '\n');
+			if (value == '=' && separator == -1)
+			{
+				separator = index;
+			}
+			else if (value == '\n' || value == '\r')
+			{
+				// Ignore lines without a key or value.
+				if (separator > lineStart && separator < index - 1)
+				{
+					capitalize(content, lineStart, separator);
+					capitalize(content, separator + 1, index);
+
+					String categoryName = new String(content, lineStart, separator - lineStart);
+					String categoryValue = new String(content, separator + 1, index - separator - 1);
+					addCategory(mapOfCategories, categoryName, categoryValue);
+				}
+
+				lineStart = index + 1;
+				separator = -1;
+			}
+		}
+	}
+
+	/**
+	 * Decode a (capitalized) token from the read buffer.
+	 * 
+	 * @param start   The start of the token (inclusive).
+	 * @param end     The end of the token (exclusive).
+	 * @param charset The character set for non-ASCII tokens.
+	 * @return        The token.
+	 */
+	private String decodeToken(int start, int end, Charset charset)
+	{
+		int length = end - start;
+		if (_charBuffer.length < length)
+		{
+			_charBuffer = new char[length];
+		}
+
+		// ASCII? Copy directly.
+		char[] chars = _charBuffer;
+		for(int index = 0; index < length; index++)
+		{
+			byte value = _buffer[start + index];
+			if (value < 0)
+			{
+				// Non-ASCII; decode using the character set.
+				chars = new String(_buffer, start, length, charset).toCharArray();
+				length = chars.length;
+				break;
+			}
+
+			chars[index] = (char) value;
+		}
+
+		capitalize(chars, 0, length);
+		return new String(chars, 0, length);
+	}
+
+	/**
+	 * Capitalize the first letter of each whitespace separated word.
+	 * 
+	 * <p>
+	 * Mirrors <code>WordUtils.capitalize</code> without creating intermediate strings.
+	 * </p>
+	 * 
+	 * @param chars The characters.
+	 * @param start The start of the range (inclusive).
+	 * @param end   The end of the range (exclusive).
+	 */
+	private static void capitalize(char[] chars, int start, int end)
+	{
+		boolean isWordStart = true;
+		for(int index = start; index < end; index++)
+		{
+			char value = chars[index];
+			if (Character.isWhitespace(value) == true)
+			{
+				isWordStart = true;
+			}
+			else if (isWordStart == true)
+			{
+				chars[index] = Character.toTitleCase(value);
+				isWordStart = false;
+			}
+		}
+	}
+
+	/**
+	 * Add a category type mapping to the provided map.
+	 * 
+	 * @param mapOfCategories The map to populate.
+	 * @param categoryName    The category type name.
+	 * @param categoryValue   The category value.
+	 */
+	private static void addCategory(Map<String, List<String>> mapOfCategories, String categoryName, String categoryValue)
+	{
+		List<String> categoryValuesList = mapOfCategories.get(categoryName);
+		if (categoryValuesList == null)
+		{
+			categoryValuesList = new ArrayList<String>();
+			mapOfCategories.put(categoryName, categoryValuesList);
+		}
+
+		categoryValuesList.add(categoryValue);
+	}
+}
@@ -0,0 +1,95 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import net.pms.dlna.DLNAResource;
+
+/**
+ * The previous children of a folder whose children are being created again from a newer library
+ * snapshot.
+ * 
+ * <p>
+ * A previous materialized folder which can stand in for a newly created child (as it was built
+ * from the same category type snapshots, or has taken over the new child's snapshots) is kept in
+ * place of the new child, along with its materialized descendants. Previous children not kept are
+ * dropped.
+ * </p>
+ */
+final class ReusableFolders
+{
+	/**
+	 * The previous children not kept yet.
+	 **/
+	private final List<DLNAResource> _previousChildren;
+
+	/**
+	 * The previous children kept.
+	 **/
+	private final List<MaterializedFolder> _keptFolders = new ArrayList<MaterializedFolder>();
+
+	/**
+	 * Initializes a new instance of ReusableFolders.
+	 * 
+	 * @param previousChildren The previous children of the folder; may be null.
+	 */
+	ReusableFolders(List<DLNAResource> previousChildren)
+	{
+		_previousChildren = (previousChildren != null ? new ArrayList<DLNAResource>(previousChildren) : new ArrayList<DLNAResource>());
+	}
+
+	/**
+	 * Find a previous child to keep in place of a newly created child.
+	 * 
+	 * @param child The new child.
+	 * @return      The previous child; null if the new child should be added.
+	 */
+	MaterializedFolder reuse(DLNAResource child)
+	{
+		if ((child instanceof MaterializedFolder) == false)
+		{
+			return null;
+		}
+
+		Iterator<DLNAResource> iterator = _previousChildren.iterator();
+		while (iterator.hasNext() == true)
+		{
+			DLNAResource previousChild = iterator.next();
+			if (previousChild instanceof MaterializedFolder && ((MaterializedFolder) previousChild).update((MaterializedFolder) child) == true)
+			{
+				iterator.remove();
+				_keptFolders.add((MaterializedFolder) previousChild);
+				return (MaterializedFolder) previousChild;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Return the previous children kept.
+	 * 
+	 * @return The kept children.
+	 */
+	List<MaterializedFolder> getKeptFolders()
+	{
+		return _keptFolders;
+	}
+
+	/**
+	 * Return the previous children dropped (once every new child has been added).
+	 * 
+	 * @return The dropped children.
+	 */
+	List<DLNAResource> getDroppedChildren()
+	{
+		return _previousChildren;
+	}
+}
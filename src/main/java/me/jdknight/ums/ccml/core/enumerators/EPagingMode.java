@@ -0,0 +1,71 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core.enumerators;
+
+/**
+ * Ways oversized category folders are split into page folders.
+ */
+public enum EPagingMode
+{
+	/**
+	 * A page folder for each initial letter (A to Z, and # for anything else); letters with too
+	 * many media are split further into fixed-size pages.
+	 **/
+	ALPHABETICAL("alphabetical"), //$NON-NLS-1$
+
+	/**
+	 * Fixed-size page folders.
+	 **/
+	FIXED("fixed"); //$NON-NLS-1$
+
+	/**
+	 * The name of this paging mode in configuration files.
+	 **/
+	private String _configurationName;
+
+	/**
+	 * Initializes a new instance of EPagingMode.
+	 * 
+	 * @param configurationName The name of this paging mode in configuration files.
+	 */
+	private EPagingMode(String configurationName)
+	{
+		_configurationName = configurationName;
+	}
+
+	/**
+	 * Return the name of this paging mode in configuration files.
+	 * 
+	 * @return The configuration name.
+	 */
+	public String getConfigurationName()
+	{
+		return _configurationName;
+	}
+
+	/**
+	 * Return the paging mode based on its name in configuration files.
+	 * 
+	 * @param configurationName The configuration name (case insensitive).
+	 * @return                  The paging mode; null if unknown.
+	 */
+	public static EPagingMode get(String configurationName)
+	{
+		if (configurationName != null)
+		{
+			for(EPagingMode pagingMode : values())
+			{
+				if (pagingMode._configurationName.equalsIgnoreCase(configurationName.trim()) == true)
+				{
+					return pagingMode;
+				}
+			}
+		}
+
+		return null;
+	}
+}
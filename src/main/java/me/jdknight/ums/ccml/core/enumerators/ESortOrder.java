@@ -0,0 +1,71 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core.enumerators;
+
+/**
+ * Orders the media of a category can be sorted in.
+ */
+public enum ESortOrder
+{
+	/**
+	 * Alphabetical order using the collation rules of the default locale.
+	 **/
+	ALPHABETICAL("alphabetical"), //$NON-NLS-1$
+
+	/**
+	 * Natural order; numbers within names are ordered by their value (for example, "Episode 2"
+	 * before "Episode 10").
+	 **/
+	NATURAL("natural"); //$NON-NLS-1$
+
+	/**
+	 * The name of this sort order in configuration files.
+	 **/
+	private String _configurationName;
+
+	/**
+	 * Initializes a new instance of ESortOrder.
+	 * 
+	 * @param configurationName The name of this sort order in configuration files.
+	 */
+	private ESortOrder(String configurationName)
+	{
+		_configurationName = configurationName;
+	}
+
+	/**
+	 * Return the name of this sort order in configuration files.
+	 * 
+	 * @return The configuration name.
+	 */
+	public String getConfigurationName()
+	{
+		return _configurationName;
+	}
+
+	/**
+	 * Return the sort order based on its name in configuration files.
+	 * 
+	 * @param configurationName The configuration name (case insensitive).
+	 * @return                  The sort order; null if unknown.
+	 */
+	public static ESortOrder get(String configurationName)
+	{
+		if (configurationName != null)
+		{
+			for(ESortOrder sortOrder : values())
+			{
+				if (sortOrder._configurationName.equalsIgnoreCase(configurationName.trim()) == true)
+				{
+					return sortOrder;
+				}
+			}
+		}
+
+		return null;
+	}
+}
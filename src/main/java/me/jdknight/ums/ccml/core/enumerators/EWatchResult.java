@@ -0,0 +1,28 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core.enumerators;
+
+/**
+ * Results of checking watched directories for changes.
+ */
+public enum EWatchResult
+{
+	/**
+	 * No changes were found.
+	 **/
+	UNCHANGED,
+
+	/**
+	 * Changes were found and applied to the library.
+	 **/
+	UPDATED,
+
+	/**
+	 * Too many (or non-local) changes were found; the library should be parsed again.
+	 **/
+	OVERFLOW;
+}
@@ -6,6 +6,9 @@
 
 package me.jdknight.ums.ccml.core.interfaces;
 
+import me.jdknight.ums.ccml.core.enumerators.EPagingMode;
+import me.jdknight.ums.ccml.core.enumerators.ESortOrder;
+
 /**
  * CCML plugin configuration utility.
  */
@@ -62,4 +65,119 @@ public interface ICcmlConfiguration
 	 * @param shouldNotify True, if the client wishes to hide the notifications; false otherwise.
 	 */
 	public void toggleHidingParsingBuildingNotification(boolean shouldNotify);
+
+	/**
+	 * Return the number of threads used to crawl shared folders for meta information.
+	 * 
+	 * @return The number of crawler threads; always at least one (1).
+	 */
+	public int getCrawlerThreadCount();
+	
+	/**
+	 * Set the number of threads used to crawl shared folders for meta information.
+	 * 
+	 * @param threadCount The number of crawler threads; zero (0) to automatically determine the count.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided thread count is negative.
+	 */
+	public void setCrawlerThreadCount(int threadCount);
+
+	/**
+	 * Return the interval between checks of shared folders for changes.
+	 * 
+	 * @return The interval, in seconds; zero (0) if shared folders are not checked for changes.
+	 */
+	public int getWatchInterval();
+
+	/**
+	 * Set the interval between checks of shared folders for changes.
+	 * 
+	 * @param interval The interval, in seconds; zero (0) to disable checking for changes.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided interval is negative.
+	 */
+	public void setWatchInterval(int interval);
+
+	/**
+	 * Return the maximum number of meta files checked for in place edits in a single check for changes.
+	 * 
+	 * @return The number of meta files; zero (0) if every meta file is checked.
+	 */
+	public int getWatchMetaFileChecks();
+
+	/**
+	 * Set the maximum number of meta files checked for in place edits in a single check for changes.
+	 * 
+	 * @param count The number of meta files; zero (0) to check every meta file.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided count is negative.
+	 */
+	public void setWatchMetaFileChecks(int count);
+
+	/**
+	 * Return the order the media of a category type's categories are sorted in.
+	 * 
+	 * @param categoryTypeName The name of the category type.
+	 * @return                 The sort order configured for the category type; the default sort order
+	 *                         if none is configured.
+	 */
+	public ESortOrder getSortOrder(String categoryTypeName);
+
+	/**
+	 * Set the order the media of a category type's categories are sorted in.
+	 * 
+	 * @param categoryTypeName The name of the category type; null to set the default sort order.
+	 * @param sortOrder        The sort order; null to use the default sort order for the category type.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the default sort order is set to null.
+	 */
+	public void setSortOrder(String categoryTypeName, ESortOrder sortOrder);
+
+	/**
+	 * Return the maximum number of children kept by materialized library folders.
+	 * 
+	 * @return The folder cache size; zero (0) if unbounded.
+	 */
+	public int getFolderCacheSize();
+
+	/**
+	 * Set the maximum number of children kept by materialized library folders.
+	 * 
+	 * @param size The folder cache size; zero (0) if unbounded.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided size is negative.
+	 */
+	public void setFolderCacheSize(int size);
+
+	/**
+	 * Return the maximum number of media shown in a category folder before it is split into pages.
+	 * 
+	 * @return The page size; zero (0) if category folders are never split.
+	 */
+	public int getFolderPageSize();
+
+	/**
+	 * Set the maximum number of media shown in a category folder before it is split into pages.
+	 * 
+	 * @param pageSize The page size; zero (0) if category folders are never split.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided page size is negative or one (1).
+	 */
+	public void setFolderPageSize(int pageSize);
+
+	/**
+	 * Return how oversized category folders are split into pages.
+	 * 
+	 * @return The paging mode.
+	 */
+	public EPagingMode getFolderPagingMode();
+
+	/**
+	 * Set how oversized category folders are split into pages.
+	 * 
+	 * @param pagingMode The paging mode.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the provided paging mode is null.
+	 */
+	public void setFolderPagingMode(EPagingMode pagingMode);
 }
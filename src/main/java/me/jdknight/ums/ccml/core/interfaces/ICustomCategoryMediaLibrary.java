@@ -6,11 +6,11 @@
 
 package me.jdknight.ums.ccml.core.interfaces;
 
-import java.util.List;
-import java.util.Map;
+import java.io.File;
+import java.util.EnumSet;
 
+import me.jdknight.ums.ccml.core.MediaEntry;
 import me.jdknight.ums.ccml.core.enumerators.EMediaType;
-import net.pms.dlna.virtual.VirtualFolder;
 
 /**
  * A custom category media library.
@@ -21,7 +21,7 @@ import net.pms.dlna.virtual.VirtualFolder;
  * can acquire a compiled list of category types from this library.
  * </p>
  */
-public interface ICustomCategoryMediaLibrary
+public interface ICustomCategoryMediaLibrary extends IReadableMediaLibrary
 {
 	/**
 	 * Acquire the category type for the provided media type and category type name.
@@ -59,54 +59,68 @@ public interface ICustomCategoryMediaLibrary
 	public IMediaCategoryType acquireCategoryType(EMediaType mediaType, String masterCategoryTypeName, String categoryTypeName);
 	
 	/**
-	 * Return whether or not the media library has any content of the provided media type.
+	 * Acquire the media entry for a media file.
 	 * 
-	 * @param mediaType The media type.
-	 * @return          True, if this library has content of this media type; false otherwise.
+	 * <p>
+	 * Media entries are interned; acquiring the same file twice will return the same entry.
+	 * </p>
+	 * 
+	 * @param file      The media file.
+	 * @param mediaType The media type of the file.
+	 * @return          The media entry.
 	 */
-	public boolean hasContent(EMediaType mediaType);
+	public MediaEntry acquireMediaEntry(File file, EMediaType mediaType);
 
 	/**
-	 * Return a list of master categories for a given media type.
+	 * Acquire the media entry for a directory of media (from a folder meta file).
+	 * 
+	 * <p>
+	 * Media entries are interned; acquiring the same directory twice will return the same entry 
+	 * (unless the media types of the directory have changed).
+	 * </p>
 	 * 
-	 * @param mediaType The media type.
-	 * @return          A list of master categories.
+	 * @param directory  The directory.
+	 * @param mediaTypes The media types found in the directory's tree.
+	 * @return           The media entry.
 	 */
-	public List<String> getMasterCategories(EMediaType mediaType);
+	public MediaEntry acquireDirectoryEntry(File directory, EnumSet<EMediaType> mediaTypes);
 	
 	/**
-	 * Return a list of media categories for a given media type and master category type.
+	 * Remove all resources referencing the provided file or directory from this library.
 	 * 
-	 * @param mediaType          The media type.
-	 * @param masterCategoryType The master category type.
-	 * @return                   A list of media categories; null if the no category exists for the provided 
-	 *                           master category type.
-	 */
-	public List<String> getMediaCategoriesForMasterCategoryType(EMediaType mediaType, String masterCategoryType);
-
-	/**
-	 * Return the master category map for a given type.
+	 * <p>
+	 * Category types and master categories left without any resources are removed.
+	 * </p>
 	 * 
-	 * @param mediaType The media type.
-	 * @return           A map for master categories.
+	 * @param path The file or directory.
 	 */
-	public Map<String, Map<String, IMediaCategoryType>> getMasterCategoryMapByType(EMediaType mediaType);
-	
+	public void removeResources(File path);
+
 	/**
-	 * Build a virtual folder of sorted category types for the provided media type.
+	 * Remove all resources referencing the provided directory or anything within it from this library.
 	 * 
 	 * <p>
-	 * All resources tied to this category type will be added as children. Master categories, if present, 
-	 * will also be generated.
+	 * Category types and master categories left without any resources are removed.
 	 * </p>
 	 * 
-	 * @param mediaType              The media type.
-	 * @param mediaTypeVirtualFolder The virtual folder to add sorted category types to for the provided media type. 
+	 * @param directory The directory.
 	 */
-	public void buildVirtualFolder(EMediaType mediaType, VirtualFolder mediaTypeVirtualFolder);
+	public void removeResourcesWithin(File directory);
 	
 	/**
 	 * Reset all category information on this library.
 	 */
 	public void resetCategories();
+
+	/**
+	 * Return an immutable snapshot of this library.
+	 * 
+	 * <p>
+	 * The snapshot reflects a consistent view of this library. Category types which have not 
+	 * changed since a previous snapshot are shared with it.
+	 * </p>
+	 * 
+	 * @return The snapshot.
+	 */
+	public IReadableMediaLibrary snapshot();
 }
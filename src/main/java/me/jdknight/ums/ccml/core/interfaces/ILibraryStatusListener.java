@@ -0,0 +1,37 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core.interfaces;
+
+/**
+ * A listener notified of the progress of a library being parsed.
+ * 
+ * <p>
+ * Notifications are sent from the thread parsing the library.
+ * </p>
+ */
+public interface ILibraryStatusListener
+{
+	/**
+	 * Invoked when the shared directories start being parsed (without a library to show meanwhile).
+	 * 
+	 * @param totalCount The total number of shared directories to parse.
+	 */
+	public void parsingStarted(int totalCount);
+
+	/**
+	 * Invoked when a shared directory has been parsed.
+	 * 
+	 * @param parsedCount The number of shared directories parsed so far.
+	 * @param totalCount  The total number of shared directories to parse.
+	 */
+	public void directoryParsed(int parsedCount, int totalCount);
+
+	/**
+	 * Invoked once the library has been completely parsed and published.
+	 */
+	public void libraryReady();
+}
@@ -6,11 +6,9 @@
 
 package me.jdknight.ums.ccml.core.interfaces;
 
-import java.util.List;
-import java.util.Map;
+import java.io.File;
 
-import net.pms.dlna.DLNAResource;
-import net.pms.dlna.virtual.VirtualFolder;
+import me.jdknight.ums.ccml.core.MediaEntry;
 
 /**
  * A media category type.
@@ -28,41 +26,50 @@ import net.pms.dlna.virtual.VirtualFolder;
  *           -> MyActionMovie.avi (Media)
  * </pre>
  */
-public interface IMediaCategoryType
+public interface IMediaCategoryType extends IReadableMediaCategoryType
 {
 	/**
-	 * Return the name of this category type.
+	 * Add a media entry to this media category type.
 	 * 
-	 * @return The name.
-	 */
-	public String getCategoryTypeName();
-	
-	/**
-	 * Add a resource to this media category type.
-	 * 
-	 * @param resource     The resource to add.
+	 * @param entry        The media entry to add.
 	 * @param categoryName The name of this category to add the resource to.
 	 * 
-	 * @throws NullPointerException     Thrown if the provided resource is null or the provided category is null.
+	 * @throws NullPointerException     Thrown if the provided entry is null or the provided category is null.
 	 * @throws IllegalArgumentException Thrown if the provided category is empty.
 	 */
-	public void addResource(DLNAResource resource, String categoryName);
-	
+	public void addResource(MediaEntry entry, String categoryName);
+
 	/**
-	 * Return a map of all resources added to this category type.
+	 * Remove all resources referencing the provided file or directory from this media category type.
+	 * 
+	 * <p>
+	 * Categories left without any resources are removed.
+	 * </p>
 	 * 
-	 * @return The map of resources.
+	 * @param path The file or directory.
 	 */
-	public Map<String, List<DLNAResource>> getResources();
+	public void removeResources(File path);
 
 	/**
-	 * Generate a virtual folder for this media category.
+	 * Remove all resources referencing the provided directory or anything within it from this 
+	 * media category type.
+	 * 
+	 * <p>
+	 * Categories left without any resources are removed.
+	 * </p>
+	 * 
+	 * @param directory The directory.
+	 */
+	public void removeResourcesWithin(File directory);
+	
+	/**
+	 * Return an immutable snapshot of this media category type.
 	 * 
 	 * <p>
-	 * All resources tied to this category type will be added as children.
+	 * Snapshots of an unchanged media category type are shared.
 	 * </p>
 	 * 
-	 * @return The generated virtual folder.
+	 * @return The snapshot.
 	 */
-	public VirtualFolder generateVirtualFolder();
+	public IReadableMediaCategoryType snapshot();
 }
@@ -0,0 +1,50 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core.interfaces;
+
+import java.io.File;
+
+/**
+ * A crawler used to populate a custom category media library from shared directories.
+ */
+public interface IMediaLibraryCrawler
+{
+	/**
+	 * Crawl the provided directories for meta information.
+	 * 
+	 * <p>
+	 * This call will block until all provided directories (and their sub-directories) have been
+	 * crawled.
+	 * </p>
+	 * 
+	 * @param directories The directories to crawl.
+	 */
+	public void crawl(File[] directories);
+
+	/**
+	 * Crawl a single media file for meta information.
+	 * 
+	 * <p>
+	 * Only the media file itself is added; its directory's folder meta file is not handled.
+	 * </p>
+	 * 
+	 * @param mediaFile The media file to crawl.
+	 */
+	public void crawlFile(File mediaFile);
+
+	/**
+	 * Crawl the folder meta file of the provided directory.
+	 * 
+	 * <p>
+	 * The media types the directory's tree contains are taken from the watcher's state of the 
+	 * tree (the tree is only listed if it is not watched). Media files in the tree are not handled.
+	 * </p>
+	 * 
+	 * @param directory The directory containing the folder meta file.
+	 */
+	public void crawlFolderMeta(File directory);
+}
@@ -0,0 +1,60 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core.interfaces;
+
+import java.util.List;
+import java.util.Map;
+
+import me.jdknight.ums.ccml.core.MediaEntry;
+import net.pms.dlna.virtual.VirtualFolder;
+
+/**
+ * A media category type which can be browsed (but not modified).
+ * 
+ * <p>
+ * Snapshots of a media category type only support these operations.
+ * </p>
+ */
+public interface IReadableMediaCategoryType
+{
+	/**
+	 * Return the name of this category type.
+	 * 
+	 * @return The name.
+	 */
+	public String getCategoryTypeName();
+
+	/**
+	 * Return whether or not this category type has any media entries.
+	 * 
+	 * @return True, if no media entries have been added; false otherwise.
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Return a map of all media entries added to this category type.
+	 * 
+	 * <p>
+	 * The returned map is a copy; it is not updated as entries are added or removed.
+	 * </p>
+	 * 
+	 * @return The map of media entries (ordered by category name).
+	 */
+	public Map<String, List<MediaEntry>> getResources();
+
+	/**
+	 * Generate a virtual folder for this media category.
+	 * 
+	 * <p>
+	 * A folder is added for each category once a renderer browses the generated folder; the 
+	 * resources of a category are only created once a renderer browses its folder.
+	 * </p>
+	 * 
+	 * @return The generated virtual folder.
+	 */
+	public VirtualFolder generateVirtualFolder();
+}
@@ -0,0 +1,33 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core.interfaces;
+
+import java.util.List;
+
+import me.jdknight.ums.ccml.core.MediaEntry;
+
+/**
+ * A table of media entries which can be looked up by identifier.
+ */
+public interface IReadableMediaEntryTable
+{
+	/**
+	 * Return the entry with the provided identifier.
+	 * 
+	 * @param id The identifier.
+	 * @return   The entry.
+	 */
+	public MediaEntry get(int id);
+
+	/**
+	 * Return a list of the entries with the provided identifiers.
+	 * 
+	 * @param ids The identifiers.
+	 * @return    The list of entries.
+	 */
+	public List<MediaEntry> resolve(int[] ids);
+}
@@ -0,0 +1,72 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core.interfaces;
+
+import java.util.List;
+import java.util.Map;
+
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import net.pms.dlna.virtual.VirtualFolder;
+
+/**
+ * A custom category media library which can be browsed (but not modified).
+ * 
+ * <p>
+ * Snapshots of a library only support these operations; renderers and the user interface browse 
+ * a published snapshot.
+ * </p>
+ */
+public interface IReadableMediaLibrary
+{
+	/**
+	 * Return whether or not the media library has any content of the provided media type.
+	 * 
+	 * @param mediaType The media type.
+	 * @return          True, if this library has content of this media type; false otherwise.
+	 */
+	public boolean hasContent(EMediaType mediaType);
+
+	/**
+	 * Return a list of master categories for a given media type.
+	 * 
+	 * @param mediaType The media type.
+	 * @return          A list of master categories.
+	 */
+	public List<String> getMasterCategories(EMediaType mediaType);
+
+	/**
+	 * Return a list of media categories for a given media type and master category type.
+	 * 
+	 * @param mediaType          The media type.
+	 * @param masterCategoryType The master category type.
+	 * @return                   A list of media categories; null if the no category exists for the provided 
+	 *                           master category type.
+	 */
+	public List<String> getMediaCategoriesForMasterCategoryType(EMediaType mediaType, String masterCategoryType);
+
+	/**
+	 * Return the master category map for a given type.
+	 * 
+	 * @param mediaType The media type.
+	 * @return           A map for master categories (master categories and category types are 
+	 *                   ordered by name).
+	 */
+	public Map<String, Map<String, IReadableMediaCategoryType>> getMasterCategoryMapByType(EMediaType mediaType);
+
+	/**
+	 * Build a virtual folder of sorted category types for the provided media type.
+	 * 
+	 * <p>
+	 * Master categories, if present, and category types are added as folders; the children of these 
+	 * folders are only created when a renderer browses into them.
+	 * </p>
+	 * 
+	 * @param mediaType              The media type.
+	 * @param mediaTypeVirtualFolder The virtual folder to add sorted category types to for the provided media type. 
+	 */
+	public void buildVirtualFolder(EMediaType mediaType, VirtualFolder mediaTypeVirtualFolder);
+}
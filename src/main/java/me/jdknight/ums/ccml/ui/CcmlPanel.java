@@ -32,7 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import me.jdknight.ums.ccml.core.CcmlConfiguration;
-import me.jdknight.ums.ccml.core.interfaces.ICustomCategoryMediaLibrary;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaLibrary;
 import me.jdknight.ums.ccml.lang.Messages;
 import net.pms.PMS;
 import net.pms.newgui.RestrictedFileSystemView;
@@ -51,7 +51,7 @@ public class CcmlPanel extends JPanel
 	/**
 	 * The library.
 	 **/
-	private ICustomCategoryMediaLibrary _library;
+	private IReadableMediaLibrary _library;
 	
 	/**
 	 * Flag to track whether or not the client has changed settings.
@@ -68,7 +68,7 @@ public class CcmlPanel extends JPanel
 	 * 
 	 * @param library The library.
 	 */
-	public CcmlPanel(ICustomCategoryMediaLibrary library)
+	public CcmlPanel(IReadableMediaLibrary library)
 	{
 		_library = library;
 
@@ -13,10 +13,9 @@ import java.awt.event.MouseEvent;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Map.Entry;
 
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
@@ -29,9 +28,11 @@ import org.slf4j.LoggerFactory;
 
 import me.jdknight.ums.ccml.core.LazyCompatibility;
 import me.jdknight.ums.ccml.core.CcmlRootFolderListener;
+import me.jdknight.ums.ccml.core.DirectoryMediaFolder;
+import me.jdknight.ums.ccml.core.MediaEntry;
 import me.jdknight.ums.ccml.core.enumerators.EMediaType;
-import me.jdknight.ums.ccml.core.interfaces.ICustomCategoryMediaLibrary;
-import me.jdknight.ums.ccml.core.interfaces.IMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaLibrary;
 import net.pms.dlna.DLNAResource;
 import net.pms.dlna.RealFile;
 import net.pms.dlna.virtual.TranscodeVirtualFolder;
@@ -54,7 +55,7 @@ public class MetaStructurePanel extends JPanel
 	 * 
 	 * @param library The library.
 	 */
-	public MetaStructurePanel(ICustomCategoryMediaLibrary library)
+	public MetaStructurePanel(IReadableMediaLibrary library)
 	{
         GridBagConstraints constraints;
         GridBagLayout layout = new GridBagLayout();
@@ -141,7 +142,7 @@ public class MetaStructurePanel extends JPanel
 	 * @param library  The library.
 	 * @param rootNode The root to attach onto.
 	 */
-	private void buildTree(ICustomCategoryMediaLibrary library, DefaultMutableTreeNode rootNode)
+	private void buildTree(IReadableMediaLibrary library, DefaultMutableTreeNode rootNode)
 	{
 		// Count how many base sections that we are using.
 		// 
@@ -179,42 +180,34 @@ public class MetaStructurePanel extends JPanel
 					rootNode.add(sectionNode);
 				}
 				
-				// Master categories.
-				Map<String, Map<String, IMediaCategoryType>> masterMap = library.getMasterCategoryMapByType(mediaType);
-				Set<String> masterCategories = masterMap.keySet();
-				List<String> sortedMasterCategories = new ArrayList<String>(masterCategories);
-				Collections.sort(sortedMasterCategories);
-
-				for(String masterCategory : sortedMasterCategories)
+				// Master categories (the library keeps master categories, category types and 
+				// categories ordered by name).
+				Map<String, Map<String, IReadableMediaCategoryType>> masterMap = library.getMasterCategoryMapByType(mediaType);
+				for(Entry<String, Map<String, IReadableMediaCategoryType>> masterCategory : masterMap.entrySet())
 				{
-					DefaultMutableTreeNode masterCategoryNode = new DefaultMutableTreeNode(masterCategory);
+					DefaultMutableTreeNode masterCategoryNode = new DefaultMutableTreeNode(masterCategory.getKey());
 					sectionNode.add(masterCategoryNode);
 
 					// Category types.
-					Map<String, IMediaCategoryType> categoryTypeMap = masterMap.get(masterCategory);
-					Set<String> categoryTypes = categoryTypeMap.keySet();
-					List<String> sortedCategoryTypes = new ArrayList<String>(categoryTypes);
-					Collections.sort(sortedCategoryTypes);
-
-					for(String mediaCategoryType : sortedCategoryTypes)
+					for(Entry<String, IReadableMediaCategoryType> categoryType : masterCategory.getValue().entrySet())
 					{
-						DefaultMutableTreeNode categoryTypeNode = new DefaultMutableTreeNode(mediaCategoryType);
+						DefaultMutableTreeNode categoryTypeNode = new DefaultMutableTreeNode(categoryType.getKey());
 						masterCategoryNode.add(categoryTypeNode);
 
 						// Categories.
-						IMediaCategoryType categoryType = categoryTypeMap.get(mediaCategoryType);
-						Map<String, List<DLNAResource>> categoryTypeResourcesMap = categoryType.getResources();
-						Set<String> categories = categoryTypeResourcesMap.keySet();
-						List<String> sortedCategories = new ArrayList<String>(categories);
-						Collections.sort(sortedCategories);
-
-						for(String mediaCategory : sortedCategories)
+						Map<String, List<MediaEntry>> categoryTypeResourcesMap = categoryType.getValue().getResources();
+						for(Entry<String, List<MediaEntry>> category : categoryTypeResourcesMap.entrySet())
 						{
-							DefaultMutableTreeNode categoryNode = new DefaultMutableTreeNode(mediaCategory);
+							DefaultMutableTreeNode categoryNode = new DefaultMutableTreeNode(category.getKey());
 							categoryTypeNode.add(categoryNode);
 							
-							// Resources.
-							List<DLNAResource> categoryResources = categoryTypeResourcesMap.get(mediaCategory);
+							// Resources (created from the category's media entries, as they are when browsed).
+							List<MediaEntry> categoryEntries = category.getValue();
+							List<DLNAResource> categoryResources = new ArrayList<DLNAResource>(categoryEntries.size());
+							for(MediaEntry entry : categoryEntries)
+							{
+								categoryResources.add(entry.createResource());
+							}
 							buildTree_subSectionDlnaResources(library, categoryNode, mediaType, categoryResources);
 						}
 					}
@@ -232,7 +225,7 @@ public class MetaStructurePanel extends JPanel
 	 * @param resources List of resources to render.
 	 * @return          The total count of resources added.
 	 */
-	private int buildTree_subSectionDlnaResources(ICustomCategoryMediaLibrary library, DefaultMutableTreeNode rootNode, EMediaType mediaType, List<DLNAResource> resources)
+	private int buildTree_subSectionDlnaResources(IReadableMediaLibrary library, DefaultMutableTreeNode rootNode, EMediaType mediaType, List<DLNAResource> resources)
 	{
 		int resourcesAdded = 0;
 		
@@ -261,8 +254,17 @@ public class MetaStructurePanel extends JPanel
 			{
 				DefaultMutableTreeNode virtualFolderNode = new DefaultMutableTreeNode(resource.getDisplayName());
 				
-				VirtualFolder virtualFolder = (VirtualFolder) resource;
-				List<DLNAResource> folderResources = virtualFolder.getChildren();
+				// Directory folders are only populated when browsed; list their resources without populating them.
+				List<DLNAResource> folderResources;
+				if (resource instanceof DirectoryMediaFolder)
+				{
+					folderResources = ((DirectoryMediaFolder) resource).createChildren();
+				}
+				else
+				{
+					VirtualFolder virtualFolder = (VirtualFolder) resource;
+					folderResources = virtualFolder.getChildren();
+				}
 				int ownResourcesAdded = buildTree_subSectionDlnaResources(library, virtualFolderNode, mediaType, folderResources);
 				resourcesAdded += ownResourcesAdded;
 				
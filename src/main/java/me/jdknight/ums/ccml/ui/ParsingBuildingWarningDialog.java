@@ -17,6 +17,8 @@ import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 import me.jdknight.ums.ccml.core.CcmlConfiguration;
+import me.jdknight.ums.ccml.core.LibraryStatus;
+import me.jdknight.ums.ccml.core.interfaces.ILibraryStatusListener;
 import me.jdknight.ums.ccml.lang.Messages;
 import net.pms.PMS;
 
@@ -27,15 +29,10 @@ import net.pms.PMS;
 public class ParsingBuildingWarningDialog extends JOptionPane
 {
 	/**
-	 * Time, in milliseconds, to wait before rending a parsing warning dialog.
+	 * Time, in milliseconds, the library must still be parsing before the dialog is shown.
 	 **/
-	private static final int PARSING_WAIT_INTERVAL = 5000;
+	private static final int SHOW_DELAY = 5000;
 
-	/**
-	 * Time, in milliseconds, to wait before rending a building warning dialog.
-	 **/
-	private static final int BUILDING_WAIT_INTERVAL = 7000;
-	
 	/**
 	 * Dialog options.
 	 **/
@@ -49,38 +46,42 @@ public class ParsingBuildingWarningDialog extends JOptionPane
 	private JDialog _dialog;
 	
 	/**
-	 * Dialog consumption flag.
+	 * Dialog consumption flag; a dialog is shown at most once.
 	 **/
 	private boolean _isConsumed;
 
 	/**
 	 * Initializes a new instance of ParsingBuildingWarningDialog.
-	 * 
-	 * @param isParsing True, if we are parsing; otherwise flagging for building.
 	 */
-	public ParsingBuildingWarningDialog(boolean isParsing)
+	public ParsingBuildingWarningDialog()
 	{
 		super(
-				(isParsing == true ? Messages.getString("CParsingBuildingWarningDialog.LIBRARY_BEING_PARSED") : Messages.getString("CParsingBuildingWarningDialog.LIBRARY_BEING_BUILT")), //$NON-NLS-1$ //$NON-NLS-2$
+				Messages.getString("CParsingBuildingWarningDialog.LIBRARY_BEING_PARSED"), //$NON-NLS-1$
 				JOptionPane.PLAIN_MESSAGE,
 				JOptionPane.YES_NO_OPTION, 
 				null, 
 				DIALOG_OPTIONS, DIALOG_OPTIONS[1]);
 
-		String dialogTitle = "CCML - " + (isParsing == true ? Messages.getString("CParsingBuildingWarningDialog.PARSING_LIBRARY") : Messages.getString("CParsingBuildingWarningDialog.BUILDING_LIBRARY")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		String dialogTitle = "CCML - " + Messages.getString("CParsingBuildingWarningDialog.PARSING_LIBRARY"); //$NON-NLS-1$ //$NON-NLS-2$
 		_dialog = createDialog(((JFrame) (SwingUtilities.getWindowAncestor((Component) PMS.get().getFrame()))), dialogTitle);
 	}
 	
 	/**
 	 * Show the dialog.
+	 * 
+	 * <p>
+	 * The dialog is only shown once; later calls (or calls after the dialog has been terminated)
+	 * are ignored.
+	 * </p>
 	 */
 	public void showDialog()
 	{
-		// Consumed or visible? Ignore.
-		if (_isConsumed == true || _dialog.isVisible() == true)
+		// Consumed? Ignore.
+		if (_isConsumed == true)
 		{
 			return;
 		}
+		_isConsumed = true;
 
 		// Open the dialog.
 		_dialog.setVisible(true);
@@ -109,55 +110,70 @@ public class ParsingBuildingWarningDialog extends JOptionPane
 	}
 
 	/**
-	 * Queue a parsing warning dialog to be opened.
-	 * 
-	 * @return The dialog.
-	 */
-	public static ParsingBuildingWarningDialog queueParsingWarning()
-	{
-		return queueDialog(true);
-	}
-
-	/**
-	 * Queue a building warning dialog to be opened.
+	 * Queue a parsing warning dialog for the provided library status.
 	 * 
-	 * @return The dialog.
-	 */
-	public static ParsingBuildingWarningDialog queueBuildingWarning()
-	{
-		return queueDialog(false);
-	}
-	
-	/**
-	 * Queue a warning dialog to be opened.
+	 * <p>
+	 * The dialog is opened (once) if the library is still being parsed a few seconds after parsing
+	 * started; a library restored from a snapshot is ready before parsing starts, so no dialog is
+	 * shown for it. The dialog is closed when the library is ready.
+	 * </p>
 	 * 
-	 * @param isParsing True, if we are parsing; else wise flagging for building.
-	 * @return          The dialog.
+	 * @param status The status of the library being parsed.
+	 * @return       The dialog.
 	 */
-	private static ParsingBuildingWarningDialog queueDialog(final boolean isParsing)
+	public static ParsingBuildingWarningDialog queueParsingWarning(LibraryStatus status)
 	{
-		final ParsingBuildingWarningDialog dialog = new ParsingBuildingWarningDialog(isParsing);
-
-		// Open dialog after waiting the timeout.
-		SwingUtilities.invokeLater(new Runnable()
+		final ParsingBuildingWarningDialog dialog = new ParsingBuildingWarningDialog();
+		final Timer timer = new Timer(SHOW_DELAY, new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent event)
+			{
+				dialog.showDialog();
+			}
+		});
+		timer.setRepeats(false);
+		
+		status.addListener(new ILibraryStatusListener()
 		{
 			@Override
-			public void run()
+			public void parsingStarted(int totalCount)
 			{
-				ActionListener task = new ActionListener()
+				// Still parsing after a while? Let the user know.
+				SwingUtilities.invokeLater(new Runnable()
 				{
-					public void actionPerformed(ActionEvent event)
+					@Override
+					public void run()
 					{
-						dialog.showDialog();
+						if (dialog._isConsumed == false)
+						{
+							timer.start();
+						}
 					}
-				};
+				});
+			}
+
+			@Override
+			public void directoryParsed(int parsedCount, int totalCount)
+			{
+				// Nothing to do; the dialog is not updated with progress.
+			}
 
-				Timer timer = new Timer((isParsing == true ? PARSING_WAIT_INTERVAL : BUILDING_WAIT_INTERVAL), task);
-				timer.setRepeats(false);
-				timer.start();
+			@Override
+			public void libraryReady()
+			{
+				SwingUtilities.invokeLater(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						timer.stop();
+						dialog.terminateDialog();
+					}
+				});
 			}
 		});
-
+		
 		return dialog;
 	}
 }
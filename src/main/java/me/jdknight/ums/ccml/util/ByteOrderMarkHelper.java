@@ -6,10 +6,10 @@
 
 package me.jdknight.ums.ccml.util;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Byte order mark utility class.
@@ -58,50 +58,21 @@ public final class ByteOrderMarkHelper
 	 */
 	public static String getEncoding(File file)
 	{
-		// Read the first initial bytes of a file and attempt to interpret it's encoding.
-		//
-		// See: http://en.wikipedia.org/wiki/Byte_order_mark
-		BufferedReader reader = null;
+		// Read the first initial (raw) bytes of a file and attempt to interpret it's encoding.
+		InputStream stream = null;
 		try
 		{
-			reader = new BufferedReader(new FileReader(file));
-			switch(reader.read())
+			stream = new FileInputStream(file);
+			
+			byte[] bytes = new byte[4];
+			int length = 0;
+			int readCount;
+			while (length < bytes.length && (readCount = stream.read(bytes, length, bytes.length - length)) != -1)
 			{
-				case 0xEF:
-					if (reader.read() == 0xBB && reader.read() == 0xBF)
-					{
-							return FILE_FORMAT_UTF8;
-					}
-					break;
-					
-				case 0xFE:
-					if ( reader.read() == 0xFF )
-					{
-							return FILE_FORMAT_UTF16BE;
-					}
-					break;
-					
-				case 0xFF:
-					if ( reader.read() == 0xFE )
-					{
-						if ( reader.read() == 0x00 && reader.read() == 0x00 )
-						{
-							return FILE_FORMAT_UTF32LE;
-						}
-						else
-						{
-							return FILE_FORMAT_UTF16LE;
-						}
-					}
-					break;
-					
-				case 0x00:
-					if ( reader.read() == 0x00 && reader.read() == 0xFE && reader.read() == 0xFF )
-					{
-						return FILE_FORMAT_UTF32BE;
-					}
-					break;
+				length += readCount;
 			}
+			
+			return getEncoding(bytes, length);
 		}
 		catch (IOException e)
 		{
@@ -109,11 +80,11 @@ public final class ByteOrderMarkHelper
 		}
 		finally
 		{
-			if (reader != null)
+			if (stream != null)
 			{
 				try
 				{
-					reader.close();
+					stream.close();
 				}
 				catch (IOException e)
 				{
@@ -124,4 +95,86 @@ public final class ByteOrderMarkHelper
 		
 		return null;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Interpret the encoding of the provided raw bytes.
+	 * 
+	 * @param bytes  The raw bytes (starting from the beginning of a file).
+	 * @param length The number of valid bytes.
+	 * @return       The character encoding; null if unknown.
+	 */
+	public static String getEncoding(byte[] bytes, int length)
+	{
+		// Attempt to interpret the encoding from the initial bytes.
+		//
+		// See: http://en.wikipedia.org/wiki/Byte_order_mark
+		int byte0 = (length > 0 ? bytes[0] & 0xFF : -1);
+		int byte1 = (length > 1 ? bytes[1] & 0xFF : -1);
+		int byte2 = (length > 2 ? bytes[2] & 0xFF : -1);
+		int byte3 = (length > 3 ? bytes[3] & 0xFF : -1);
+		
+		switch(byte0)
+		{
+			case 0xEF:
+				if (byte1 == 0xBB && byte2 == 0xBF)
+				{
+					return FILE_FORMAT_UTF8;
+				}
+				break;
+				
+			case 0xFE:
+				if (byte1 == 0xFF)
+				{
+					return FILE_FORMAT_UTF16BE;
+				}
+				break;
+				
+			case 0xFF:
+				if (byte1 == 0xFE)
+				{
+					if (byte2 == 0x00 && byte3 == 0x00)
+					{
+						return FILE_FORMAT_UTF32LE;
+					}
+					else
+					{
+						return FILE_FORMAT_UTF16LE;
+					}
+				}
+				break;
+				
+			case 0x00:
+				if (byte1 == 0x00 && byte2 == 0xFE && byte3 == 0xFF)
+				{
+					return FILE_FORMAT_UTF32BE;
+				}
+				break;
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Return the length, in bytes, of the byte order mark for the provided encoding.
+	 * 
+	 * @param encoding The character encoding returned by this helper; may be null.
+	 * @return         The length of the byte order mark; zero (0) if the encoding has no byte order mark.
+	 */
+	public static int getByteOrderMarkLength(String encoding)
+	{
+		if (FILE_FORMAT_UTF8.equals(encoding) == true)
+		{
+			return 3;
+		}
+		else if (FILE_FORMAT_UTF16LE.equals(encoding) == true || FILE_FORMAT_UTF16BE.equals(encoding) == true)
+		{
+			return 2;
+		}
+		else if (FILE_FORMAT_UTF32LE.equals(encoding) == true || FILE_FORMAT_UTF32BE.equals(encoding) == true)
+		{
+			return 4;
+		}
+		
+		return 0;
+	}
+}
@@ -0,0 +1,142 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A single listing of a directory.
+ * 
+ * <p>
+ * The directory is read once and each entry is classified as either a file or a directory
+ * with a single file system query. Sibling lookups (such as finding a media file's meta file)
+ * can then be answered from the listing without touching the file system again.
+ * </p>
+ */
+public final class DirectoryListing
+{
+	/**
+	 * Whether or not the platform compares file names without case (such as Windows).
+	 **/
+	private static final boolean IS_CASE_INSENSITIVE = new File("a").equals(new File("A")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	/**
+	 * An empty listing.
+	 **/
+	private static final DirectoryListing EMPTY_LISTING = new DirectoryListing(
+			Collections.<File>emptyList(), Collections.<File>emptyList(), Collections.<String>emptySet());
+
+	/**
+	 * The files found in the directory.
+	 **/
+	private final List<File> _files;
+
+	/**
+	 * The sub-directories found in the directory.
+	 **/
+	private final List<File> _directories;
+
+	/**
+	 * The names of the files found in the directory.
+	 **/
+	private final Set<String> _fileNames;
+
+	/**
+	 * Initializes a new instance of DirectoryListing.
+	 * 
+	 * @param files       The files found in the directory.
+	 * @param directories The sub-directories found in the directory.
+	 * @param fileNames   The names of the files found in the directory.
+	 */
+	private DirectoryListing(List<File> files, List<File> directories, Set<String> fileNames)
+	{
+		_files = files;
+		_directories = directories;
+		_fileNames = fileNames;
+	}
+
+	/**
+	 * List the provided directory.
+	 * 
+	 * @param directory The directory to list.
+	 * @return          The listing; an empty listing if the directory could not be read.
+	 */
+	public static DirectoryListing list(File directory)
+	{
+		String[] entryNames = directory.list();
+		if (entryNames == null || entryNames.length == 0)
+		{
+			return EMPTY_LISTING;
+		}
+
+		List<File> files = new ArrayList<File>(entryNames.length);
+		List<File> directories = new ArrayList<File>();
+		Set<String> fileNames = new HashSet<String>(entryNames.length * 2);
+		for(String entryName : entryNames)
+		{
+			File entry = new File(directory, entryName);
+			if (entry.isDirectory() == true)
+			{
+				directories.add(entry);
+			}
+			else
+			{
+				files.add(entry);
+				fileNames.add(normalizeName(entryName));
+			}
+		}
+
+		return new DirectoryListing(files, directories, fileNames);
+	}
+
+	/**
+	 * Return the files found in the directory.
+	 * 
+	 * @return The files.
+	 */
+	public List<File> getFiles()
+	{
+		return _files;
+	}
+
+	/**
+	 * Return the sub-directories found in the directory.
+	 * 
+	 * @return The sub-directories.
+	 */
+	public List<File> getDirectories()
+	{
+		return _directories;
+	}
+
+	/**
+	 * Return whether or not the directory contains a file with the provided name.
+	 * 
+	 * @param fileName The file name.
+	 * @return         True, if the file exists in this listing; false otherwise.
+	 */
+	public boolean containsFile(String fileName)
+	{
+		return _fileNames.contains(normalizeName(fileName));
+	}
+
+	/**
+	 * Normalize a file name for lookups based on the platform's file name comparison.
+	 * 
+	 * @param fileName The file name.
+	 * @return         The normalized name.
+	 */
+	private static String normalizeName(String fileName)
+	{
+		return (IS_CASE_INSENSITIVE == true ? fileName.toLowerCase() : fileName);
+	}
+}
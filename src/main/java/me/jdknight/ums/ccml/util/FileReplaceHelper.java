@@ -0,0 +1,50 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.util;
+
+import java.io.File;
+
+/**
+ * File replacement utility class.
+ * 
+ * <p>
+ * A file is written to a temporary file first and then moved over the file it replaces. On
+ * POSIX systems the move replaces the existing file atomically, so a crash leaves either the
+ * previous or the new file in place. Only where the move cannot replace an existing file (for
+ * example, on Windows) is the existing file deleted first.
+ * </p>
+ */
+public final class FileReplaceHelper
+{
+	/**
+	 * Private constructor.
+	 **/
+	private FileReplaceHelper() {}
+
+	/**
+	 * Replace a file with a temporary file.
+	 * 
+	 * @param temporaryFile The temporary file holding the new content.
+	 * @param file          The file to replace.
+	 * @return              True, if the file has been replaced; false otherwise.
+	 */
+	public static boolean replace(File temporaryFile, File file)
+	{
+		if (temporaryFile.renameTo(file) == true)
+		{
+			return true;
+		}
+
+		// Unable to move over an existing file? Delete it first.
+		if (file.isFile() == true && file.delete() == false)
+		{
+			return false;
+		}
+
+		return temporaryFile.renameTo(file);
+	}
+}
@@ -0,0 +1,264 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.util;
+
+import java.util.Arrays;
+
+/**
+ * A sorted set of primitive integer identifiers (a posting list).
+ * 
+ * <p>
+ * Identifiers are kept in ascending order in a single primitive array, so a membership costs
+ * four bytes (plus spare capacity) instead of a boxed value and a hash node. Identifiers are
+ * usually added in ascending order (as they are assigned), which appends; other identifiers
+ * are inserted at their binary searched position.
+ * </p>
+ * 
+ * <p>
+ * A snapshot shares the array of this list (trimmed to size) rather than copying it; the array 
+ * is only copied once this list changes again. A list which has not changed since its last 
+ * snapshot therefore holds its identifiers once.
+ * </p>
+ * 
+ * <p>
+ * This list is not thread safe.
+ * </p>
+ */
+public final class IntPostingList
+{
+	/**
+	 * The initial capacity of a list.
+	 **/
+	private static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * The identifiers (the first _size are in use).
+	 **/
+	private int[] _ids = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The number of identifiers in this list.
+	 **/
+	private int _size;
+
+	/**
+	 * Whether or not the identifiers are shared with a snapshot (and must be copied before they 
+	 * are modified).
+	 **/
+	private boolean _isShared;
+
+	/**
+	 * Add an identifier to this list.
+	 * 
+	 * @param id The identifier.
+	 * @return   True, if the identifier was added; false if it was already present.
+	 */
+	public boolean add(int id)
+	{
+		int index;
+		if (_size == 0 || _ids[_size - 1] < id)
+		{
+			index = _size;
+		}
+		else
+		{
+			index = Arrays.binarySearch(_ids, 0, _size, id);
+			if (index >= 0)
+			{
+				return false;
+			}
+
+			index = -(index + 1);
+		}
+
+		// A shared array is always full (it is trimmed when shared), so it is copied here as well.
+		if (_size == _ids.length)
+		{
+			_ids = Arrays.copyOf(_ids, Math.max(INITIAL_CAPACITY, _size + (_size >> 1) + 1));
+			_isShared = false;
+		}
+
+		System.arraycopy(_ids, index, _ids, index + 1, _size - index);
+		_ids[index] = id;
+		_size++;
+
+		return true;
+	}
+
+	/**
+	 * Return whether or not this list contains an identifier.
+	 * 
+	 * @param id The identifier.
+	 * @return   True, if the identifier is present; false otherwise.
+	 */
+	public boolean contains(int id)
+	{
+		return (Arrays.binarySearch(_ids, 0, _size, id) >= 0);
+	}
+
+	/**
+	 * Return the identifier at the provided position.
+	 * 
+	 * @param index The position.
+	 * @return      The identifier.
+	 * 
+	 * @throws IndexOutOfBoundsException Thrown if the position is not within this list.
+	 */
+	public int get(int index)
+	{
+		if (index < 0 || index >= _size)
+		{
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+
+		return _ids[index];
+	}
+
+	/**
+	 * Remove the identifier at the provided position.
+	 * 
+	 * @param index The position.
+	 * 
+	 * @throws IndexOutOfBoundsException Thrown if the position is not within this list.
+	 */
+	public void removeAt(int index)
+	{
+		if (index < 0 || index >= _size)
+		{
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+
+		copyIfShared();
+		System.arraycopy(_ids, index + 1, _ids, index, _size - index - 1);
+		_size--;
+	}
+
+	/**
+	 * Remove a batch of identifiers from this list.
+	 * 
+	 * <p>
+	 * The identifiers to remove are looked up by binary search until the first one present is 
+	 * found, so a batch with none of its identifiers in this list neither writes nor copies. The
+	 * list is then compacted in a single pass, however many identifiers are removed.
+	 * </p>
+	 * 
+	 * @param ids        The identifiers to remove (in ascending order).
+	 * @param count      The number of identifiers (from the start of the array) to remove.
+	 * @param removedIds The array receiving the identifiers removed (in ascending order; must hold 
+	 *                   at least count identifiers); null if not needed.
+	 * @return           The number of identifiers removed (identifiers not present are ignored).
+	 */
+	public int removeAll(int[] ids, int count, int[] removedIds)
+	{
+		// Find the first identifier present.
+		int firstIndex = -1;
+		int removeIndex = 0;
+		int searchIndex = 0;
+		while (removeIndex < count && searchIndex < _size)
+		{
+			int index = Arrays.binarySearch(_ids, searchIndex, _size, ids[removeIndex]);
+			if (index >= 0)
+			{
+				firstIndex = index;
+				break;
+			}
+
+			searchIndex = -(index + 1);
+			removeIndex++;
+		}
+
+		if (firstIndex < 0)
+		{
+			return 0;
+		}
+
+		copyIfShared();
+
+		int keptCount = firstIndex;
+		int removedCount = 0;
+		for(int index = firstIndex; index < _size; index++)
+		{
+			int id = _ids[index];
+			while (removeIndex < count && ids[removeIndex] < id)
+			{
+				removeIndex++;
+			}
+
+			if (removeIndex == count || ids[removeIndex] != id)
+			{
+				_ids[keptCount++] = id;
+			}
+			else if (removedIds != null)
+			{
+				removedIds[removedCount++] = id;
+			}
+			else
+			{
+				removedCount++;
+			}
+		}
+
+		_size = keptCount;
+		return removedCount;
+	}
+
+	/**
+	 * Return the number of identifiers in this list.
+	 * 
+	 * @return The number of identifiers.
+	 */
+	public int size()
+	{
+		return _size;
+	}
+
+	/**
+	 * Return whether or not this list is empty.
+	 * 
+	 * @return True, if this list has no identifiers; false otherwise.
+	 */
+	public boolean isEmpty()
+	{
+		return (_size == 0);
+	}
+
+	/**
+	 * Return a snapshot of the identifiers in this list (in ascending order).
+	 * 
+	 * <p>
+	 * The returned array is the array of this list (trimmed to size), so unchanged lists return
+	 * the same array again. The returned array must not be modified.
+	 * </p>
+	 * 
+	 * @return The identifiers.
+	 */
+	public int[] snapshot()
+	{
+		if (_isShared == false)
+		{
+			if (_ids.length != _size)
+			{
+				_ids = Arrays.copyOf(_ids, _size);
+			}
+			_isShared = true;
+		}
+
+		return _ids;
+	}
+
+	/**
+	 * Copy the identifiers if they are shared with a snapshot, so they can be modified.
+	 */
+	private void copyIfShared()
+	{
+		if (_isShared == true)
+		{
+			_ids = Arrays.copyOf(_ids, _size);
+			_isShared = false;
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.util;
+
+/**
+ * Sorted integer set utility class.
+ * 
+ * <p>
+ * Sets are primitive arrays of identifiers in ascending order (such as posting list snapshots).
+ * Intersections walk both sets when they are of similar size; when one set is much smaller,
+ * each of its identifiers is searched for in the larger set with a galloping (exponential then
+ * binary) search, which skips over large runs of the larger set.
+ * </p>
+ */
+public final class IntSets
+{
+	/**
+	 * The size ratio from which intersections gallop through the larger set.
+	 **/
+	private static final int GALLOP_RATIO = 8;
+
+	/**
+	 * An empty set.
+	 **/
+	private static final int[] EMPTY = new int[0];
+
+	/**
+	 * Private constructor.
+	 **/
+	private IntSets() {}
+
+	/**
+	 * Return the intersection of two sets.
+	 * 
+	 * @param first  The first set (in ascending order).
+	 * @param second The second set (in ascending order).
+	 * @return       The intersection (in ascending order).
+	 */
+	public static int[] intersect(int[] first, int[] second)
+	{
+		int[] smaller = (first.length <= second.length ? first : second);
+		int[] intersection = new int[smaller.length];
+		int count = intersect(first, second, intersection);
+		if (count == 0)
+		{
+			return EMPTY;
+		}
+
+		if (count == intersection.length)
+		{
+			return intersection;
+		}
+
+		int[] trimmed = new int[count];
+		System.arraycopy(intersection, 0, trimmed, 0, count);
+		return trimmed;
+	}
+
+	/**
+	 * Return the size of the intersection of two sets (without building the intersection).
+	 * 
+	 * @param first  The first set (in ascending order).
+	 * @param second The second set (in ascending order).
+	 * @return       The number of identifiers in both sets.
+	 */
+	public static int intersectionSize(int[] first, int[] second)
+	{
+		return intersect(first, second, null);
+	}
+
+	/**
+	 * Return the union of two sets.
+	 * 
+	 * @param first  The first set (in ascending order).
+	 * @param second The second set (in ascending order).
+	 * @return       The union (in ascending order).
+	 */
+	public static int[] union(int[] first, int[] second)
+	{
+		int[] union = new int[first.length + second.length];
+		int count = 0;
+		int firstIndex = 0;
+		int secondIndex = 0;
+		while (firstIndex < first.length && secondIndex < second.length)
+		{
+			int firstId = first[firstIndex];
+			int secondId = second[secondIndex];
+			if (firstId <= secondId)
+			{
+				union[count++] = firstId;
+				firstIndex++;
+				if (firstId == secondId)
+				{
+					secondIndex++;
+				}
+			}
+			else
+			{
+				union[count++] = secondId;
+				secondIndex++;
+			}
+		}
+
+		System.arraycopy(first, firstIndex, union, count, first.length - firstIndex);
+		count += first.length - firstIndex;
+		System.arraycopy(second, secondIndex, union, count, second.length - secondIndex);
+		count += second.length - secondIndex;
+
+		if (count == union.length)
+		{
+			return union;
+		}
+
+		int[] trimmed = new int[count];
+		System.arraycopy(union, 0, trimmed, 0, count);
+		return trimmed;
+	}
+
+	/**
+	 * Intersect two sets.
+	 * 
+	 * @param first        The first set (in ascending order).
+	 * @param second       The second set (in ascending order).
+	 * @param intersection The array to store the intersection in; null to only count it.
+	 * @return             The number of identifiers in both sets.
+	 */
+	private static int intersect(int[] first, int[] second, int[] intersection)
+	{
+		int[] smaller = (first.length <= second.length ? first : second);
+		int[] larger = (smaller == first ? second : first);
+		if (smaller.length == 0)
+		{
+			return 0;
+		}
+
+		int count = 0;
+		if (larger.length / smaller.length >= GALLOP_RATIO)
+		{
+			// Search each identifier of the smaller set in the rest of the larger set.
+			int largerIndex = 0;
+			for(int id : smaller)
+			{
+				largerIndex = gallop(larger, largerIndex, id);
+				if (largerIndex == larger.length)
+				{
+					break;
+				}
+
+				if (larger[largerIndex] == id)
+				{
+					if (intersection != null)
+					{
+						intersection[count] = id;
+					}
+					count++;
+				}
+			}
+		}
+		else
+		{
+			// Walk both sets.
+			int smallerIndex = 0;
+			int largerIndex = 0;
+			while (smallerIndex < smaller.length && largerIndex < larger.length)
+			{
+				int smallerId = smaller[smallerIndex];
+				int largerId = larger[largerIndex];
+				if (smallerId < largerId)
+				{
+					smallerIndex++;
+				}
+				else if (smallerId > largerId)
+				{
+					largerIndex++;
+				}
+				else
+				{
+					if (intersection != null)
+					{
+						intersection[count] = smallerId;
+					}
+					count++;
+					smallerIndex++;
+					largerIndex++;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Find the first identifier of a set which is not less than the target.
+	 * 
+	 * @param ids    The set (in ascending order).
+	 * @param from   The index to start searching from.
+	 * @param target The target identifier.
+	 * @return       The index of the identifier; the length of the set if all identifiers are less.
+	 */
+	private static int gallop(int[] ids, int from, int target)
+	{
+		// Double the step until the target is passed.
+		int low = from;
+		int step = 1;
+		int high = from;
+		while (high < ids.length && ids[high] < target)
+		{
+			low = high + 1;
+			high = from + step;
+			step <<= 1;
+		}
+
+		// Binary search the last step.
+		high = Math.min(high, ids.length);
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (ids[middle] < target)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+}
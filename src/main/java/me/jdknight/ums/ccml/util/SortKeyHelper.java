@@ -0,0 +1,135 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.util;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Locale;
+
+/**
+ * Sort key utility class.
+ * 
+ * <p>
+ * Sort keys are computed once for a name and can then be compared many times without
+ * interpreting the name again.
+ * </p>
+ */
+public final class SortKeyHelper
+{
+	/**
+	 * The collator for the default locale (guarded by itself; collators are not thread safe).
+	 **/
+	private static final Collator _collator;
+
+	static
+	{
+		// Ignore case differences (but not accents).
+		_collator = Collator.getInstance();
+		_collator.setStrength(Collator.SECONDARY);
+	}
+
+	/**
+	 * The character marking a run of digits in a natural order key.
+	 * 
+	 * <p>
+	 * The marker is itself a digit, so a number sorts where its first digit would sort against 
+	 * other characters (after spaces and punctuation such as '-' or '.', before letters). A literal
+	 * digit never appears in a key otherwise, so the marker is only ever compared with another 
+	 * marker.
+	 * </p>
+	 **/
+	private static final char DIGITS_MARKER = '0';
+
+	/**
+	 * Private constructor.
+	 **/
+	private SortKeyHelper() {}
+
+	/**
+	 * Return the collation key of a name for the default locale.
+	 * 
+	 * @param name The name.
+	 * @return     The collation key.
+	 */
+	public static CollationKey getCollationKey(String name)
+	{
+		synchronized(_collator)
+		{
+			return _collator.getCollationKey(name);
+		}
+	}
+
+	/**
+	 * Return the natural order key of a name.
+	 * 
+	 * <p>
+	 * Letters are compared without case (in the root locale). Each run of digits is replaced by a 
+	 * marker and its length (as a single character) followed by the digits without leading zeros;
+	 * comparing two keys therefore compares numbers by their value ("Episode 2" before 
+	 * "Episode 10"), while a number keeps its place against other characters ("Episode - 2" 
+	 * before "Episode 2" before "Episode A"). Keys are compared with 
+	 * {@link String#compareTo(String)}.
+	 * </p>
+	 * 
+	 * <p>
+	 * Names only differing by case or by leading zeros ("Episode 01" and "Episode 1") have the 
+	 * same key; ties should be broken by comparing the names themselves.
+	 * </p>
+	 * 
+	 * @param name The name.
+	 * @return     The natural order key.
+	 */
+	public static String getNaturalKey(String name)
+	{
+		String lowerCaseName = name.toLowerCase(Locale.ROOT);
+		int length = lowerCaseName.length();
+		StringBuilder key = new StringBuilder(length + 8);
+
+		int index = 0;
+		while (index < length)
+		{
+			char character = lowerCaseName.charAt(index);
+			if (isDigit(character) == false)
+			{
+				key.append(character);
+				index++;
+				continue;
+			}
+
+			// Skip leading zeros (but keep a single zero for a value of zero).
+			int start = index;
+			while (start < length - 1 && lowerCaseName.charAt(start) == '0' && isDigit(lowerCaseName.charAt(start + 1)) == true)
+			{
+				start++;
+			}
+
+			int end = start;
+			while (end < length && isDigit(lowerCaseName.charAt(end)) == true)
+			{
+				end++;
+			}
+
+			key.append(DIGITS_MARKER);
+			key.append((char)(end - start));
+			key.append(lowerCaseName, start, end);
+			index = end;
+		}
+
+		return key.toString();
+	}
+
+	/**
+	 * Return whether or not the provided character is an (ASCII) digit.
+	 * 
+	 * @param character The character.
+	 * @return          True, if the character is a digit; false otherwise.
+	 */
+	private static boolean isDigit(char character)
+	{
+		return (character >= '0' && character <= '9');
+	}
+}
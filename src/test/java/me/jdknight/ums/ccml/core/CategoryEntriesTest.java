@@ -0,0 +1,154 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.core.enumerators.ESortOrder;
+
+/**
+ * Tests of the media entries of a category (and the update of their display order).
+ */
+public class CategoryEntriesTest extends TestCase
+{
+	/**
+	 * The number of media entries in the table.
+	 **/
+	private static final int ENTRY_COUNT = 400;
+
+	/**
+	 * The table the media entries are interned in.
+	 **/
+	private MediaEntryTable _table;
+
+	/**
+	 * Populate the media entry table (names repeat across directories, so some entries only differ
+	 * by path).
+	 */
+	@Override
+	protected void setUp()
+	{
+		_table = new MediaEntryTable();
+
+		Random random = new Random(42);
+		for(int index = 0; index < ENTRY_COUNT; index++)
+		{
+			String name = "Episode " + random.nextInt(150) + (random.nextBoolean() == true ? " - Part " + random.nextInt(3) : "") + ".avi"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			_table.acquireFile(new File("/media/" + index + "/" + name), EMediaType.VIDEO); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Test that the display order of new entries is a full sort.
+	 */
+	public void testSort()
+	{
+		MediaEntryComparator comparator = MediaEntryComparator.get(ESortOrder.NATURAL);
+		CategoryEntries entries = new CategoryEntries(new int[] { 0, 1, 2, 3, 4, 5 });
+		assertNull(entries.getDisplayOrder());
+
+		int[] displayOrder = entries.getDisplayOrder(_table, comparator);
+		assertSame(displayOrder, entries.getDisplayOrder());
+		for(int index = 1; index < displayOrder.length; index++)
+		{
+			assertTrue(comparator.compare(_table.get(displayOrder[index - 1]), _table.get(displayOrder[index])) < 0);
+		}
+	}
+
+	/**
+	 * Test that updating the display order of a changed category matches a full sort.
+	 */
+	public void testIncrementalUpdate()
+	{
+		Random random = new Random(7);
+		for(ESortOrder sortOrder : ESortOrder.values())
+		{
+			MediaEntryComparator comparator = MediaEntryComparator.get(sortOrder);
+			TreeSet<Integer> ids = new TreeSet<Integer>();
+			for(int index = 0; index < 100; index++)
+			{
+				ids.add(Integer.valueOf(random.nextInt(ENTRY_COUNT)));
+			}
+
+			CategoryEntries entries = new CategoryEntries(toArray(ids));
+			entries.getDisplayOrder(_table, comparator);
+			for(int round = 0; round < 50; round++)
+			{
+				// Add and remove a few entries (or, now and then, add many).
+				int addedCount = (round % 10 == 9 ? 150 : random.nextInt(5));
+				for(int index = 0; index < addedCount; index++)
+				{
+					ids.add(Integer.valueOf(random.nextInt(ENTRY_COUNT)));
+				}
+
+				int removedCount = random.nextInt(5);
+				for(int index = 0; index < removedCount && ids.isEmpty() == false; index++)
+				{
+					Integer id = ids.ceiling(Integer.valueOf(random.nextInt(ENTRY_COUNT)));
+					ids.remove(id != null ? id : ids.first());
+				}
+
+				entries = new CategoryEntries(toArray(ids), entries);
+
+				// Skip sorting some versions; the next version updates the last sorted one.
+				if (round % 3 == 1)
+				{
+					continue;
+				}
+
+				int[] expected = new CategoryEntries(toArray(ids)).getDisplayOrder(_table, comparator);
+				assertTrue(sortOrder + "/" + round, Arrays.equals(expected, entries.getDisplayOrder(_table, comparator))); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * Test that an unchanged display order is kept when entries are only removed.
+	 */
+	public void testRemovalKeepsOrder()
+	{
+		MediaEntryComparator comparator = MediaEntryComparator.get(ESortOrder.NATURAL);
+		CategoryEntries entries = new CategoryEntries(new int[] { 10, 20, 30, 40, 50 });
+		int[] displayOrder = entries.getDisplayOrder(_table, comparator);
+
+		CategoryEntries changedEntries = new CategoryEntries(new int[] { 10, 30, 50 }, entries);
+		int[] expected = new int[3];
+		int count = 0;
+		for(int id : displayOrder)
+		{
+			if (id == 10 || id == 30 || id == 50)
+			{
+				expected[count++] = id;
+			}
+		}
+
+		assertTrue(Arrays.equals(expected, changedEntries.getDisplayOrder(_table, comparator)));
+	}
+
+	/**
+	 * Return the identifiers of a tree set.
+	 * 
+	 * @param set The tree set.
+	 * @return    The identifiers (in ascending order).
+	 */
+	private static int[] toArray(TreeSet<Integer> set)
+	{
+		int[] ids = new int[set.size()];
+		int index = 0;
+		for(Integer id : set)
+		{
+			ids[index++] = id.intValue();
+		}
+
+		return ids;
+	}
+}
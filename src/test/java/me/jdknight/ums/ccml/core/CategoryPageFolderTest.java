@@ -0,0 +1,257 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import junit.framework.TestCase;
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.core.enumerators.ESortOrder;
+import net.pms.dlna.DLNAResource;
+import net.pms.dlna.RealFile;
+import net.pms.dlna.virtual.VirtualFolder;
+
+/**
+ * Tests of the paging of oversized categories (by initial letter and by fixed-size pages).
+ */
+public class CategoryPageFolderTest extends TestCase
+{
+	/**
+	 * The table the media entries are interned in.
+	 **/
+	private MediaEntryTable _table;
+
+	/**
+	 * Create the media entry table.
+	 */
+	@Override
+	protected void setUp()
+	{
+		_table = new MediaEntryTable();
+	}
+
+	/**
+	 * Test that a range which fits a page is added without pages.
+	 */
+	public void testSinglePage()
+	{
+		int[] ids = createEntries(10);
+
+		VirtualFolder folder = new VirtualFolder("Category", null); //$NON-NLS-1$
+		CategoryPageFolder.addRange(folder, _table, ids, 0, ids.length, 10);
+		assertTrue(getPageNames(folder).isEmpty());
+		assertEquals(getFiles(ids, 0, ids.length), getLeafFiles(folder));
+
+		// Unbounded.
+		folder = new VirtualFolder("Category", null); //$NON-NLS-1$
+		CategoryPageFolder.addRange(folder, _table, ids, 0, ids.length, 0);
+		assertEquals(10, folder.getChildren().size());
+		assertEquals(getFiles(ids, 0, ids.length), getLeafFiles(folder));
+	}
+
+	/**
+	 * Test fixed-size pages (named by their position).
+	 */
+	public void testFixedPages()
+	{
+		int[] ids = createEntries(25);
+
+		VirtualFolder folder = new VirtualFolder("Category", null); //$NON-NLS-1$
+		CategoryPageFolder.addRange(folder, _table, ids, 0, ids.length, 10);
+		assertEquals(Arrays.asList("1-10", "11-20", "21-25"), getPageNames(folder)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(getFiles(ids, 0, ids.length), getLeafFiles(folder));
+
+		// A range within the identifiers is named relative to its start.
+		folder = new VirtualFolder("Category", null); //$NON-NLS-1$
+		CategoryPageFolder.addRange(folder, _table, ids, 5, 17, 5);
+		assertEquals(Arrays.asList("1-5", "6-10", "11-12"), getPageNames(folder)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(getFiles(ids, 5, 17), getLeafFiles(folder));
+	}
+
+	/**
+	 * Test pages of pages (when there would be more pages than fit a page).
+	 */
+	public void testPagesOfPages()
+	{
+		int[] ids = createEntries(250);
+
+		VirtualFolder folder = new VirtualFolder("Category", null); //$NON-NLS-1$
+		CategoryPageFolder.addRange(folder, _table, ids, 0, ids.length, 10);
+		assertEquals(Arrays.asList("1-100", "101-200", "201-250"), getPageNames(folder)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		DLNAResource lastPage = folder.getChildren().get(2);
+		lastPage.discoverChildren();
+		assertEquals(Arrays.asList("1-10", "11-20", "21-30", "31-40", "41-50"), getPageNames(lastPage)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		assertEquals(getFiles(ids, 0, ids.length), getLeafFiles(folder));
+
+		// Exactly as many pages as fit a page.
+		folder = new VirtualFolder("Category", null); //$NON-NLS-1$
+		CategoryPageFolder.addRange(folder, _table, ids, 0, 100, 10);
+		assertEquals(10, folder.getChildren().size());
+		assertEquals(getFiles(ids, 0, 100), getLeafFiles(folder));
+	}
+
+	/**
+	 * Test pages by initial letter (with digits and other characters joined in a '#' page).
+	 */
+	public void testLetterPages()
+	{
+		Map<String, String> letters = new LinkedHashMap<String, String>();
+		letters.put("2 Fast.avi", "#"); //$NON-NLS-1$ //$NON-NLS-2$
+		letters.put("10 Things.avi", "#"); //$NON-NLS-1$ //$NON-NLS-2$
+		letters.put("Alien.avi", "A"); //$NON-NLS-1$ //$NON-NLS-2$
+		letters.put("aliens.avi", "A"); //$NON-NLS-1$ //$NON-NLS-2$
+		letters.put("Amadeus.avi", "A"); //$NON-NLS-1$ //$NON-NLS-2$
+		letters.put("Apocalypse Now.avi", "A"); //$NON-NLS-1$ //$NON-NLS-2$
+		letters.put("Avatar.avi", "A"); //$NON-NLS-1$ //$NON-NLS-2$
+		letters.put("Blade Runner.avi", "B"); //$NON-NLS-1$ //$NON-NLS-2$
+		letters.put("\u00c9clair.avi", "E"); //$NON-NLS-1$ //$NON-NLS-2$
+		letters.put("Eraser.avi", "E"); //$NON-NLS-1$ //$NON-NLS-2$
+		letters.put("\u65e5\u672c.avi", "#"); //$NON-NLS-1$ //$NON-NLS-2$
+		letters.put("_Extras.avi", "#"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		int[] ids = new int[letters.size()];
+		int index = 0;
+		for(String name : letters.keySet())
+		{
+			ids[index++] = _table.acquireFile(new File("/media/" + name), EMediaType.VIDEO).getId(); //$NON-NLS-1$
+		}
+		Arrays.sort(ids);
+
+		CategoryEntries entries = new CategoryEntries(ids);
+		int[] displayOrder = entries.getDisplayOrder(_table, MediaEntryComparator.get(ESortOrder.NATURAL));
+		CategoryMediaFolder folder = new CategoryMediaFolder("Category", _table, entries, ESortOrder.NATURAL); //$NON-NLS-1$
+		assertTrue(folder.addLetterPages(displayOrder, 3));
+
+		// Each letter's page holds its entries in display order (in the order the letters first appear).
+		Map<String, List<File>> expected = new LinkedHashMap<String, List<File>>();
+		for(int id : displayOrder)
+		{
+			MediaEntry entry = _table.get(id);
+			String letter = letters.get(entry.getName());
+			if (expected.containsKey(letter) == false)
+			{
+				expected.put(letter, new ArrayList<File>());
+			}
+			expected.get(letter).add(entry.getFile());
+		}
+
+		assertEquals(new ArrayList<String>(expected.keySet()), getPageNames(folder));
+		index = 0;
+		for(Entry<String, List<File>> letter : expected.entrySet())
+		{
+			assertEquals(letter.getKey(), letter.getValue(), getLeafFiles(folder.getChildren().get(index++)));
+		}
+
+		// A letter with more media than fit a page is split into fixed-size pages.
+		DLNAResource letterPage = folder.getChildren().get(new ArrayList<String>(expected.keySet()).indexOf("A")); //$NON-NLS-1$
+		letterPage.discoverChildren();
+		assertEquals(Arrays.asList("1-3", "4-5"), getPageNames(letterPage)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Test that no letter pages are added when all media share an initial letter.
+	 */
+	public void testSingleLetter()
+	{
+		int[] ids = createEntries(10);
+
+		CategoryEntries entries = new CategoryEntries(ids);
+		int[] displayOrder = entries.getDisplayOrder(_table, MediaEntryComparator.get(ESortOrder.NATURAL));
+		CategoryMediaFolder folder = new CategoryMediaFolder("Category", _table, entries, ESortOrder.NATURAL); //$NON-NLS-1$
+		assertFalse(folder.addLetterPages(displayOrder, 3));
+		assertEquals(0, folder.getChildren().size());
+	}
+
+	/**
+	 * Create media entries (named to sort in the order they are created).
+	 * 
+	 * @param count The number of media entries.
+	 * @return      The media entry identifiers (in creation order).
+	 */
+	private int[] createEntries(int count)
+	{
+		int[] ids = new int[count];
+		for(int index = 0; index < count; index++)
+		{
+			ids[index] = _table.acquireFile(new File("/media/Episode " + (index + 1) + ".avi"), EMediaType.VIDEO).getId(); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Return the files of a range of media entries.
+	 * 
+	 * @param ids   The media entry identifiers.
+	 * @param start The index of the first identifier of the range.
+	 * @param end   The index after the last identifier of the range.
+	 * @return      The files.
+	 */
+	private List<File> getFiles(int[] ids, int start, int end)
+	{
+		List<File> files = new ArrayList<File>();
+		for(int index = start; index < end; index++)
+		{
+			files.add(_table.get(ids[index]).getFile());
+		}
+
+		return files;
+	}
+
+	/**
+	 * Return the names of the pages of a folder.
+	 * 
+	 * @param folder The folder.
+	 * @return       The page names.
+	 */
+	private static List<String> getPageNames(DLNAResource folder)
+	{
+		List<String> names = new ArrayList<String>();
+		for(DLNAResource child : folder.getChildren())
+		{
+			if (child instanceof CategoryPageFolder)
+			{
+				names.add(child.getName());
+			}
+		}
+
+		return names;
+	}
+
+	/**
+	 * Return the files of the media in a folder, browsing into the folder and its pages.
+	 * 
+	 * @param folder The folder.
+	 * @return       The files (in display order).
+	 */
+	private static List<File> getLeafFiles(DLNAResource folder)
+	{
+		folder.discoverChildren();
+
+		List<File> files = new ArrayList<File>();
+		for(DLNAResource child : new ArrayList<DLNAResource>(folder.getChildren()))
+		{
+			if (child instanceof CategoryPageFolder)
+			{
+				files.addAll(getLeafFiles(child));
+			}
+			else
+			{
+				files.add(((RealFile) child).getFile());
+			}
+		}
+
+		return files;
+	}
+}
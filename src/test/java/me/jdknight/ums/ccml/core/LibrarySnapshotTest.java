@@ -0,0 +1,282 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+import me.jdknight.ums.ccml.core.enumerators.EMediaType;
+import me.jdknight.ums.ccml.core.interfaces.ICustomCategoryMediaLibrary;
+import me.jdknight.ums.ccml.core.interfaces.IMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaCategoryType;
+import me.jdknight.ums.ccml.core.interfaces.IReadableMediaLibrary;
+import me.jdknight.ums.ccml.lang.Messages;
+
+/**
+ * Tests of the binary snapshot of a custom category media library.
+ */
+public class LibrarySnapshotTest extends TestCase
+{
+	/**
+	 * The snapshot file.
+	 **/
+	private File _snapshotFile;
+
+	/**
+	 * Create an (absent) snapshot file.
+	 * 
+	 * @throws IOException Thrown if the snapshot file could not be created.
+	 */
+	@Override
+	protected void setUp() throws IOException
+	{
+		_snapshotFile = File.createTempFile("ccml", ".snapshot"); //$NON-NLS-1$ //$NON-NLS-2$
+		_snapshotFile.delete();
+	}
+
+	/**
+	 * Delete the snapshot file.
+	 */
+	@Override
+	protected void tearDown()
+	{
+		_snapshotFile.delete();
+	}
+
+	/**
+	 * Test that a loaded snapshot holds the structure of the saved library.
+	 */
+	public void testRoundTrip()
+	{
+		IReadableMediaLibrary library = createLibrary().snapshot();
+		assertTrue(LibrarySnapshot.save(library, _snapshotFile));
+		assertFalse(new File(_snapshotFile.getPath() + ".tmp").exists()); //$NON-NLS-1$
+
+		ICustomCategoryMediaLibrary loadedLibrary = LibrarySnapshot.load(_snapshotFile);
+		assertNotNull(loadedLibrary);
+		assertEquals(describe(library), describe(loadedLibrary.snapshot()));
+		assertTrue(loadedLibrary.hasContent(EMediaType.VIDEO));
+		assertTrue(loadedLibrary.hasContent(EMediaType.AUDIO));
+		assertFalse(loadedLibrary.hasContent(EMediaType.IMAGE));
+
+		// A snapshot of the loaded library is identical.
+		File otherSnapshotFile = new File(_snapshotFile.getPath() + ".other"); //$NON-NLS-1$
+		try
+		{
+			assertTrue(LibrarySnapshot.save(loadedLibrary.snapshot(), otherSnapshotFile));
+			assertEquals(_snapshotFile.length(), otherSnapshotFile.length());
+			assertEquals(describe(library), describe(LibrarySnapshot.load(otherSnapshotFile).snapshot()));
+		}
+		finally
+		{
+			otherSnapshotFile.delete();
+		}
+	}
+
+	/**
+	 * Test that loaded directory entries are interned (shared between categories).
+	 */
+	public void testDirectoryEntriesShared()
+	{
+		assertTrue(LibrarySnapshot.save(createLibrary().snapshot(), _snapshotFile));
+
+		IReadableMediaLibrary loadedLibrary = LibrarySnapshot.load(_snapshotFile).snapshot();
+		Map<String, Map<String, IReadableMediaCategoryType>> masterCategoryMap = loadedLibrary.getMasterCategoryMapByType(EMediaType.VIDEO);
+		String uncategorizedName = Messages.getString("CCustomCategoryMediaLibrary.UNCATEGORIZED0"); //$NON-NLS-1$
+		MediaEntry genreEntry = findEntry(masterCategoryMap.get(uncategorizedName), "/media/Series"); //$NON-NLS-1$
+		MediaEntry actorEntry = findEntry(masterCategoryMap.get("People"), "/media/Series"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertNotNull(genreEntry);
+		assertTrue(genreEntry.isDirectory());
+		assertEquals(EnumSet.of(EMediaType.AUDIO, EMediaType.VIDEO), genreEntry.getDirectoryMediaTypes());
+		assertSame(genreEntry, actorEntry);
+	}
+
+	/**
+	 * Test that a missing, truncated or unsupported snapshot is not loaded.
+	 * 
+	 * @throws IOException Thrown if the snapshot file could not be written.
+	 */
+	public void testUnusableSnapshot() throws IOException
+	{
+		assertNull(LibrarySnapshot.load(_snapshotFile));
+		assertNull(LibrarySnapshot.load(null));
+		assertFalse(LibrarySnapshot.save(createLibrary().snapshot(), null));
+
+		// Truncated.
+		assertTrue(LibrarySnapshot.save(createLibrary().snapshot(), _snapshotFile));
+		byte[] bytes = readFile(_snapshotFile);
+		OutputStream stream = new FileOutputStream(_snapshotFile);
+		try
+		{
+			stream.write(bytes, 0, bytes.length - 3);
+		}
+		finally
+		{
+			stream.close();
+		}
+		assertNull(LibrarySnapshot.load(_snapshotFile));
+
+		// Another version.
+		DataOutputStream output = new DataOutputStream(new FileOutputStream(_snapshotFile));
+		try
+		{
+			output.write(bytes, 0, 4);
+			output.writeInt(Integer.MAX_VALUE);
+			output.write(bytes, 8, bytes.length - 8);
+		}
+		finally
+		{
+			output.close();
+		}
+		assertNull(LibrarySnapshot.load(_snapshotFile));
+	}
+
+	/**
+	 * Create a library with files and directories in categories with and without a master category.
+	 * 
+	 * @return The library.
+	 */
+	private static ICustomCategoryMediaLibrary createLibrary()
+	{
+		ICustomCategoryMediaLibrary library = new CustomCategoryMediaLibrary();
+		MediaEntry movie = library.acquireMediaEntry(new File("/media/Movie.avi"), EMediaType.VIDEO); //$NON-NLS-1$
+		MediaEntry otherMovie = library.acquireMediaEntry(new File("/media/Caf\u00e9/Film.mkv"), EMediaType.VIDEO); //$NON-NLS-1$
+		MediaEntry series = library.acquireDirectoryEntry(new File("/media/Series"), EnumSet.of(EMediaType.VIDEO, EMediaType.AUDIO)); //$NON-NLS-1$
+		MediaEntry song = library.acquireMediaEntry(new File("/media/Song.mp3"), EMediaType.AUDIO); //$NON-NLS-1$
+
+		IMediaCategoryType genre = library.acquireCategoryType(EMediaType.VIDEO, "Genre"); //$NON-NLS-1$
+		genre.addResource(movie, "Action"); //$NON-NLS-1$
+		genre.addResource(otherMovie, "Action"); //$NON-NLS-1$
+		genre.addResource(otherMovie, "Drama"); //$NON-NLS-1$
+		genre.addResource(series, "Science Fiction"); //$NON-NLS-1$
+
+		IMediaCategoryType actor = library.acquireCategoryType(EMediaType.VIDEO, "People", "Actor"); //$NON-NLS-1$ //$NON-NLS-2$
+		actor.addResource(movie, "Jean-luc Picard"); //$NON-NLS-1$
+		actor.addResource(series, "Jean-luc Picard"); //$NON-NLS-1$
+
+		IMediaCategoryType artist = library.acquireCategoryType(EMediaType.AUDIO, "Artist"); //$NON-NLS-1$
+		artist.addResource(song, "\u00c9ric Serra"); //$NON-NLS-1$
+
+		return library;
+	}
+
+	/**
+	 * Describe the structure of a library (with the resources of each category in path order).
+	 * 
+	 * @param library The library.
+	 * @return        The description.
+	 */
+	private static Map<String, Object> describe(IReadableMediaLibrary library)
+	{
+		Map<String, Object> description = new TreeMap<String, Object>();
+		for(EMediaType mediaType : EMediaType.values())
+		{
+			if (library.hasContent(mediaType) == false)
+			{
+				continue;
+			}
+
+			Map<String, Object> masterCategoryDescription = new TreeMap<String, Object>();
+			for(Entry<String, Map<String, IReadableMediaCategoryType>> masterCategory : library.getMasterCategoryMapByType(mediaType).entrySet())
+			{
+				Map<String, Object> categoryTypeDescription = new TreeMap<String, Object>();
+				for(Entry<String, IReadableMediaCategoryType> categoryType : masterCategory.getValue().entrySet())
+				{
+					Map<String, Object> categoryDescription = new TreeMap<String, Object>();
+					for(Entry<String, List<MediaEntry>> category : categoryType.getValue().getResources().entrySet())
+					{
+						List<String> resources = new ArrayList<String>();
+						for(MediaEntry entry : category.getValue())
+						{
+							resources.add(entry.getPath() + " " + (entry.isDirectory() == true ? entry.getDirectoryMediaTypes() : entry.getMediaType())); //$NON-NLS-1$
+						}
+						Collections.sort(resources);
+						categoryDescription.put(category.getKey(), resources);
+					}
+					categoryTypeDescription.put(categoryType.getKey(), categoryDescription);
+				}
+				masterCategoryDescription.put(masterCategory.getKey(), categoryTypeDescription);
+			}
+			description.put(mediaType.name(), masterCategoryDescription);
+		}
+
+		return description;
+	}
+
+	/**
+	 * Find the media entry of a path in the categories of the provided category types.
+	 * 
+	 * @param categoryTypeMap The category types.
+	 * @param path            The path.
+	 * @return                The media entry; null if not found.
+	 */
+	private static MediaEntry findEntry(Map<String, IReadableMediaCategoryType> categoryTypeMap, String path)
+	{
+		for(IReadableMediaCategoryType categoryType : categoryTypeMap.values())
+		{
+			for(List<MediaEntry> entries : categoryType.getResources().values())
+			{
+				for(MediaEntry entry : entries)
+				{
+					if (entry.getPath().equals(new File(path).getPath()) == true)
+					{
+						return entry;
+					}
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Read the content of a file.
+	 * 
+	 * @param file The file.
+	 * @return     The content.
+	 * 
+	 * @throws IOException Thrown if the file could not be read.
+	 */
+	private static byte[] readFile(File file) throws IOException
+	{
+		byte[] bytes = new byte[(int) file.length()];
+		InputStream stream = new FileInputStream(file);
+		try
+		{
+			int offset = 0;
+			while (offset < bytes.length)
+			{
+				int count = stream.read(bytes, offset, bytes.length - offset);
+				if (count < 0)
+				{
+					throw new IOException("Unexpected end of file."); //$NON-NLS-1$
+				}
+				offset += count;
+			}
+		}
+		finally
+		{
+			stream.close();
+		}
+
+		return bytes;
+	}
+}
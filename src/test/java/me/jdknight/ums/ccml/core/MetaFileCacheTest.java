@@ -0,0 +1,180 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the persistent cache of parsed meta files.
+ */
+public class MetaFileCacheTest extends TestCase
+{
+	/**
+	 * The cache file.
+	 **/
+	private File _cacheFile;
+
+	/**
+	 * Create an (absent) cache file.
+	 * 
+	 * @throws IOException Thrown if the cache file could not be created.
+	 */
+	@Override
+	protected void setUp() throws IOException
+	{
+		_cacheFile = File.createTempFile("ccml", ".metacache"); //$NON-NLS-1$ //$NON-NLS-2$
+		_cacheFile.delete();
+	}
+
+	/**
+	 * Delete the cache file.
+	 */
+	@Override
+	protected void tearDown()
+	{
+		_cacheFile.delete();
+	}
+
+	/**
+	 * Test that saved entries are loaded again for unchanged meta files only.
+	 */
+	public void testRoundTrip()
+	{
+		File metaFile = new File("/media/Movie.meta"); //$NON-NLS-1$
+		File otherMetaFile = new File("/media/Caf\u00e9/Film.meta"); //$NON-NLS-1$
+
+		Map<String, List<String>> mapOfCategories = createMap("Genre", "Action", "Science Fiction"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		mapOfCategories.putAll(createMap("Actor", "Jean-luc Picard")); //$NON-NLS-1$ //$NON-NLS-2$
+		Map<String, List<String>> otherMapOfCategories = createMap("R\u00e9alisateur", "\u00c9ric Rohmer", "\u65e5\u672c"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		MetaFileCache cache = MetaFileCache.load(_cacheFile);
+		assertNull(cache.get(metaFile, 100, 1000));
+		cache.put(metaFile, 100, 1000, mapOfCategories);
+		cache.put(otherMetaFile, 0, Long.MAX_VALUE, otherMapOfCategories);
+		assertTrue(cache.save());
+		assertTrue(_cacheFile.isFile());
+		assertFalse(new File(_cacheFile.getPath() + ".tmp").exists()); //$NON-NLS-1$
+
+		MetaFileCache loadedCache = MetaFileCache.load(_cacheFile);
+		assertEquals(mapOfCategories, loadedCache.get(metaFile, 100, 1000));
+		assertEquals(otherMapOfCategories, loadedCache.get(otherMetaFile, 0, Long.MAX_VALUE));
+
+		// A changed meta file is not served from the cache.
+		assertNull(loadedCache.get(metaFile, 101, 1000));
+		assertNull(loadedCache.get(metaFile, 100, 1001));
+		assertNull(loadedCache.get(new File("/media/Other.meta"), 100, 1000)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Test that the cache keeps its own copy of the mappings.
+	 */
+	public void testCopies()
+	{
+		File metaFile = new File("/media/Movie.meta"); //$NON-NLS-1$
+		Map<String, List<String>> mapOfCategories = createMap("Genre", "Action"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		MetaFileCache cache = MetaFileCache.load(_cacheFile);
+		cache.put(metaFile, 100, 1000, mapOfCategories);
+		mapOfCategories.get("Genre").add("Drama"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Map<String, List<String>> cachedMapOfCategories = cache.get(metaFile, 100, 1000);
+		assertEquals(createMap("Genre", "Action"), cachedMapOfCategories); //$NON-NLS-1$ //$NON-NLS-2$
+		cachedMapOfCategories.clear();
+		assertEquals(createMap("Genre", "Action"), cache.get(metaFile, 100, 1000)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Test that entries which are not used between saves are dropped.
+	 */
+	public void testUnusedEntriesDropped()
+	{
+		File usedMetaFile = new File("/media/Used.meta"); //$NON-NLS-1$
+		File unusedMetaFile = new File("/media/Unused.meta"); //$NON-NLS-1$
+		File staleMetaFile = new File("/media/Stale.meta"); //$NON-NLS-1$
+
+		MetaFileCache cache = MetaFileCache.load(_cacheFile);
+		cache.put(usedMetaFile, 1, 1, createMap("Genre", "Action")); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put(unusedMetaFile, 2, 2, createMap("Genre", "Drama")); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put(staleMetaFile, 3, 3, createMap("Genre", "Comedy")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(cache.save());
+
+		// Only use one entry (a lookup of a changed meta file does not count as a use).
+		MetaFileCache loadedCache = MetaFileCache.load(_cacheFile);
+		assertNotNull(loadedCache.get(usedMetaFile, 1, 1));
+		assertNull(loadedCache.get(staleMetaFile, 4, 4));
+		assertTrue(loadedCache.save());
+
+		// Entries dropped on save are also gone from the saved cache itself.
+		assertNull(loadedCache.get(unusedMetaFile, 2, 2));
+		assertNotNull(loadedCache.get(usedMetaFile, 1, 1));
+
+		MetaFileCache reloadedCache = MetaFileCache.load(_cacheFile);
+		assertNotNull(reloadedCache.get(usedMetaFile, 1, 1));
+		assertNull(reloadedCache.get(unusedMetaFile, 2, 2));
+		assertNull(reloadedCache.get(staleMetaFile, 3, 3));
+	}
+
+	/**
+	 * Test that a cache file of another format is ignored (and replaced on the next save).
+	 * 
+	 * @throws IOException Thrown if the cache file could not be written.
+	 */
+	public void testUnsupportedFile() throws IOException
+	{
+		OutputStream stream = new FileOutputStream(_cacheFile);
+		try
+		{
+			stream.write(new byte[] { 'n', 'o', 't', ' ', 'a', ' ', 'c', 'a', 'c', 'h', 'e' });
+		}
+		finally
+		{
+			stream.close();
+		}
+
+		File metaFile = new File("/media/Movie.meta"); //$NON-NLS-1$
+		MetaFileCache cache = MetaFileCache.load(_cacheFile);
+		assertNull(cache.get(metaFile, 100, 1000));
+
+		cache.put(metaFile, 100, 1000, createMap("Genre", "Action")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(cache.save());
+		assertEquals(createMap("Genre", "Action"), MetaFileCache.load(_cacheFile).get(metaFile, 100, 1000)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Test that a cache without a cache file is not persisted.
+	 */
+	public void testNoCacheFile()
+	{
+		MetaFileCache cache = MetaFileCache.load(null);
+		cache.put(new File("/media/Movie.meta"), 100, 1000, createMap("Genre", "Action")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertFalse(cache.save());
+	}
+
+	/**
+	 * Create category type mappings with a single category type.
+	 * 
+	 * @param categoryName   The category type.
+	 * @param categoryValues The category values.
+	 * @return               The mappings.
+	 */
+	private static Map<String, List<String>> createMap(String categoryName, String... categoryValues)
+	{
+		Map<String, List<String>> mapOfCategories = new HashMap<String, List<String>>();
+		mapOfCategories.put(categoryName, new ArrayList<String>(Arrays.asList(categoryValues)));
+		return mapOfCategories;
+	}
+}
@@ -0,0 +1,220 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.lang.WordUtils;
+
+/**
+ * Tests of the meta file parser against the line based parsing it replaced.
+ */
+public class MetaFileParserTest extends TestCase
+{
+	/**
+	 * Meta file content covering the cases of the line based parsing.
+	 **/
+	private static final String CONTENT =
+		"genre=action\n" + //$NON-NLS-1$
+		"Genre=science fiction\r\n" + //$NON-NLS-1$
+		"\n" + //$NON-NLS-1$
+		"no separator\n" + //$NON-NLS-1$
+		"=no key\n" + //$NON-NLS-1$
+		"no value=\r" + //$NON-NLS-1$
+		"actor=Jean-luc picard\n" + //$NON-NLS-1$
+		"equation=e=mc2\n" + //$NON-NLS-1$
+		"spaced key = spaced\tvalue \n" + //$NON-NLS-1$
+		"year=2013"; //$NON-NLS-1$
+
+	/**
+	 * Meta file content with non-ASCII characters.
+	 **/
+	private static final String NON_ASCII_CONTENT =
+		CONTENT + "\n" + //$NON-NLS-1$
+		"\u00e9poque=belle \u00e9poque\n" + //$NON-NLS-1$
+		"r\u00e9alisateur=\u00e9ric rohmer\n" + //$NON-NLS-1$
+		"titre=\u65e5\u672c \u8a9e\n"; //$NON-NLS-1$
+
+	/**
+	 * The files created by a test.
+	 **/
+	private final List<File> _files = new ArrayList<File>();
+
+	/**
+	 * Delete the files created by a test.
+	 */
+	@Override
+	protected void tearDown()
+	{
+		for(File file : _files)
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Test a meta file without a byte order mark (in the default encoding).
+	 * 
+	 * @throws IOException Thrown if a meta file could not be written or parsed.
+	 */
+	public void testDefaultEncoding() throws IOException
+	{
+		assertParsed(CONTENT, Charset.defaultCharset(), null);
+	}
+
+	/**
+	 * Test a UTF-8 meta file with a byte order mark.
+	 * 
+	 * @throws IOException Thrown if a meta file could not be written or parsed.
+	 */
+	public void testUtf8() throws IOException
+	{
+		assertParsed(NON_ASCII_CONTENT, Charset.forName("UTF-8"), new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF }); //$NON-NLS-1$
+	}
+
+	/**
+	 * Test UTF-16 meta files with a byte order mark.
+	 * 
+	 * @throws IOException Thrown if a meta file could not be written or parsed.
+	 */
+	public void testUtf16() throws IOException
+	{
+		assertParsed(NON_ASCII_CONTENT, Charset.forName("UTF-16LE"), new byte[] { (byte) 0xFF, (byte) 0xFE }); //$NON-NLS-1$
+		assertParsed(NON_ASCII_CONTENT, Charset.forName("UTF-16BE"), new byte[] { (byte) 0xFE, (byte) 0xFF }); //$NON-NLS-1$
+	}
+
+	/**
+	 * Test a meta file larger than the initial read buffer (parsed twice with the same parser).
+	 * 
+	 * @throws IOException Thrown if a meta file could not be written or parsed.
+	 */
+	public void testLargeFile() throws IOException
+	{
+		StringBuilder content = new StringBuilder();
+		for(int index = 0; index < 1000; index++)
+		{
+			content.append("actor=actor number ").append(index).append('\n'); //$NON-NLS-1$
+		}
+
+		MetaFileParser parser = new MetaFileParser();
+		File file = write(content.toString(), Charset.forName("UTF-8"), null); //$NON-NLS-1$
+		Map<String, List<String>> expected = parseLines(content.toString());
+		assertEquals(expected, parser.parse(file));
+		assertEquals(expected, parser.parse(file));
+		assertEquals(1000, parser.parse(file).get("Actor").size()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Assert that the parser reads the provided content as the line based parsing did.
+	 * 
+	 * @param content        The content.
+	 * @param charset        The character set to write the content with.
+	 * @param byteOrderMark  The byte order mark to write first; null if none.
+	 * 
+	 * @throws IOException Thrown if the meta file could not be written or parsed.
+	 */
+	private void assertParsed(String content, Charset charset, byte[] byteOrderMark) throws IOException
+	{
+		File file = write(content, charset, byteOrderMark);
+		Map<String, List<String>> expected = parseLines(content);
+		assertEquals(charset.name(), expected, new MetaFileParser().parse(file));
+
+		// Spot check the expected mappings themselves.
+		assertEquals(Arrays.asList("Action", "Science Fiction"), expected.get("Genre")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(Arrays.asList("E=mc2"), expected.get("Equation")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(Arrays.asList(" Spaced\tValue "), expected.get("Spaced Key ")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(expected.get("No Value")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Write a meta file.
+	 * 
+	 * @param content       The content.
+	 * @param charset       The character set to write the content with.
+	 * @param byteOrderMark The byte order mark to write first; null if none.
+	 * @return              The meta file.
+	 * 
+	 * @throws IOException Thrown if the meta file could not be written.
+	 */
+	private File write(String content, Charset charset, byte[] byteOrderMark) throws IOException
+	{
+		File file = File.createTempFile("ccml", ".meta"); //$NON-NLS-1$ //$NON-NLS-2$
+		_files.add(file);
+
+		OutputStream stream = new FileOutputStream(file);
+		try
+		{
+			if (byteOrderMark != null)
+			{
+				stream.write(byteOrderMark);
+			}
+			stream.write(content.getBytes(charset.name()));
+		}
+		finally
+		{
+			stream.close();
+		}
+
+		return file;
+	}
+
+	/**
+	 * Parse decoded meta file content the way meta files were parsed before (line by line, with
+	 * a regular expression split and WordUtils).
+	 * 
+	 * @param content The decoded content (without a byte order mark).
+	 * @return        The map of category types to category values.
+	 * 
+	 * @throws IOException Thrown if the content could not be read.
+	 */
+	private static Map<String, List<String>> parseLines(String content) throws IOException
+	{
+		Map<String, List<String>> mapOfCategories = new HashMap<String, List<String>>();
+
+		BufferedReader reader = new BufferedReader(new StringReader(content));
+		String rawCategoryDefine;
+		while ((rawCategoryDefine = reader.readLine()) != null)
+		{
+			String[] propertyAndValue = rawCategoryDefine.split("=", 2); //$NON-NLS-1$
+			if (propertyAndValue.length != 2)
+			{
+				continue;
+			}
+
+			String categoryName = WordUtils.capitalize(propertyAndValue[0]);
+			String categoryValue = WordUtils.capitalize(propertyAndValue[1]);
+			if (categoryName.isEmpty() == true || categoryValue.isEmpty() == true)
+			{
+				continue;
+			}
+
+			List<String> categoryValuesList = mapOfCategories.get(categoryName);
+			if (categoryValuesList == null)
+			{
+				categoryValuesList = new ArrayList<String>();
+				mapOfCategories.put(categoryName, categoryValuesList);
+			}
+
+			categoryValuesList.add(categoryValue);
+		}
+
+		return mapOfCategories;
+	}
+}
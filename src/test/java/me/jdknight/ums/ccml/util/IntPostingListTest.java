@@ -0,0 +1,177 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.util;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the sorted integer posting list.
+ */
+public class IntPostingListTest extends TestCase
+{
+	/**
+	 * Test adding identifiers in ascending order, out of order and more than once.
+	 */
+	public void testAdd()
+	{
+		IntPostingList list = new IntPostingList();
+		assertTrue(list.isEmpty());
+
+		assertTrue(list.add(5));
+		assertTrue(list.add(9));
+		assertTrue(list.add(1));
+		assertTrue(list.add(7));
+		assertFalse(list.add(5));
+		assertFalse(list.add(1));
+
+		assertEquals(4, list.size());
+		assertTrue(Arrays.equals(new int[] { 1, 5, 7, 9 }, list.snapshot()));
+		assertTrue(list.contains(7));
+		assertFalse(list.contains(6));
+		assertEquals(1, list.get(0));
+		assertEquals(9, list.get(3));
+	}
+
+	/**
+	 * Test removing identifiers by position.
+	 */
+	public void testRemoveAt()
+	{
+		IntPostingList list = createList(1, 2, 3, 4);
+		list.removeAt(0);
+		list.removeAt(2);
+
+		assertTrue(Arrays.equals(new int[] { 2, 3 }, list.snapshot()));
+
+		try
+		{
+			list.removeAt(2);
+			fail();
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// Expected.
+		}
+	}
+
+	/**
+	 * Test removing a batch of identifiers (some of which are not present).
+	 */
+	public void testRemoveAll()
+	{
+		IntPostingList list = createList(1, 3, 5, 7, 9, 11);
+		int[] removedIds = new int[5];
+
+		assertEquals(3, list.removeAll(new int[] { 0, 3, 4, 9, 11 }, 5, removedIds));
+		assertTrue(Arrays.equals(new int[] { 3, 9, 11 }, Arrays.copyOf(removedIds, 3)));
+		assertTrue(Arrays.equals(new int[] { 1, 5, 7 }, list.snapshot()));
+
+		// Only the first identifiers of the batch are removed.
+		assertEquals(1, list.removeAll(new int[] { 1, 5, 7 }, 1, null));
+		assertTrue(Arrays.equals(new int[] { 5, 7 }, list.snapshot()));
+
+		assertEquals(0, list.removeAll(new int[] { 2, 4, 6, 8 }, 4, removedIds));
+		assertEquals(2, list.removeAll(new int[] { 5, 7 }, 2, null));
+		assertTrue(list.isEmpty());
+	}
+
+	/**
+	 * Test that snapshots share the array of an unchanged list and are left untouched by changes.
+	 */
+	public void testSnapshot()
+	{
+		IntPostingList list = createList(2, 4, 6);
+		int[] snapshot = list.snapshot();
+		assertSame(snapshot, list.snapshot());
+		assertEquals(3, snapshot.length);
+
+		// A batch with none of the identifiers present does not copy the array.
+		assertEquals(0, list.removeAll(new int[] { 1, 3 }, 2, null));
+		assertSame(snapshot, list.snapshot());
+
+		list.add(5);
+		list.removeAt(0);
+		assertEquals(1, list.removeAll(new int[] { 6 }, 1, null));
+		assertTrue(Arrays.equals(new int[] { 2, 4, 6 }, snapshot));
+
+		int[] newSnapshot = list.snapshot();
+		assertNotSame(snapshot, newSnapshot);
+		assertTrue(Arrays.equals(new int[] { 4, 5 }, newSnapshot));
+
+		list.add(1);
+		assertTrue(Arrays.equals(new int[] { 4, 5 }, newSnapshot));
+		assertTrue(Arrays.equals(new int[] { 1, 4, 5 }, list.snapshot()));
+	}
+
+	/**
+	 * Test random additions and removals (with snapshots taken in between) against a tree set.
+	 */
+	public void testRandomChanges()
+	{
+		Random random = new Random(42);
+		IntPostingList list = new IntPostingList();
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+		for(int round = 0; round < 200; round++)
+		{
+			for(int index = 0; index < 20; index++)
+			{
+				int id = random.nextInt(500);
+				assertEquals(expected.add(Integer.valueOf(id)), list.add(id));
+			}
+
+			int[] snapshot = list.snapshot();
+			int[] snapshotCopy = snapshot.clone();
+
+			int[] ids = new int[random.nextInt(10)];
+			for(int index = 0; index < ids.length; index++)
+			{
+				ids[index] = random.nextInt(500);
+			}
+			Arrays.sort(ids);
+
+			int expectedRemovedCount = 0;
+			for(int index = 0; index < ids.length; index++)
+			{
+				if ((index == 0 || ids[index] != ids[index - 1]) && expected.remove(Integer.valueOf(ids[index])) == true)
+				{
+					expectedRemovedCount++;
+				}
+			}
+
+			assertEquals(expectedRemovedCount, list.removeAll(ids, ids.length, new int[ids.length]));
+			assertTrue(Arrays.equals(snapshotCopy, snapshot));
+			assertEquals(expected.size(), list.size());
+
+			int index = 0;
+			for(Integer id : expected)
+			{
+				assertEquals(id.intValue(), list.get(index++));
+			}
+		}
+	}
+
+	/**
+	 * Create a list of the provided identifiers.
+	 * 
+	 * @param ids The identifiers.
+	 * @return    The list.
+	 */
+	private static IntPostingList createList(int... ids)
+	{
+		IntPostingList list = new IntPostingList();
+		for(int id : ids)
+		{
+			list.add(id);
+		}
+
+		return list;
+	}
+}
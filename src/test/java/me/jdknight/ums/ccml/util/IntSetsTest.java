@@ -0,0 +1,159 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.util;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the sorted integer set utility class.
+ */
+public class IntSetsTest extends TestCase
+{
+	/**
+	 * Test intersections of sets of similar size (which walk both sets).
+	 */
+	public void testIntersectSimilarSizes()
+	{
+		int[] first = { 1, 3, 5, 7, 9, 11 };
+		int[] second = { 2, 3, 4, 7, 8, 11, 12 };
+
+		assertTrue(Arrays.equals(new int[] { 3, 7, 11 }, IntSets.intersect(first, second)));
+		assertTrue(Arrays.equals(new int[] { 3, 7, 11 }, IntSets.intersect(second, first)));
+		assertEquals(3, IntSets.intersectionSize(first, second));
+	}
+
+	/**
+	 * Test intersections of a small set with a much larger set (which gallop through the larger set).
+	 */
+	public void testIntersectGallop()
+	{
+		int[] large = new int[1000];
+		for(int index = 0; index < large.length; index++)
+		{
+			large[index] = index * 2;
+		}
+
+		// First, last, missing (odd) and out of range identifiers.
+		int[] small = { -4, 0, 7, 500, 501, 1998, 5000 };
+
+		assertTrue(Arrays.equals(new int[] { 0, 500, 1998 }, IntSets.intersect(small, large)));
+		assertTrue(Arrays.equals(new int[] { 0, 500, 1998 }, IntSets.intersect(large, small)));
+		assertEquals(3, IntSets.intersectionSize(small, large));
+		assertEquals(3, IntSets.intersectionSize(large, small));
+	}
+
+	/**
+	 * Test intersections and unions with empty sets.
+	 */
+	public void testEmpty()
+	{
+		int[] empty = new int[0];
+		int[] set = { 1, 2, 3 };
+
+		assertEquals(0, IntSets.intersect(empty, set).length);
+		assertEquals(0, IntSets.intersect(set, empty).length);
+		assertEquals(0, IntSets.intersectionSize(empty, set));
+		assertTrue(Arrays.equals(set, IntSets.union(empty, set)));
+		assertTrue(Arrays.equals(set, IntSets.union(set, empty)));
+		assertEquals(0, IntSets.union(empty, empty).length);
+	}
+
+	/**
+	 * Test unions of overlapping and disjoint sets.
+	 */
+	public void testUnion()
+	{
+		assertTrue(Arrays.equals(new int[] { 1, 2, 3, 4, 5, 7 }, IntSets.union(new int[] { 1, 3, 5 }, new int[] { 2, 3, 4, 7 })));
+		assertTrue(Arrays.equals(new int[] { 1, 2, 3, 4 }, IntSets.union(new int[] { 3, 4 }, new int[] { 1, 2 })));
+		assertTrue(Arrays.equals(new int[] { 1, 2 }, IntSets.union(new int[] { 1, 2 }, new int[] { 1, 2 })));
+	}
+
+	/**
+	 * Test intersections and unions of random sets of various sizes against a tree set.
+	 */
+	public void testRandomSets()
+	{
+		Random random = new Random(42);
+		int[] sizes = { 0, 1, 5, 20, 100, 1000 };
+		for(int firstSize : sizes)
+		{
+			for(int secondSize : sizes)
+			{
+				int[] first = createSet(random, firstSize, 3000);
+				int[] second = createSet(random, secondSize, 3000);
+
+				TreeSet<Integer> expectedIntersection = toTreeSet(first);
+				expectedIntersection.retainAll(toTreeSet(second));
+				TreeSet<Integer> expectedUnion = toTreeSet(first);
+				expectedUnion.addAll(toTreeSet(second));
+
+				String message = firstSize + "/" + secondSize; //$NON-NLS-1$
+				assertTrue(message, Arrays.equals(toArray(expectedIntersection), IntSets.intersect(first, second)));
+				assertEquals(message, expectedIntersection.size(), IntSets.intersectionSize(first, second));
+				assertTrue(message, Arrays.equals(toArray(expectedUnion), IntSets.union(first, second)));
+			}
+		}
+	}
+
+	/**
+	 * Create a random set.
+	 * 
+	 * @param random The random number generator.
+	 * @param size   The number of identifiers.
+	 * @param range  The (exclusive) upper bound of the identifiers.
+	 * @return       The set (in ascending order).
+	 */
+	private static int[] createSet(Random random, int size, int range)
+	{
+		TreeSet<Integer> set = new TreeSet<Integer>();
+		while (set.size() < size)
+		{
+			set.add(Integer.valueOf(random.nextInt(range)));
+		}
+
+		return toArray(set);
+	}
+
+	/**
+	 * Return a tree set of the provided identifiers.
+	 * 
+	 * @param ids The identifiers.
+	 * @return    The tree set.
+	 */
+	private static TreeSet<Integer> toTreeSet(int[] ids)
+	{
+		TreeSet<Integer> set = new TreeSet<Integer>();
+		for(int id : ids)
+		{
+			set.add(Integer.valueOf(id));
+		}
+
+		return set;
+	}
+
+	/**
+	 * Return the identifiers of a tree set.
+	 * 
+	 * @param set The tree set.
+	 * @return    The identifiers (in ascending order).
+	 */
+	private static int[] toArray(TreeSet<Integer> set)
+	{
+		int[] ids = new int[set.size()];
+		int index = 0;
+		for(Integer id : set)
+		{
+			ids[index++] = id.intValue();
+		}
+
+		return ids;
+	}
+}
@@ -0,0 +1,90 @@
+/** 
+ * @file
+ * Copyright (c) 2011-2013 jdknight. All rights reserved.
+ * GNU General Public License, Version 2
+ **/
+
+package me.jdknight.ums.ccml.util;
+
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the sort key utility class.
+ */
+public class SortKeyHelperTest extends TestCase
+{
+	/**
+	 * Test that numbers are compared by their value.
+	 */
+	public void testNumbersByValue()
+	{
+		assertOrdered("Episode 2", "Episode 10"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("Episode 9", "Episode 10"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("Episode 10", "Episode 100"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("2 Fast", "10 Things"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("S1E2", "S1E10"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("S2E1", "S10E1"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("Episode 0", "Episode 1"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Test that a number keeps its place against spaces, punctuation and letters.
+	 */
+	public void testNumbersAgainstOtherCharacters()
+	{
+		assertOrdered("Episode 2", "Episode A"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("Episode - 2", "Episode 2"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("Episode.avi", "Episode1.avi"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("Episode 1", "Episode 1 - Part 2"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("Episode 1 - Part 2", "Episode 1.avi"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("Episode", "Episode 1"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("Episode 1", "Episode 1a"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Test that case and leading zeros are ignored (ties are broken by comparing the names).
+	 */
+	public void testIgnoredDifferences()
+	{
+		assertEquals(SortKeyHelper.getNaturalKey("Episode 1"), SortKeyHelper.getNaturalKey("EPISODE 1")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(SortKeyHelper.getNaturalKey("Episode 1"), SortKeyHelper.getNaturalKey("Episode 01")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(SortKeyHelper.getNaturalKey("Episode 0"), SortKeyHelper.getNaturalKey("Episode 000")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertOrdered("Episode 01", "Episode 2"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Test that keys do not depend on the default locale.
+	 */
+	public void testDefaultLocale()
+	{
+		Locale defaultLocale = Locale.getDefault();
+		String key = SortKeyHelper.getNaturalKey("TITLE"); //$NON-NLS-1$
+		try
+		{
+			// The Turkish locale lower cases 'I' to a dotless 'i'.
+			Locale.setDefault(new Locale("tr", "TR")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals(key, SortKeyHelper.getNaturalKey("TITLE")); //$NON-NLS-1$
+			assertEquals(SortKeyHelper.getNaturalKey("title"), SortKeyHelper.getNaturalKey("TITLE")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		finally
+		{
+			Locale.setDefault(defaultLocale);
+		}
+	}
+
+	/**
+	 * Assert that the natural order key of a name sorts before the key of another name.
+	 * 
+	 * @param name      The name.
+	 * @param otherName The other name.
+	 */
+	private static void assertOrdered(String name, String otherName)
+	{
+		String key = SortKeyHelper.getNaturalKey(name);
+		String otherKey = SortKeyHelper.getNaturalKey(otherName);
+		assertTrue(name + " < " + otherName, key.compareTo(otherKey) < 0); //$NON-NLS-1$
+		assertTrue(otherName + " > " + name, otherKey.compareTo(key) > 0); //$NON-NLS-1$
+	}
+}